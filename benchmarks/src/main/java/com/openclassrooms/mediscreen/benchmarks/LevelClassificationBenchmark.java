@@ -0,0 +1,58 @@
+package com.openclassrooms.mediscreen.benchmarks;
+
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.springframework.core.io.ClassPathResource;
+
+import com.openclassrooms.mediscreen.report.enumeration.Gender;
+import com.openclassrooms.mediscreen.report.service.RiskRuleEngine;
+
+/** Risk level classification of a fixed batch of random gender, age and trigger count inputs. */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class LevelClassificationBenchmark {
+
+    private static final int BATCH_SIZE = 1024;
+
+    private RiskRuleEngine riskRuleEngine;
+    private final Gender[] genders = new Gender[BATCH_SIZE];
+    private final int[] ages = new int[BATCH_SIZE];
+    private final int[] triggerCounts = new int[BATCH_SIZE];
+
+    @Setup
+    public void setUp() {
+        riskRuleEngine = RiskRuleEngine.load(new ClassPathResource("risk-rules.csv"));
+        SplittableRandom random = new SplittableRandom(42L);
+        Gender[] values = Gender.values();
+        for (int i = 0; i < BATCH_SIZE; i++) {
+            genders[i] = values[random.nextInt(values.length)];
+            ages[i] = random.nextInt(100);
+            triggerCounts[i] = random.nextInt(12);
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(BATCH_SIZE)
+    public void classify(Blackhole blackhole) {
+        for (int i = 0; i < BATCH_SIZE; i++) {
+            blackhole.consume(riskRuleEngine.classify(genders[i], ages[i], triggerCounts[i]));
+        }
+    }
+}
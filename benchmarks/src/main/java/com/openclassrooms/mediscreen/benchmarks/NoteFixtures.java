@@ -0,0 +1,87 @@
+package com.openclassrooms.mediscreen.benchmarks;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.stream.IntStream;
+
+import com.openclassrooms.mediscreen.report.model.Note;
+
+/** Deterministic generator of practitioner notes and trigger vocabularies. */
+final class NoteFixtures {
+
+    /** The production vocabulary, used as the first terms of every generated vocabulary. */
+    static final List<String> DEFAULT_TERMS =
+            List.of(
+                    "hémoglobine a1c",
+                    "microalbumine",
+                    "taille",
+                    "poids",
+                    "fumeur",
+                    "anormal",
+                    "cholestérol",
+                    "vertige",
+                    "rechute",
+                    "réaction",
+                    "anticorps");
+
+    private static final String[] FILLER_WORDS = {
+        "le", "patient", "déclare", "se", "sentir", "très", "bien", "depuis", "la",
+        "dernière", "visite", "tests", "de", "laboratoire", "indiquent", "des", "valeurs",
+        "normales", "douleurs", "au", "cou", "occasionnellement", "examen", "sans",
+        "particularité", "traitement", "suivi"
+    };
+
+    private static final long SEED = 42L;
+
+    private NoteFixtures() {}
+
+    /**
+     * Builds a vocabulary of the given size, padding the production terms with synthetic ones.
+     *
+     * @param size the number of terms, at most {@value Long#SIZE}
+     * @return the vocabulary
+     */
+    static List<String> vocabulary(int size) {
+        int defaultCount = Math.min(size, DEFAULT_TERMS.size());
+        List<String> terms = new ArrayList<>(DEFAULT_TERMS.subList(0, defaultCount));
+        IntStream.range(terms.size(), size).mapToObj(i -> "marqueur" + i).forEach(terms::add);
+        return terms;
+    }
+
+    /**
+     * Generates notes made of filler words, with a small share of trigger terms so that a patient
+     * rarely matches the whole vocabulary and the scan cannot stop early.
+     *
+     * @param count the number of notes
+     * @param length the approximate length of every note, in characters
+     * @param terms the vocabulary to draw triggers from
+     * @return the notes
+     */
+    static List<Note> notes(int count, int length, List<String> terms) {
+        SplittableRandom random = new SplittableRandom(SEED);
+        List<Note> notes = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            StringBuilder report = new StringBuilder(length + 32);
+            while (report.length() < length) {
+                if (!report.isEmpty()) {
+                    report.append(' ');
+                }
+                report.append(
+                        random.nextInt(100) == 0
+                                ? terms.get(random.nextInt(terms.size()))
+                                : FILLER_WORDS[random.nextInt(FILLER_WORDS.length)]);
+            }
+            notes.add(
+                    new Note(
+                            "note-" + i,
+                            "Dr Benchmark",
+                            1L,
+                            report.toString(),
+                            LocalDateTime.of(2024, 1, 1, 0, 0),
+                            0L));
+        }
+        return notes;
+    }
+}
@@ -0,0 +1,105 @@
+package com.openclassrooms.mediscreen.benchmarks;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.core.io.ByteArrayResource;
+import org.springframework.core.io.ClassPathResource;
+
+import com.openclassrooms.mediscreen.report.enumeration.Gender;
+import com.openclassrooms.mediscreen.report.enumeration.Level;
+import com.openclassrooms.mediscreen.report.model.Note;
+import com.openclassrooms.mediscreen.report.model.Patient;
+import com.openclassrooms.mediscreen.report.service.ReportCache;
+import com.openclassrooms.mediscreen.report.service.ReportMetrics;
+import com.openclassrooms.mediscreen.report.service.ReportService;
+import com.openclassrooms.mediscreen.report.service.RiskRuleEngine;
+import com.openclassrooms.mediscreen.report.service.TriggerIndex;
+import com.openclassrooms.mediscreen.report.service.TriggerVocabulary;
+import com.openclassrooms.mediscreen.trigger.TriggerMatcher;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+/**
+ * Trigger counting over the notes of one patient, through {@link ReportService#assessLevel} as
+ * used by the reports, and through a bare {@link TriggerMatcher} scan to isolate the automaton.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class TriggerCountingBenchmark {
+
+    @Param({"1", "10", "100", "1000", "10000"})
+    private int noteCount;
+
+    @Param({"100", "1000"})
+    private int noteLength;
+
+    @Param({"11", "32", "64"})
+    private int vocabularySize;
+
+    private ReportService reportService;
+    private TriggerMatcher matcher;
+    private Patient patient;
+    private List<Note> notes;
+
+    @Setup
+    public void setUp() {
+        List<String> terms = NoteFixtures.vocabulary(vocabularySize);
+        TriggerVocabulary vocabulary =
+                new TriggerVocabulary(
+                        new ByteArrayResource(
+                                String.join("\n", terms).getBytes(StandardCharsets.UTF_8)));
+        reportService =
+                new ReportService(
+                        null,
+                        null,
+                        new TriggerIndex(false, 0, Duration.ZERO),
+                        new ReportCache(1, Duration.ofMinutes(1)),
+                        RiskRuleEngine.load(new ClassPathResource("risk-rules.csv")),
+                        vocabulary,
+                        new ReportMetrics(new SimpleMeterRegistry()));
+        matcher = vocabulary.current().matcher();
+        patient =
+                new Patient(
+                        1L, "John", "Doe", LocalDate.of(1980, 1, 25), Gender.MALE, null, null);
+        notes = NoteFixtures.notes(noteCount, noteLength, terms);
+    }
+
+    @TearDown
+    public void tearDown() {
+        reportService.shutdown();
+    }
+
+    @Benchmark
+    public Level assessLevel() {
+        return reportService.assessLevel(patient, notes);
+    }
+
+    @Benchmark
+    public long scanNotes() {
+        long seen = 0L;
+        for (Note note : notes) {
+            seen = matcher.scan(note.report(), seen);
+        }
+        return seen;
+    }
+}
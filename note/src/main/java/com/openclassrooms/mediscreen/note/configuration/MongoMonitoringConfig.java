@@ -0,0 +1,50 @@
+package com.openclassrooms.mediscreen.note.configuration;
+
+import java.time.Duration;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import jakarta.annotation.PreDestroy;
+
+import org.bson.Document;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.mongodb.autoconfigure.MongoClientSettingsBuilderCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.data.mongodb.core.MongoOperations;
+
+/**
+ * Registers the slow query log on the Mongo client. Per command and per collection latency is
+ * recorded by the {@code mongodb.driver.commands} timer that Spring Boot registers with Actuator.
+ */
+@Configuration
+public class MongoMonitoringConfig {
+
+    private final ExecutorService explainExecutor = Executors.newVirtualThreadPerTaskExecutor();
+
+    @Bean
+    public MongoClientSettingsBuilderCustomizer slowQueryLogCustomizer(
+            @Value("${note.mongo.slow-query-threshold:100ms}") Duration threshold,
+            @Value("${note.mongo.index-usage-ttl:10m}") Duration indexUsageTtl,
+            ObjectProvider<MongoOperations> mongoOperations) {
+        // Resolved lazily: the template is built on top of the client being customized
+        SlowQueryLogger slowQueryLogger =
+                new SlowQueryLogger(
+                        threshold,
+                        indexUsageTtl,
+                        command ->
+                                mongoOperations
+                                        .getObject()
+                                        .executeCommand(
+                                                new Document("explain", command)
+                                                        .append("verbosity", "queryPlanner")),
+                        explainExecutor);
+        return settings -> settings.addCommandListener(slowQueryLogger);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        explainExecutor.shutdownNow();
+    }
+}
@@ -0,0 +1,270 @@
+package com.openclassrooms.mediscreen.note.configuration;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+import java.util.function.LongSupplier;
+
+import org.bson.BsonArray;
+import org.bson.BsonDocument;
+import org.bson.BsonString;
+import org.bson.BsonValue;
+import org.bson.Document;
+
+import com.mongodb.event.CommandFailedEvent;
+import com.mongodb.event.CommandListener;
+import com.mongodb.event.CommandStartedEvent;
+import com.mongodb.event.CommandSucceededEvent;
+
+import lombok.extern.log4j.Log4j2;
+
+/**
+ * Logs the Mongo commands slower than a threshold, with the shape of their filter and whether the
+ * query plan uses an index.
+ *
+ * <p>The shape of a filter keeps its field names and operators and replaces every value with
+ * {@code ?}, so that all the queries issued by the same code path share one shape. Whether an index
+ * is used is found by explaining the query plan of a read command ({@code queryPlanner} verbosity,
+ * which does not run the query) the first time one of its shape is slow. Plans are explained off
+ * the calling thread and remembered per shape for a limited time, so that a plan changed by a new
+ * index or by data growth is seen again. An explain that fails is not remembered, and expired
+ * shapes make room for new ones once {@value #MAX_SHAPES} shapes are known.
+ */
+@Log4j2
+public class SlowQueryLogger implements CommandListener {
+
+    static final int MAX_SHAPES = 1000;
+
+    // Read commands whose plan can be explained, and the fields their plan depends on
+    private static final Set<String> EXPLAINABLE_COMMANDS =
+            Set.of("find", "aggregate", "count", "distinct");
+    private static final List<String> PLAN_FIELDS =
+            List.of("filter", "query", "key", "pipeline", "sort", "projection", "hint", "cursor");
+
+    private static final BsonString PLACEHOLDER = new BsonString("?");
+
+    private final long thresholdNanos;
+    private final long indexUsageTtlNanos;
+    private final Function<BsonDocument, Document> explainer;
+    private final Executor explainExecutor;
+    private final LongSupplier nanoTime;
+    private final ConcurrentMap<Integer, InFlightCommand> inFlight = new ConcurrentHashMap<>();
+    private final ConcurrentMap<String, KnownUsage> indexUsageByShape = new ConcurrentHashMap<>();
+
+    /**
+     * @param threshold the duration above which a command is logged
+     * @param indexUsageTtl how long the index usage of a shape is remembered
+     * @param explainer runs an {@code explain} command and returns its result
+     * @param explainExecutor runs the explains, so that they do not delay the caller
+     */
+    public SlowQueryLogger(
+            Duration threshold,
+            Duration indexUsageTtl,
+            Function<BsonDocument, Document> explainer,
+            Executor explainExecutor) {
+        this(threshold, indexUsageTtl, explainer, explainExecutor, System::nanoTime);
+    }
+
+    SlowQueryLogger(
+            Duration threshold,
+            Duration indexUsageTtl,
+            Function<BsonDocument, Document> explainer,
+            Executor explainExecutor,
+            LongSupplier nanoTime) {
+        this.thresholdNanos = threshold.toNanos();
+        this.indexUsageTtlNanos = indexUsageTtl.toNanos();
+        this.explainer = explainer;
+        this.explainExecutor = explainExecutor;
+        this.nanoTime = nanoTime;
+    }
+
+    @Override
+    public void commandStarted(CommandStartedEvent event) {
+        String commandName = event.getCommandName();
+        BsonDocument command = event.getCommand();
+        BsonValue target = command.get("getMore".equals(commandName) ? "collection" : commandName);
+        String collection = target != null && target.isString() ? target.asString().getValue() : "";
+        // The command document is only valid during the callback, so the plan fields are copied
+        BsonDocument planCommand = null;
+        if (EXPLAINABLE_COMMANDS.contains(commandName)) {
+            planCommand = new BsonDocument(commandName, target.clone());
+            for (String field : PLAN_FIELDS) {
+                BsonValue value = command.get(field);
+                if (value != null) {
+                    planCommand.put(field, value.clone());
+                }
+            }
+        }
+        inFlight.put(
+                event.getRequestId(), new InFlightCommand(commandName, collection, planCommand));
+    }
+
+    @Override
+    public void commandSucceeded(CommandSucceededEvent event) {
+        completed(event.getRequestId(), event.getElapsedTime(TimeUnit.NANOSECONDS));
+    }
+
+    @Override
+    public void commandFailed(CommandFailedEvent event) {
+        completed(event.getRequestId(), event.getElapsedTime(TimeUnit.NANOSECONDS));
+    }
+
+    private void completed(int requestId, long elapsedNanos) {
+        InFlightCommand command = inFlight.remove(requestId);
+        if (command == null || elapsedNanos < thresholdNanos) {
+            return;
+        }
+        long elapsedMillis = TimeUnit.NANOSECONDS.toMillis(elapsedNanos);
+        if (command.planCommand() == null) {
+            log.warn(
+                    "Slow Mongo {} on {}: {} ms",
+                    command.name(),
+                    command.collection(),
+                    elapsedMillis);
+            return;
+        }
+        String shape = shapeOf(command.planCommand()).toJson();
+        String key = command.collection() + ' ' + shape;
+        long now = nanoTime.getAsLong();
+        KnownUsage known = indexUsageByShape.get(key);
+        if (known != null && !known.isExpired(now)) {
+            logSlowQuery(command, shape, elapsedMillis, known.usage());
+            return;
+        }
+        if (known == null && indexUsageByShape.size() >= MAX_SHAPES) {
+            indexUsageByShape.values().removeIf(usage -> usage.isExpired(now));
+        }
+        // Marks the shape as being explained, so that concurrent slow queries do not explain it
+        KnownUsage explaining =
+                new KnownUsage(known != null ? known.usage() : IndexUsage.UNKNOWN, now, true);
+        boolean claimed =
+                known != null
+                        ? indexUsageByShape.replace(key, known, explaining)
+                        : indexUsageByShape.size() < MAX_SHAPES
+                                && indexUsageByShape.putIfAbsent(key, explaining) == null;
+        if (!claimed) {
+            logSlowQuery(command, shape, elapsedMillis, explaining.usage());
+            return;
+        }
+        explainExecutor.execute(
+                () -> {
+                    IndexUsage usage = explain(command.planCommand());
+                    if (usage == null) {
+                        indexUsageByShape.remove(key, explaining);
+                        usage = IndexUsage.UNKNOWN;
+                    } else {
+                        indexUsageByShape.replace(
+                                key,
+                                explaining,
+                                new KnownUsage(
+                                        usage, nanoTime.getAsLong() + indexUsageTtlNanos, false));
+                    }
+                    logSlowQuery(command, shape, elapsedMillis, usage);
+                });
+    }
+
+    /** Returns the index usage of a query plan, or {@code null} if it could not be explained. */
+    private IndexUsage explain(BsonDocument planCommand) {
+        try {
+            return indexUsageOf(explainer.apply(planCommand));
+        } catch (RuntimeException e) {
+            log.debug("Could not explain query plan of: {}", planCommand.getFirstKey(), e);
+            return null;
+        }
+    }
+
+    private static void logSlowQuery(
+            InFlightCommand command, String shape, long elapsedMillis, IndexUsage usage) {
+        log.warn(
+                "Slow Mongo {} on {}: {} ms, index used: {}, shape: {}",
+                command.name(),
+                command.collection(),
+                elapsedMillis,
+                usage.label,
+                shape);
+    }
+
+    /**
+     * Replaces every value of a command with {@code ?}, keeping field names and operators. Arrays
+     * of documents, such as {@code $or} clauses and pipeline stages, keep one shape per element.
+     */
+    static BsonDocument shapeOf(BsonDocument document) {
+        BsonDocument shape = new BsonDocument();
+        for (Map.Entry<String, BsonValue> entry : document.entrySet()) {
+            shape.put(entry.getKey(), shapeOf(entry.getValue()));
+        }
+        return shape;
+    }
+
+    private static BsonValue shapeOf(BsonValue value) {
+        if (value.isDocument()) {
+            return shapeOf(value.asDocument());
+        }
+        if (value.isArray() && value.asArray().stream().allMatch(BsonValue::isDocument)) {
+            BsonArray shape = new BsonArray();
+            value.asArray().forEach(element -> shape.add(shapeOf(element.asDocument())));
+            return shape;
+        }
+        return PLACEHOLDER;
+    }
+
+    /**
+     * Reads whether the winning plans of an {@code explain} result scan an index or the whole
+     * collection. Aggregations may hold one winning plan per stage, so every one is inspected.
+     */
+    static IndexUsage indexUsageOf(Document explain) {
+        List<String> stages = new ArrayList<>();
+        collectWinningStages(explain, false, stages);
+        if (stages.contains("COLLSCAN")) {
+            return IndexUsage.NO;
+        }
+        return stages.isEmpty() ? IndexUsage.UNKNOWN : IndexUsage.YES;
+    }
+
+    private static void collectWinningStages(Object node, boolean inWinningPlan, List<String> out) {
+        if (node instanceof Map<?, ?> map) {
+            for (Map.Entry<?, ?> entry : map.entrySet()) {
+                if (inWinningPlan && "stage".equals(entry.getKey())) {
+                    out.add(String.valueOf(entry.getValue()));
+                } else if (!"rejectedPlans".equals(entry.getKey())) {
+                    collectWinningStages(
+                            entry.getValue(),
+                            inWinningPlan || "winningPlan".equals(entry.getKey()),
+                            out);
+                }
+            }
+        } else if (node instanceof List<?> list) {
+            list.forEach(element -> collectWinningStages(element, inWinningPlan, out));
+        }
+    }
+
+    /** Whether the query plan of a command uses an index. */
+    enum IndexUsage {
+        YES("yes"),
+        NO("no (collection scan)"),
+        UNKNOWN("unknown");
+
+        private final String label;
+
+        IndexUsage(String label) {
+            this.label = label;
+        }
+    }
+
+    /** Index usage of a shape, or the previous one while the shape is explained again. */
+    private record KnownUsage(IndexUsage usage, long expiresAt, boolean explaining) {
+
+        boolean isExpired(long now) {
+            return !explaining && now - expiresAt >= 0;
+        }
+    }
+
+    private record InFlightCommand(String name, String collection, BsonDocument planCommand) {}
+}
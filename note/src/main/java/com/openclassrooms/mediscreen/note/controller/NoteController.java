@@ -1,10 +1,17 @@
 package com.openclassrooms.mediscreen.note.controller;
 
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
 import java.net.URI;
+import java.util.Iterator;
 import java.util.List;
+import java.util.stream.Stream;
 
 import jakarta.validation.Valid;
 
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.DeleteMapping;
 import org.springframework.web.bind.annotation.GetMapping;
@@ -13,11 +20,20 @@ import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.PutMapping;
 import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import com.openclassrooms.mediscreen.note.controller.dto.BulkCreateResponseDto;
+import com.openclassrooms.mediscreen.note.controller.dto.NotePageResponseDto;
 import com.openclassrooms.mediscreen.note.controller.dto.NoteRequestDto;
 import com.openclassrooms.mediscreen.note.controller.dto.NoteResponseDto;
+import com.openclassrooms.mediscreen.note.controller.dto.NoteSearchResponseDto;
+import com.openclassrooms.mediscreen.note.controller.dto.PatientTriggersResponseDto;
+import com.openclassrooms.mediscreen.note.controller.dto.TriggerMatchResponseDto;
 import com.openclassrooms.mediscreen.note.controller.dto.UpdateReportRequestDto;
+import com.openclassrooms.mediscreen.note.exception.InvalidBulkRequestException;
+import com.openclassrooms.mediscreen.note.model.BulkCreateResult;
 import com.openclassrooms.mediscreen.note.model.Note;
 import com.openclassrooms.mediscreen.note.service.NoteService;
 
@@ -26,6 +42,9 @@ import io.swagger.v3.oas.annotations.responses.ApiResponse;
 import io.swagger.v3.oas.annotations.responses.ApiResponses;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import lombok.RequiredArgsConstructor;
+import tools.jackson.core.JacksonException;
+import tools.jackson.databind.MappingIterator;
+import tools.jackson.databind.json.JsonMapper;
 
 @RestController
 @RequestMapping("/api/v1/notes")
@@ -34,15 +53,50 @@ import lombok.RequiredArgsConstructor;
 public class NoteController {
 
     private final NoteService noteService;
+    private final JsonMapper jsonMapper;
 
-    @Operation(summary = "Retrieve all notes")
+    @Operation(
+            summary = "Retrieve all notes",
+            description =
+                    "Notes moved to the archive are only included when fullHistory is true")
     @ApiResponses(
             value = {
                 @ApiResponse(responseCode = "200", description = "List of all notes returned")
             })
     @GetMapping
-    public List<NoteResponseDto> getAllNotes() {
-        return noteService.findAll().stream().map(NoteResponseDto::from).toList();
+    public List<NoteResponseDto> getAllNotes(
+            @RequestParam(defaultValue = "false") boolean fullHistory) {
+        return noteService.findAll(fullHistory).stream().map(NoteResponseDto::from).toList();
+    }
+
+    @Operation(
+            summary = "Stream all notes",
+            description =
+                    "Stream one JSON note per line (NDJSON) straight from a database cursor, so memory use does not grow with the number of notes. When fullHistory is true, archived notes follow from a second cursor")
+    @ApiResponses(value = {@ApiResponse(responseCode = "200", description = "Notes streamed")})
+    @GetMapping(value = "/stream", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public ResponseEntity<StreamingResponseBody> streamAllNotes(
+            @RequestParam(defaultValue = "false") boolean fullHistory) {
+        StreamingResponseBody body = output -> writeAllNotes(output, fullHistory);
+        return ResponseEntity.ok().contentType(MediaType.APPLICATION_NDJSON).body(body);
+    }
+
+    @Operation(
+            summary = "Search the reports of notes, most relevant first",
+            description =
+                    "Full-text search through the text index: French stemming, case and diacritics ignored. Compressed reports are matched through their distinct words. Archived notes are not searched: partial is true when some exist")
+    @ApiResponses(
+            value = {
+                @ApiResponse(responseCode = "200", description = "Page of matching notes returned"),
+                @ApiResponse(responseCode = "400", description = "Blank query or negative page")
+            })
+    @GetMapping("/search")
+    public NoteSearchResponseDto searchNotes(
+            @RequestParam String q,
+            @RequestParam(required = false) Long patientId,
+            @RequestParam(defaultValue = "0") int page,
+            @RequestParam(defaultValue = "10") int size) {
+        return NoteSearchResponseDto.from(noteService.searchReports(q, patientId, page, size));
     }
 
     @Operation(summary = "Retrieve a note by ID")
@@ -56,14 +110,82 @@ public class NoteController {
         return NoteResponseDto.from(noteService.findById(id));
     }
 
-    @Operation(summary = "Retrieve all notes for a patient")
+    @Operation(
+            summary = "Retrieve all notes for a patient",
+            description =
+                    "Notes moved to the archive are only included when fullHistory is true")
     @ApiResponses(
             value = {
                 @ApiResponse(responseCode = "200", description = "List of patient notes returned")
             })
     @GetMapping("/patient/{patientId}")
-    public List<NoteResponseDto> getNotesByPatientId(@PathVariable Long patientId) {
-        return noteService.findByPatientId(patientId).stream().map(NoteResponseDto::from).toList();
+    public List<NoteResponseDto> getNotesByPatientId(
+            @PathVariable Long patientId,
+            @RequestParam(defaultValue = "false") boolean fullHistory) {
+        return noteService.findByPatientId(patientId, fullHistory).stream()
+                .map(NoteResponseDto::from)
+                .toList();
+    }
+
+    @Operation(
+            summary = "Retrieve one page of the notes of a patient, most recent first",
+            description =
+                    "Keyset pagination: pass the nextCursor of the previous page as cursor to get the next page")
+    @ApiResponses(
+            value = {
+                @ApiResponse(responseCode = "200", description = "Page of patient notes returned"),
+                @ApiResponse(responseCode = "400", description = "Invalid cursor")
+            })
+    @GetMapping("/patient/{patientId}/page")
+    public NotePageResponseDto getNotePageByPatientId(
+            @PathVariable Long patientId,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "10") int size) {
+        return NotePageResponseDto.from(noteService.findPageByPatientId(patientId, cursor, size));
+    }
+
+    @Operation(
+            summary = "Retrieve all notes for a list of patients",
+            description =
+                    "Notes moved to the archive are only included when fullHistory is true")
+    @ApiResponses(
+            value = {
+                @ApiResponse(responseCode = "200", description = "List of patients notes returned")
+            })
+    @PostMapping("/by-patient-ids")
+    public List<NoteResponseDto> getNotesByPatientIds(
+            @RequestBody List<Long> patientIds,
+            @RequestParam(defaultValue = "false") boolean fullHistory) {
+        return noteService.findByPatientIds(patientIds, fullHistory).stream()
+                .map(NoteResponseDto::from)
+                .toList();
+    }
+
+    @Operation(
+            summary = "Retrieve the trigger terms of a patient from the masks stored on its notes")
+    @ApiResponses(
+            value = {
+                @ApiResponse(responseCode = "200", description = "Combined trigger mask returned")
+            })
+    @GetMapping("/patient/{patientId}/triggers")
+    public PatientTriggersResponseDto getPatientTriggers(@PathVariable Long patientId) {
+        return PatientTriggersResponseDto.from(noteService.findPatientTriggers(patientId));
+    }
+
+    @Operation(
+            summary = "Find the trigger terms appearing in the notes of a patient",
+            description =
+                    "Match a trigger vocabulary against the notes of a patient next to the data and return only the matched terms")
+    @ApiResponses(
+            value = {
+                @ApiResponse(responseCode = "200", description = "Matched terms returned"),
+                @ApiResponse(responseCode = "400", description = "Invalid vocabulary")
+            })
+    @PostMapping("/patient/{patientId}/triggers")
+    public TriggerMatchResponseDto getMatchedTriggerTerms(
+            @PathVariable Long patientId, @RequestBody List<String> terms) {
+        return new TriggerMatchResponseDto(
+                patientId, noteService.findMatchedTriggerTerms(patientId, terms));
     }
 
     @Operation(summary = "Create a new note")
@@ -81,17 +203,51 @@ public class NoteController {
                 .body(response);
     }
 
+    @Operation(
+            summary = "Create many notes at once",
+            description =
+                    "Read a JSON array or NDJSON stream of notes one at a time and store them in chunks of unordered bulk inserts, reporting the ID created for every note or why it was rejected")
+    @ApiResponses(
+            value = {
+                @ApiResponse(
+                        responseCode = "200",
+                        description = "Outcome of every note returned, in request order"),
+                @ApiResponse(
+                        responseCode = "400",
+                        description =
+                                "Malformed note; the notes before it are stored and returned along with the position of the malformed one")
+            })
+    @PostMapping(
+            value = "/bulk",
+            consumes = {MediaType.APPLICATION_JSON_VALUE, MediaType.APPLICATION_NDJSON_VALUE})
+    public ResponseEntity<BulkCreateResponseDto> createNotes(InputStream body) {
+        // A root-level array is read element by element, like a sequence of NDJSON lines
+        try (MappingIterator<NoteRequestDto> requests =
+                jsonMapper.readerFor(NoteRequestDto.class).readValues(body)) {
+            BulkCreateResult result = noteService.createAll(malformedAsInvalid(requests));
+            HttpStatus status =
+                    result.parseError() == null ? HttpStatus.OK : HttpStatus.BAD_REQUEST;
+            return ResponseEntity.status(status).body(BulkCreateResponseDto.from(result));
+        } catch (JacksonException e) {
+            throw invalidBulkRequest(e);
+        }
+    }
+
     @Operation(summary = "Update a note report")
     @ApiResponses(
             value = {
                 @ApiResponse(responseCode = "200", description = "Note updated successfully"),
                 @ApiResponse(responseCode = "400", description = "Invalid request body"),
-                @ApiResponse(responseCode = "404", description = "Note not found")
+                @ApiResponse(responseCode = "404", description = "Note not found"),
+                @ApiResponse(
+                        responseCode = "409",
+                        description = "Note modified since the version it was edited from")
             })
     @PutMapping("/{id}")
     public NoteResponseDto updateNoteReport(
             @PathVariable String id, @RequestBody @Valid UpdateReportRequestDto updateRequest) {
-        Note updatedNote = noteService.updateReport(id, updateRequest.report());
+        Note updatedNote =
+                noteService.updateReport(id, updateRequest.report(), updateRequest.version());
         return NoteResponseDto.from(updatedNote);
     }
 
@@ -106,4 +262,43 @@ public class NoteController {
         noteService.delete(id);
         return ResponseEntity.noContent().build();
     }
+
+    // The service stops at a malformed note and still reports the notes stored before it
+    private static Iterator<NoteRequestDto> malformedAsInvalid(
+            MappingIterator<NoteRequestDto> requests) {
+        return new Iterator<>() {
+            @Override
+            public boolean hasNext() {
+                try {
+                    return requests.hasNextValue();
+                } catch (JacksonException e) {
+                    throw invalidBulkRequest(e);
+                }
+            }
+
+            @Override
+            public NoteRequestDto next() {
+                try {
+                    return requests.nextValue();
+                } catch (JacksonException e) {
+                    throw invalidBulkRequest(e);
+                }
+            }
+        };
+    }
+
+    private static InvalidBulkRequestException invalidBulkRequest(JacksonException e) {
+        return new InvalidBulkRequestException(
+                "Malformed note in bulk request: " + e.getOriginalMessage(), e);
+    }
+
+    private void writeAllNotes(OutputStream output, boolean fullHistory) throws IOException {
+        try (Stream<Note> notes = noteService.streamAll(fullHistory)) {
+            for (Note note : (Iterable<Note>) notes::iterator) {
+                output.write(jsonMapper.writeValueAsBytes(NoteResponseDto.from(note)));
+                output.write('\n');
+            }
+        }
+        output.flush();
+    }
 }
@@ -0,0 +1,44 @@
+package com.openclassrooms.mediscreen.note.controller;
+
+import java.util.List;
+
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import com.openclassrooms.mediscreen.note.controller.dto.NoteEventResponseDto;
+import com.openclassrooms.mediscreen.note.service.NoteEventService;
+
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.responses.ApiResponse;
+import io.swagger.v3.oas.annotations.responses.ApiResponses;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import lombok.RequiredArgsConstructor;
+
+@RestController
+@RequestMapping("/api/v1/notes/events")
+@RequiredArgsConstructor
+@Tag(name = "Note events", description = "Outbox of note changes for downstream services")
+public class NoteEventController {
+
+    private final NoteEventService noteEventService;
+
+    @Operation(
+            summary = "Retrieve the note changes recorded after a given event",
+            description =
+                    "Tail the outbox: pass the ID of the last event read as afterId to get the next events, oldest first")
+    @ApiResponses(
+            value = {
+                @ApiResponse(responseCode = "200", description = "List of note events returned"),
+                @ApiResponse(responseCode = "400", description = "Invalid event ID")
+            })
+    @GetMapping
+    public List<NoteEventResponseDto> getEventsAfter(
+            @RequestParam(required = false) String afterId,
+            @RequestParam(defaultValue = "100") int size) {
+        return noteEventService.findAfter(afterId, size).stream()
+                .map(NoteEventResponseDto::from)
+                .toList();
+    }
+}
@@ -0,0 +1,21 @@
+package com.openclassrooms.mediscreen.note.controller.dto;
+
+import java.util.List;
+
+import com.openclassrooms.mediscreen.note.model.BulkCreateResult;
+import com.openclassrooms.mediscreen.note.model.BulkItemResult;
+
+public record BulkCreateResponseDto(
+        int createdCount,
+        int failedCount,
+        List<BulkItemResult> items,
+        BulkItemResult parseError) {
+
+    public static BulkCreateResponseDto from(BulkCreateResult result) {
+        return new BulkCreateResponseDto(
+                result.createdCount(),
+                result.items().size() - result.createdCount(),
+                result.items(),
+                result.parseError());
+    }
+}
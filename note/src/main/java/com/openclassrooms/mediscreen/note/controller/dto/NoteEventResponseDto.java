@@ -0,0 +1,24 @@
+package com.openclassrooms.mediscreen.note.controller.dto;
+
+import java.time.LocalDateTime;
+
+import com.openclassrooms.mediscreen.note.model.NoteEvent;
+
+public record NoteEventResponseDto(
+        String id,
+        NoteEvent.Type type,
+        String noteId,
+        Long patientId,
+        Long version,
+        LocalDateTime occurredAt) {
+
+    public static NoteEventResponseDto from(NoteEvent event) {
+        return new NoteEventResponseDto(
+                event.id(),
+                event.type(),
+                event.noteId(),
+                event.patientId(),
+                event.version(),
+                event.occurredAt());
+    }
+}
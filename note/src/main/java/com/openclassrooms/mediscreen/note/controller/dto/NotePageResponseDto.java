@@ -0,0 +1,13 @@
+package com.openclassrooms.mediscreen.note.controller.dto;
+
+import java.util.List;
+
+import com.openclassrooms.mediscreen.note.model.NotePage;
+
+public record NotePageResponseDto(List<NoteResponseDto> notes, String nextCursor) {
+
+    public static NotePageResponseDto from(NotePage page) {
+        return new NotePageResponseDto(
+                page.notes().stream().map(NoteResponseDto::from).toList(), page.nextCursor());
+    }
+}
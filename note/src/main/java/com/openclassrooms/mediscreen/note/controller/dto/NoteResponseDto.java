@@ -5,7 +5,12 @@ import java.time.LocalDateTime;
 import com.openclassrooms.mediscreen.note.model.Note;
 
 public record NoteResponseDto(
-        String id, String practitionerName, Long patientId, String report, LocalDateTime created) {
+        String id,
+        String practitionerName,
+        Long patientId,
+        String report,
+        LocalDateTime created,
+        Long version) {
 
     public static NoteResponseDto from(Note note) {
         return new NoteResponseDto(
@@ -13,6 +18,7 @@ public record NoteResponseDto(
                 note.getPractitionerName(),
                 note.getPatientId(),
                 note.getReport(),
-                note.getCreated());
+                note.getCreated(),
+                note.getVersion());
     }
 }
@@ -0,0 +1,17 @@
+package com.openclassrooms.mediscreen.note.controller.dto;
+
+import java.util.List;
+
+import com.openclassrooms.mediscreen.note.model.NoteSearchPage;
+
+public record NoteSearchResponseDto(
+        List<NoteResponseDto> notes, int page, boolean hasNext, boolean partial) {
+
+    public static NoteSearchResponseDto from(NoteSearchPage page) {
+        return new NoteSearchResponseDto(
+                page.notes().stream().map(NoteResponseDto::from).toList(),
+                page.page(),
+                page.hasNext(),
+                page.partial());
+    }
+}
@@ -0,0 +1,17 @@
+package com.openclassrooms.mediscreen.note.controller.dto;
+
+import java.util.List;
+
+import com.openclassrooms.mediscreen.note.model.PatientTriggers;
+
+public record PatientTriggersResponseDto(
+        Long patientId, String vocabularyVersion, long triggerMask, List<String> matchedTerms) {
+
+    public static PatientTriggersResponseDto from(PatientTriggers triggers) {
+        return new PatientTriggersResponseDto(
+                triggers.patientId(),
+                triggers.vocabularyVersion(),
+                triggers.triggerMask(),
+                triggers.matchedTerms());
+    }
+}
@@ -0,0 +1,5 @@
+package com.openclassrooms.mediscreen.note.controller.dto;
+
+import java.util.List;
+
+public record TriggerMatchResponseDto(Long patientId, List<String> matchedTerms) {}
@@ -2,4 +2,12 @@ package com.openclassrooms.mediscreen.note.controller.dto;
 
 import jakarta.validation.constraints.NotBlank;
 
-public record UpdateReportRequestDto(@NotBlank(message = "Report is required") String report) {}
+/**
+ * New report of a note.
+ *
+ * @param report the new report content
+ * @param version the version of the note the report was edited from, or {@code null} to
+ *     overwrite the report whatever its current version
+ */
+public record UpdateReportRequestDto(
+        @NotBlank(message = "Report is required") String report, Long version) {}
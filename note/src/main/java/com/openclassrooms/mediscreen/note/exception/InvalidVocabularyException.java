@@ -0,0 +1,12 @@
+package com.openclassrooms.mediscreen.note.exception;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.ResponseStatus;
+
+@ResponseStatus(HttpStatus.BAD_REQUEST)
+public class InvalidVocabularyException extends RuntimeException {
+
+    public InvalidVocabularyException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,12 @@
+package com.openclassrooms.mediscreen.note.exception;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.ResponseStatus;
+
+@ResponseStatus(HttpStatus.CONFLICT)
+public class NoteVersionConflictException extends RuntimeException {
+
+    public NoteVersionConflictException(String id, Long version) {
+        super("Note with id: " + id + " was modified since version: " + version);
+    }
+}
@@ -0,0 +1,70 @@
+package com.openclassrooms.mediscreen.note.job;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Limit;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import com.openclassrooms.mediscreen.note.model.Note;
+import com.openclassrooms.mediscreen.note.repository.NoteRepository;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.log4j.Log4j2;
+
+/**
+ * Moves the notes older than a configured age out of the hot collection into the archive.
+ *
+ * <p>Recent notes make up nearly every read, so keeping old notes out of the hot collection keeps
+ * it and its indexes small enough to stay in cache. Notes are moved oldest first, one batch per
+ * bulk write.
+ */
+@Component
+@Log4j2
+@RequiredArgsConstructor
+public class NoteArchiveJob {
+
+    private final NoteRepository noteRepository;
+
+    @Value("${note.archive.min-age:365d}")
+    private Duration minAge;
+
+    @Value("${note.archive.batch-size:1000}")
+    private int batchSize;
+
+    @Scheduled(cron = "${note.archive.cron:-}")
+    public void scheduledRun() {
+        run();
+    }
+
+    /**
+     * Archives every note older than the configured age.
+     *
+     * @return the number of notes moved to the archive
+     */
+    public long run() {
+        LocalDateTime cutoff = LocalDateTime.now().minus(minAge);
+        log.info("Archiving notes created before {}", cutoff);
+        noteRepository.prepareArchive();
+        long archived = 0;
+        while (true) {
+            List<Note> batch =
+                    noteRepository.findNoteByCreatedBeforeOrderByCreatedAsc(
+                            cutoff, Limit.of(batchSize));
+            if (batch.isEmpty()) {
+                break;
+            }
+            long removed = noteRepository.archive(batch);
+            archived += removed;
+            // Notes updated meanwhile stay hot; they are archived again on the next run
+            if (batch.size() < batchSize || removed == 0) {
+                break;
+            }
+        }
+        log.info("Archived {} notes", archived);
+        return archived;
+    }
+}
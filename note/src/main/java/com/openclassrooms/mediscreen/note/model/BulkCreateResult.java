@@ -0,0 +1,15 @@
+package com.openclassrooms.mediscreen.note.model;
+
+import java.util.List;
+
+/**
+ * Outcome of a bulk request. A request whose input could not be read to the end is stopped at
+ * the malformed note, but the notes read before it are stored and reported all the same.
+ *
+ * @param createdCount the number of notes stored
+ * @param items the outcome of every note read, in request order
+ * @param parseError the note that could not be read, or {@code null} if the request was read to
+ *     the end
+ */
+public record BulkCreateResult(
+        int createdCount, List<BulkItemResult> items, BulkItemResult parseError) {}
@@ -0,0 +1,23 @@
+package com.openclassrooms.mediscreen.note.model;
+
+/**
+ * Outcome of one note of a bulk request.
+ *
+ * @param index the position of the note in the request, starting at 0
+ * @param id the ID of the stored note, or {@code null} if it was rejected
+ * @param error why the note was rejected, or {@code null} if it was stored
+ */
+public record BulkItemResult(int index, String id, String error) {
+
+    public static BulkItemResult created(int index, String id) {
+        return new BulkItemResult(index, id, null);
+    }
+
+    public static BulkItemResult failed(int index, String error) {
+        return new BulkItemResult(index, null, error);
+    }
+
+    public boolean succeeded() {
+        return error == null;
+    }
+}
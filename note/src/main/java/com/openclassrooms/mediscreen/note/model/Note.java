@@ -1,9 +1,16 @@
 package com.openclassrooms.mediscreen.note.model;
 
 import java.time.LocalDateTime;
+import java.util.Arrays;
 import java.util.Objects;
 
 import org.springframework.data.annotation.Id;
+import org.springframework.data.annotation.Transient;
+import org.springframework.data.annotation.Version;
+import org.springframework.data.mongodb.core.index.CompoundIndex;
+import org.springframework.data.mongodb.core.index.CompoundIndexes;
+import org.springframework.data.mongodb.core.index.Indexed;
+import org.springframework.data.mongodb.core.index.TextIndexed;
 import org.springframework.data.mongodb.core.mapping.Document;
 import org.springframework.data.mongodb.core.mapping.Field;
 
@@ -11,7 +18,13 @@ import io.swagger.v3.oas.annotations.media.Schema;
 import lombok.Data;
 
 @Data
-@Document
+// Text index language: French stemming and stop words for the report search
+@Document(language = "french")
+@CompoundIndexes({
+    @CompoundIndex(name = "patient_vocabulary", def = "{'patient_id': 1, 'vocabulary_version': 1}"),
+    // Serves the keyset pagination of the notes of a patient, most recent first
+    @CompoundIndex(name = "patient_created", def = "{'patient_id': 1, 'created': -1, '_id': -1}")
+})
 public class Note {
 
     @Id
@@ -24,8 +37,35 @@ public class Note {
     @Field(value = "patient_id")
     private Long patientId;
 
-    private String report;
-    private LocalDateTime created;
+    // Stored as is below the compression threshold, and left null above it
+    @TextIndexed private String report;
+
+    @Field("report_compressed")
+    private byte[] compressedReport;
+
+    @Field("report_codec")
+    private ReportCodec reportCodec;
+
+    // Distinct words of a compressed report, so that the text index still finds it
+    @TextIndexed
+    @Field("report_terms")
+    private String reportTerms;
+
+    // Decompressed on first read, so notes whose report is never read never pay for it
+    @Transient private String decompressedReport;
+
+    // Finds the notes old enough to be archived
+    @Indexed private LocalDateTime created;
+
+    // Trigger terms found in the report, computed on every write for the given vocabulary version
+    @Field("trigger_mask")
+    private Long triggerMask;
+
+    @Field("vocabulary_version")
+    private String vocabularyVersion;
+
+    // Incremented by every update, so that an update can require the version its caller read
+    @Version private Long version;
 
     public Note(String practitionerName, Long patientId, String report, LocalDateTime created) {
         this.practitionerName = practitionerName;
@@ -34,6 +74,39 @@ public class Note {
         this.created = created;
     }
 
+    public String getReport() {
+        if (report != null || compressedReport == null) {
+            return report;
+        }
+        if (decompressedReport == null) {
+            decompressedReport = reportCodec.decode(compressedReport);
+        }
+        return decompressedReport;
+    }
+
+    public void setReport(String report) {
+        this.report = report;
+        this.compressedReport = null;
+        this.reportCodec = null;
+        this.reportTerms = null;
+        this.decompressedReport = null;
+    }
+
+    /**
+     * Replaces the stored report with its compressed form, keeping the text at hand for reads.
+     *
+     * @param codec the codec the report was compressed with
+     * @param compressedReport the compressed report
+     * @param reportTerms the distinct words of the report, indexed in its place
+     */
+    public void compressReport(ReportCodec codec, byte[] compressedReport, String reportTerms) {
+        this.decompressedReport = getReport();
+        this.report = null;
+        this.compressedReport = compressedReport;
+        this.reportCodec = codec;
+        this.reportTerms = reportTerms;
+    }
+
     @Override
     public boolean equals(Object o) {
         if (this == o) return true;
@@ -43,11 +116,28 @@ public class Note {
                 && Objects.equals(practitionerName, note.practitionerName)
                 && Objects.equals(patientId, note.patientId)
                 && Objects.equals(report, note.report)
-                && Objects.equals(created, note.created);
+                && Arrays.equals(compressedReport, note.compressedReport)
+                && reportCodec == note.reportCodec
+                && Objects.equals(reportTerms, note.reportTerms)
+                && Objects.equals(created, note.created)
+                && Objects.equals(triggerMask, note.triggerMask)
+                && Objects.equals(vocabularyVersion, note.vocabularyVersion)
+                && Objects.equals(version, note.version);
     }
 
     @Override
     public int hashCode() {
-        return Objects.hash(id, practitionerName, patientId, report, created);
+        return Objects.hash(
+                id,
+                practitionerName,
+                patientId,
+                report,
+                Arrays.hashCode(compressedReport),
+                reportCodec,
+                reportTerms,
+                created,
+                triggerMask,
+                vocabularyVersion,
+                version);
     }
 }
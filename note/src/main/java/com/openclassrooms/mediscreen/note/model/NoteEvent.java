@@ -0,0 +1,48 @@
+package com.openclassrooms.mediscreen.note.model;
+
+import java.time.LocalDateTime;
+
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.index.Indexed;
+import org.springframework.data.mongodb.core.mapping.Document;
+import org.springframework.data.mongodb.core.mapping.Field;
+
+/**
+ * Change of a note, recorded in the {@code note_events} outbox collection. Event IDs are
+ * ObjectIds, which increase in the order events are created, so readers tail the outbox by asking
+ * for the events after an ID they have seen. An event may still become visible after events with
+ * greater IDs, so readers ask again for the events of a short window before the last one seen.
+ *
+ * @param id the event ID
+ * @param type the kind of change
+ * @param noteId the ID of the changed note
+ * @param patientId the patient the note belongs to
+ * @param version the version of the note after the change, or before it for a deletion
+ * @param occurredAt when the change was recorded; events expire a week later
+ */
+@Document("note_events")
+public record NoteEvent(
+        @Id String id,
+        Type type,
+        @Field("note_id") String noteId,
+        @Field("patient_id") Long patientId,
+        Long version,
+        @Field("occurred_at") @Indexed(name = "occurred_at_ttl", expireAfter = "7d")
+                LocalDateTime occurredAt) {
+
+    public enum Type {
+        CREATED,
+        UPDATED,
+        DELETED
+    }
+
+    public static NoteEvent of(Type type, Note note) {
+        return new NoteEvent(
+                null,
+                type,
+                note.getId(),
+                note.getPatientId(),
+                note.getVersion(),
+                LocalDateTime.now());
+    }
+}
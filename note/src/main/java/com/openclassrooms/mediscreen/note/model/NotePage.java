@@ -0,0 +1,11 @@
+package com.openclassrooms.mediscreen.note.model;
+
+import java.util.List;
+
+/**
+ * One page of the notes of a patient, most recent first.
+ *
+ * @param notes the notes of the page
+ * @param nextCursor opaque cursor to the next page, or {@code null} on the last page
+ */
+public record NotePage(List<Note> notes, String nextCursor) {}
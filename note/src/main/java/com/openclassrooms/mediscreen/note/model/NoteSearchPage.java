@@ -0,0 +1,13 @@
+package com.openclassrooms.mediscreen.note.model;
+
+import java.util.List;
+
+/**
+ * One page of the notes matching a report search, most relevant first.
+ *
+ * @param notes the notes of the page
+ * @param page the zero-based page number
+ * @param hasNext whether more matching notes follow this page
+ * @param partial whether archived notes, which are not searched, may hold more matches
+ */
+public record NoteSearchPage(List<Note> notes, int page, boolean hasNext, boolean partial) {}
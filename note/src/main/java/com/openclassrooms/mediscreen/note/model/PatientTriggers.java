@@ -0,0 +1,14 @@
+package com.openclassrooms.mediscreen.note.model;
+
+import java.util.List;
+
+/**
+ * Trigger terms found across all the notes of a patient.
+ *
+ * @param patientId the patient ID
+ * @param vocabularyVersion the vocabulary version the mask refers to
+ * @param triggerMask bitmask of the ordinals of the matched terms
+ * @param matchedTerms the matched terms, in vocabulary order
+ */
+public record PatientTriggers(
+        Long patientId, String vocabularyVersion, long triggerMask, List<String> matchedTerms) {}
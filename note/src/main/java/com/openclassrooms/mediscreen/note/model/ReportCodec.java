@@ -0,0 +1,50 @@
+package com.openclassrooms.mediscreen.note.model;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.InflaterInputStream;
+
+/** Encoding of a compressed note report, stored next to it so that it can be decoded. */
+public enum ReportCodec {
+    DEFLATE {
+        @Override
+        public byte[] encode(byte[] text) {
+            ByteArrayOutputStream buffer = new ByteArrayOutputStream(text.length / 2);
+            try (DeflaterOutputStream out = new DeflaterOutputStream(buffer)) {
+                out.write(text);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            return buffer.toByteArray();
+        }
+
+        @Override
+        public String decode(byte[] data) {
+            try (InflaterInputStream in = new InflaterInputStream(new ByteArrayInputStream(data))) {
+                return new String(in.readAllBytes(), StandardCharsets.UTF_8);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+    };
+
+    /**
+     * Compresses a report.
+     *
+     * @param text the report, encoded in UTF-8
+     * @return the compressed report
+     */
+    public abstract byte[] encode(byte[] text);
+
+    /**
+     * Decompresses a report.
+     *
+     * @param data the compressed report
+     * @return the report
+     */
+    public abstract String decode(byte[] data);
+}
@@ -0,0 +1,12 @@
+package com.openclassrooms.mediscreen.note.model;
+
+import org.springframework.data.annotation.Id;
+
+/**
+ * Trigger masks of the notes of a patient, combined per vocabulary version.
+ *
+ * @param vocabularyVersion the vocabulary version, null for notes stored before masks existed
+ * @param triggerMask bitwise OR of the trigger masks of the notes, null if none has a mask
+ * @param noteCount the number of notes in the group
+ */
+public record TriggerMaskGroup(@Id String vocabularyVersion, Long triggerMask, int noteCount) {}
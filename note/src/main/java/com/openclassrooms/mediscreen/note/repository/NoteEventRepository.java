@@ -0,0 +1,17 @@
+package com.openclassrooms.mediscreen.note.repository;
+
+import java.util.List;
+
+import org.springframework.data.domain.Limit;
+import org.springframework.data.mongodb.repository.MongoRepository;
+import org.springframework.stereotype.Repository;
+
+import com.openclassrooms.mediscreen.note.model.NoteEvent;
+
+@Repository
+public interface NoteEventRepository extends MongoRepository<NoteEvent, String> {
+
+    List<NoteEvent> findByOrderByIdAsc(Limit limit);
+
+    List<NoteEvent> findByIdGreaterThanOrderByIdAsc(String afterId, Limit limit);
+}
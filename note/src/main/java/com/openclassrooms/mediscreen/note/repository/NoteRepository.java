@@ -1,14 +1,58 @@
 package com.openclassrooms.mediscreen.note.repository;
 
+import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
+import java.util.Optional;
+import java.util.stream.Stream;
 
+import org.bson.types.ObjectId;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.mongodb.repository.Aggregation;
 import org.springframework.data.mongodb.repository.MongoRepository;
+import org.springframework.data.mongodb.repository.Query;
 import org.springframework.stereotype.Repository;
 
 import com.openclassrooms.mediscreen.note.model.Note;
+import com.openclassrooms.mediscreen.note.model.TriggerMaskGroup;
 
 @Repository
-public interface NoteRepository extends MongoRepository<Note, String> {
+public interface NoteRepository extends MongoRepository<Note, String>, NoteRepositoryCustom {
 
     List<Note> findNoteByPatientId(Long patientId);
+
+    @Query(value = "{ 'patient_id': ?0 }", sort = "{ 'created': -1, '_id': -1 }")
+    List<Note> findFirstPageByPatientId(Long patientId, Limit limit);
+
+    @Query(
+            value =
+                    "{ 'patient_id': ?0, $or: [ { 'created': { $lt: ?1 } },"
+                            + " { 'created': ?1, '_id': { $lt: ?2 } } ] }",
+            sort = "{ 'created': -1, '_id': -1 }")
+    List<Note> findPageByPatientIdBefore(
+            Long patientId, LocalDateTime created, ObjectId id, Limit limit);
+
+    List<Note> findNoteByCreatedBeforeOrderByCreatedAsc(LocalDateTime created, Limit limit);
+
+    List<Note> findNoteByPatientIdIn(Collection<Long> patientIds);
+
+    @Query(
+            value = "{ 'patient_id': ?0 }",
+            fields = "{ 'report': 1, 'report_compressed': 1, 'report_codec': 1 }")
+    Stream<Note> streamReportsByPatientId(Long patientId);
+
+    // $bitOr as a $group accumulator requires MongoDB 6.3 or later
+    @Aggregation(
+            pipeline = {
+                "{ $match: { 'patient_id': ?0 } }",
+                "{ $unionWith: { coll: 'note_archive',"
+                        + " pipeline: [ { $match: { 'patient_id': ?0 } } ] } }",
+                "{ $group: { _id: '$vocabulary_version', triggerMask: { $bitOr: '$trigger_mask' },"
+                        + " noteCount: { $sum: 1 } } }"
+            })
+    List<TriggerMaskGroup> aggregateTriggerMasksByPatientId(Long patientId);
+
+    List<Note> findNoteByPatientIdAndVocabularyVersionNot(Long patientId, String vocabularyVersion);
+
+    Optional<Note> deleteNoteById(String id);
 }
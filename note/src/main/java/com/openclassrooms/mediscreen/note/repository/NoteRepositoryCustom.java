@@ -0,0 +1,160 @@
+package com.openclassrooms.mediscreen.note.repository;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.stream.Stream;
+
+import com.openclassrooms.mediscreen.note.model.Note;
+
+/** Note queries that need more control over the driver cursor than derived queries give. */
+public interface NoteRepositoryCustom {
+
+    /**
+     * Streams every note from a single driver cursor, fetching them from the server one batch at
+     * a time. The stream holds the cursor open and must be closed.
+     *
+     * @return the notes, in natural order
+     */
+    Stream<Note> streamAll();
+
+    /**
+     * Inserts notes in a single unordered bulk write: the server applies every insert it can
+     * instead of stopping at the first failure, and may apply them in any order.
+     *
+     * @param notes the notes to insert, with their IDs already assigned
+     * @return the error of every rejected note, by its position in {@code notes}
+     */
+    Map<Integer, String> insertUnordered(List<Note> notes);
+
+    /**
+     * Replaces the report of a note and its trigger fields, and increments its version, in a
+     * single atomic update.
+     *
+     * @param id the note ID
+     * @param expectedVersion the version the note must still have, or {@code null} for any version
+     * @param changes the new report, in plain or compressed form, and its trigger fields
+     * @return the updated note, or empty if no note has this ID and version
+     */
+    Optional<Note> updateReport(String id, Long expectedVersion, Note changes);
+
+    /**
+     * Replaces the report of an archived note, as {@link #updateReport} does for a hot note.
+     *
+     * @param id the note ID
+     * @param expectedVersion the version the note must still have, or {@code null} for any version
+     * @param changes the new report, in plain or compressed form, and its trigger fields
+     * @return the updated note, or empty if no archived note has this ID and version
+     */
+    Optional<Note> updateArchivedReport(String id, Long expectedVersion, Note changes);
+
+    /**
+     * Searches the reports of notes through the text index, most relevant first. Stemming and stop
+     * words follow the French language, and matching ignores case and diacritics. Compressed
+     * reports are matched through their distinct words; archived notes are not searched.
+     *
+     * @param text the words to search for, any of which may match
+     * @param patientId the patient whose notes are searched, or {@code null} for every patient
+     * @param skip the number of matching notes to skip
+     * @param limit the maximum number of notes to return
+     * @return the matching notes, by decreasing relevance
+     */
+    List<Note> searchReports(String text, Long patientId, long skip, int limit);
+
+    /**
+     * Tells whether the archive holds notes, which report searches do not cover.
+     *
+     * @param patientId the patient whose notes are looked for, or {@code null} for every patient
+     * @return {@code true} if at least one such note is archived
+     */
+    boolean hasArchivedNotes(Long patientId);
+
+    /**
+     * Creates the archive collection if it does not exist yet, with a stronger block compression
+     * than the hot collection, and the index its reads by patient rely on.
+     */
+    void prepareArchive();
+
+    /**
+     * Moves notes from the hot collection to the archive. Notes are first written to the archive
+     * in one unordered bulk write, replacing any copy left by an interrupted run, then removed
+     * from the hot collection only if they still have the version that was archived. The copies of
+     * notes deleted or updated since they were read are then removed from the archive, so a note
+     * lives in a single collection once the move is over.
+     *
+     * @param notes the notes to archive, as read from the hot collection
+     * @return the number of notes removed from the hot collection
+     */
+    long archive(List<Note> notes);
+
+    /**
+     * Tells whether a note with this ID is archived.
+     *
+     * @param id the note ID
+     * @return {@code true} if the note is archived
+     */
+    boolean existsArchivedById(String id);
+
+    /**
+     * Deletes an archived note.
+     *
+     * @param id the note ID
+     * @return the deleted note, or empty if no note with this ID is archived
+     */
+    Optional<Note> deleteArchivedById(String id);
+
+    /**
+     * Retrieves an archived note.
+     *
+     * @param id the note ID
+     * @return the archived note, or empty if no note with this ID is archived
+     */
+    Optional<Note> findArchivedById(String id);
+
+    /**
+     * Streams every archived note from a single driver cursor, as {@link #streamAll} does for hot
+     * notes. Notes also found in the hot collection are left out; that is checked one batch of
+     * archived notes at a time, so memory use does not grow with the archive. The stream holds the
+     * cursor open and must be closed.
+     *
+     * @return the archived notes that are not also hot, in natural order
+     */
+    Stream<Note> streamAllArchived();
+
+    /**
+     * Retrieves the archived notes of a set of patients.
+     *
+     * @param patientIds the patient IDs
+     * @return the archived notes of these patients
+     */
+    List<Note> findArchivedByPatientIdIn(Collection<Long> patientIds);
+
+    /**
+     * Retrieves the archived notes of a patient.
+     *
+     * @param patientId the patient ID
+     * @return the archived notes of the patient
+     */
+    List<Note> findArchivedByPatientId(Long patientId);
+
+    /**
+     * Retrieves the archived notes of a patient whose trigger mask was not computed with a given
+     * vocabulary version, including notes stored before masks existed.
+     *
+     * @param patientId the patient ID
+     * @param vocabularyVersion the vocabulary version the masks should have
+     * @return the archived notes of the patient with an outdated or missing trigger mask
+     */
+    List<Note> findArchivedByPatientIdAndVocabularyVersionNot(
+            Long patientId, String vocabularyVersion);
+
+    /**
+     * Streams only the report of the archived notes of a patient. The stream holds a cursor open
+     * and must be closed.
+     *
+     * @param patientId the patient ID
+     * @return the archived notes of the patient, holding their report only
+     */
+    Stream<Note> streamArchivedReportsByPatientId(Long patientId);
+}
@@ -0,0 +1,275 @@
+package com.openclassrooms.mediscreen.note.repository;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.stream.Collectors;
+import java.util.stream.Gatherers;
+import java.util.stream.Stream;
+
+import org.bson.Document;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.BulkOperationException;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.BulkOperations.BulkMode;
+import org.springframework.data.mongodb.core.FindAndModifyOptions;
+import org.springframework.data.mongodb.core.FindAndReplaceOptions;
+import org.springframework.data.mongodb.core.MongoOperations;
+import org.springframework.data.mongodb.core.index.Index;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.TextCriteria;
+import org.springframework.data.mongodb.core.query.TextQuery;
+import org.springframework.data.mongodb.core.query.Update;
+
+import com.mongodb.bulk.BulkWriteError;
+import com.openclassrooms.mediscreen.note.model.Note;
+
+class NoteRepositoryImpl implements NoteRepositoryCustom {
+
+    // Also named in the trigger mask aggregation of NoteRepository
+    static final String ARCHIVE_COLLECTION = "note_archive";
+
+    private final MongoOperations mongoOperations;
+    private final int batchSize;
+
+    NoteRepositoryImpl(
+            MongoOperations mongoOperations,
+            @Value("${note.stream.batch-size:500}") int batchSize) {
+        this.mongoOperations = mongoOperations;
+        this.batchSize = batchSize;
+    }
+
+    @Override
+    public Stream<Note> streamAll() {
+        return mongoOperations.stream(new Query().cursorBatchSize(batchSize), Note.class);
+    }
+
+    @Override
+    public Map<Integer, String> insertUnordered(List<Note> notes) {
+        try {
+            mongoOperations.bulkOps(BulkMode.UNORDERED, Note.class).insert(notes).execute();
+            return Map.of();
+        } catch (BulkOperationException e) {
+            return e.getErrors().stream()
+                    .collect(
+                            Collectors.toMap(BulkWriteError::getIndex, BulkWriteError::getMessage));
+        }
+    }
+
+    @Override
+    public Optional<Note> updateReport(String id, Long expectedVersion, Note changes) {
+        return updateReport(
+                id, expectedVersion, changes, mongoOperations.getCollectionName(Note.class));
+    }
+
+    @Override
+    public Optional<Note> updateArchivedReport(String id, Long expectedVersion, Note changes) {
+        return updateReport(id, expectedVersion, changes, ARCHIVE_COLLECTION);
+    }
+
+    private Optional<Note> updateReport(
+            String id, Long expectedVersion, Note changes, String collection) {
+        Criteria criteria = Criteria.where("id").is(id);
+        if (expectedVersion != null) {
+            criteria = criteria.and("version").is(expectedVersion);
+        }
+        Update update =
+                new Update()
+                        .set("triggerMask", changes.getTriggerMask())
+                        .set("vocabularyVersion", changes.getVocabularyVersion())
+                        .inc("version", 1);
+        // Exactly one of the plain and compressed forms is stored
+        if (changes.getCompressedReport() == null) {
+            update.set("report", changes.getReport())
+                    .unset("compressedReport")
+                    .unset("reportCodec")
+                    .unset("reportTerms");
+        } else {
+            update.unset("report")
+                    .set("compressedReport", changes.getCompressedReport())
+                    .set("reportCodec", changes.getReportCodec())
+                    .set("reportTerms", changes.getReportTerms());
+        }
+        return Optional.ofNullable(
+                mongoOperations.findAndModify(
+                        Query.query(criteria),
+                        update,
+                        FindAndModifyOptions.options().returnNew(true),
+                        Note.class,
+                        collection));
+    }
+
+    @Override
+    public List<Note> searchReports(String text, Long patientId, long skip, int limit) {
+        Query query =
+                TextQuery.queryText(TextCriteria.forDefaultLanguage().matching(text))
+                        .sortByScore()
+                        .skip(skip)
+                        .limit(limit);
+        if (patientId != null) {
+            query.addCriteria(Criteria.where("patientId").is(patientId));
+        }
+        return mongoOperations.find(query, Note.class);
+    }
+
+    @Override
+    public boolean hasArchivedNotes(Long patientId) {
+        Query query =
+                patientId == null
+                        ? new Query()
+                        : Query.query(Criteria.where("patientId").is(patientId));
+        return mongoOperations.exists(query, Note.class, ARCHIVE_COLLECTION);
+    }
+
+    @Override
+    public void prepareArchive() {
+        if (!mongoOperations.collectionExists(ARCHIVE_COLLECTION)) {
+            // Archived notes are written once and seldom read, so zstd's smaller blocks are worth
+            // the extra CPU over the default snappy
+            mongoOperations.executeCommand(
+                    new Document("create", ARCHIVE_COLLECTION)
+                            .append(
+                                    "storageEngine",
+                                    new Document(
+                                            "wiredTiger",
+                                            new Document(
+                                                    "configString", "block_compressor=zstd"))));
+        }
+        mongoOperations
+                .indexOps(ARCHIVE_COLLECTION)
+                .createIndex(
+                        new Index()
+                                .on("patient_id", Sort.Direction.ASC)
+                                .on("created", Sort.Direction.DESC)
+                                .named("patient_created"));
+        mongoOperations
+                .indexOps(ARCHIVE_COLLECTION)
+                .createIndex(
+                        new Index()
+                                .on("patient_id", Sort.Direction.ASC)
+                                .on("vocabulary_version", Sort.Direction.ASC)
+                                .named("patient_vocabulary"));
+    }
+
+    @Override
+    public long archive(List<Note> notes) {
+        BulkOperations archive =
+                mongoOperations.bulkOps(BulkMode.UNORDERED, Note.class, ARCHIVE_COLLECTION);
+        for (Note note : notes) {
+            archive.replaceOne(
+                    Query.query(Criteria.where("id").is(note.getId())),
+                    note,
+                    FindAndReplaceOptions.options().upsert());
+        }
+        archive.execute();
+        List<String> ids = notes.stream().map(Note::getId).toList();
+        // A note deleted since it was read must not come back through its copy
+        Set<String> hotBeforeRemoval = findHotIds(ids);
+        // A note updated since it was read keeps its newer version in the hot collection
+        List<Criteria> unchanged =
+                notes.stream()
+                        .map(
+                                note ->
+                                        Criteria.where("id")
+                                                .is(note.getId())
+                                                .and("version")
+                                                .is(note.getVersion()))
+                        .toList();
+        long removed =
+                mongoOperations
+                        .remove(Query.query(new Criteria().orOperator(unchanged)), Note.class)
+                        .getDeletedCount();
+        // Copies of notes deleted or kept hot are stale, so reads and updates never see them
+        Set<String> stillHot = findHotIds(ids);
+        List<String> stale =
+                ids.stream()
+                        .filter(id -> !hotBeforeRemoval.contains(id) || stillHot.contains(id))
+                        .toList();
+        if (!stale.isEmpty()) {
+            mongoOperations.remove(
+                    Query.query(Criteria.where("id").in(stale)), Note.class, ARCHIVE_COLLECTION);
+        }
+        return removed;
+    }
+
+    private Set<String> findHotIds(List<String> ids) {
+        Query query = Query.query(Criteria.where("id").in(ids));
+        query.fields().include("id");
+        return mongoOperations.find(query, Note.class).stream()
+                .map(Note::getId)
+                .collect(Collectors.toSet());
+    }
+
+    @Override
+    public boolean existsArchivedById(String id) {
+        return mongoOperations.exists(
+                Query.query(Criteria.where("id").is(id)), Note.class, ARCHIVE_COLLECTION);
+    }
+
+    @Override
+    public Optional<Note> deleteArchivedById(String id) {
+        return Optional.ofNullable(
+                mongoOperations.findAndRemove(
+                        Query.query(Criteria.where("id").is(id)), Note.class, ARCHIVE_COLLECTION));
+    }
+
+    @Override
+    public Optional<Note> findArchivedById(String id) {
+        return Optional.ofNullable(mongoOperations.findById(id, Note.class, ARCHIVE_COLLECTION));
+    }
+
+    @Override
+    public Stream<Note> streamAllArchived() {
+        // A run interrupted before its removal leaves a note in both collections; the hot copy wins
+        return mongoOperations
+                .stream(new Query().cursorBatchSize(batchSize), Note.class, ARCHIVE_COLLECTION)
+                .gather(Gatherers.windowFixed(batchSize))
+                .flatMap(
+                        batch -> {
+                            Set<String> hotIds =
+                                    findHotIds(batch.stream().map(Note::getId).toList());
+                            return batch.stream().filter(note -> !hotIds.contains(note.getId()));
+                        });
+    }
+
+    @Override
+    public List<Note> findArchivedByPatientIdIn(Collection<Long> patientIds) {
+        return mongoOperations.find(
+                Query.query(Criteria.where("patientId").in(patientIds)),
+                Note.class,
+                ARCHIVE_COLLECTION);
+    }
+
+    @Override
+    public List<Note> findArchivedByPatientId(Long patientId) {
+        return mongoOperations.find(
+                Query.query(Criteria.where("patientId").is(patientId)),
+                Note.class,
+                ARCHIVE_COLLECTION);
+    }
+
+    @Override
+    public List<Note> findArchivedByPatientIdAndVocabularyVersionNot(
+            Long patientId, String vocabularyVersion) {
+        // $ne also matches notes without any vocabulary version
+        return mongoOperations.find(
+                Query.query(
+                        Criteria.where("patientId")
+                                .is(patientId)
+                                .and("vocabularyVersion")
+                                .ne(vocabularyVersion)),
+                Note.class,
+                ARCHIVE_COLLECTION);
+    }
+
+    @Override
+    public Stream<Note> streamArchivedReportsByPatientId(Long patientId) {
+        Query query = Query.query(Criteria.where("patientId").is(patientId));
+        query.fields().include("report", "compressedReport", "reportCodec");
+        return mongoOperations.stream(query, Note.class, ARCHIVE_COLLECTION);
+    }
+}
@@ -0,0 +1,58 @@
+package com.openclassrooms.mediscreen.note.service;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.Base64;
+
+import org.bson.types.ObjectId;
+
+import com.openclassrooms.mediscreen.note.exception.InvalidCursorException;
+import com.openclassrooms.mediscreen.note.model.Note;
+
+/**
+ * Position of a note in the {@code (created desc, _id desc)} order of the notes of a patient. The
+ * ID breaks ties between notes created at the same instant, so no note is skipped or repeated
+ * across pages.
+ *
+ * @param created the creation date of the last note of the previous page
+ * @param id the ID of the last note of the previous page
+ */
+record NoteCursor(LocalDateTime created, ObjectId id) {
+
+    private static final char SEPARATOR = '|';
+
+    static NoteCursor of(Note note) {
+        return new NoteCursor(note.getCreated(), new ObjectId(note.getId()));
+    }
+
+    /** Encodes the cursor as an opaque URL-safe token. */
+    String encode() {
+        String raw = created.toString() + SEPARATOR + id.toHexString();
+        return Base64.getUrlEncoder()
+                .withoutPadding()
+                .encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Decodes a token returned by {@link #encode()}.
+     *
+     * @param token the token
+     * @return the cursor
+     * @throws InvalidCursorException if the token was not produced by {@link #encode()}
+     */
+    static NoteCursor decode(String token) {
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(token), StandardCharsets.UTF_8);
+            int separator = raw.indexOf(SEPARATOR);
+            if (separator < 0 || !ObjectId.isValid(raw.substring(separator + 1))) {
+                throw new InvalidCursorException(token);
+            }
+            return new NoteCursor(
+                    LocalDateTime.parse(raw.substring(0, separator)),
+                    new ObjectId(raw.substring(separator + 1)));
+        } catch (IllegalArgumentException | DateTimeParseException e) {
+            throw new InvalidCursorException(token);
+        }
+    }
+}
@@ -0,0 +1,77 @@
+package com.openclassrooms.mediscreen.note.service;
+
+import java.util.List;
+
+import org.bson.types.ObjectId;
+import org.springframework.data.domain.Limit;
+import org.springframework.stereotype.Service;
+
+import com.openclassrooms.mediscreen.note.exception.InvalidCursorException;
+import com.openclassrooms.mediscreen.note.model.Note;
+import com.openclassrooms.mediscreen.note.model.NoteEvent;
+import com.openclassrooms.mediscreen.note.repository.NoteEventRepository;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.log4j.Log4j2;
+
+/**
+ * Outbox of note changes. Every note write records an event right after it, and other services
+ * tail the outbox to keep their caches and derived indexes coherent without polling notes.
+ *
+ * <p>The MongoDB deployment is a standalone server, which has neither multi-document
+ * transactions nor change streams, so an event is written after its note rather than with it.
+ * Events carry the note version, so a reader can always tell whether it has seen a newer state.
+ */
+@Service
+@Log4j2
+@RequiredArgsConstructor
+public class NoteEventService {
+
+    static final int MAX_PAGE_SIZE = 1000;
+
+    private final NoteEventRepository noteEventRepository;
+
+    /**
+     * Records a change of a note.
+     *
+     * @param type the kind of change
+     * @param note the note, as stored after the change or before a deletion
+     */
+    public void record(NoteEvent.Type type, Note note) {
+        noteEventRepository.insert(NoteEvent.of(type, note));
+    }
+
+    /**
+     * Records the same kind of change for several notes in a single insert.
+     *
+     * @param type the kind of change
+     * @param notes the notes, as stored after the change
+     */
+    public void recordAll(NoteEvent.Type type, List<Note> notes) {
+        if (!notes.isEmpty()) {
+            noteEventRepository.insert(
+                    notes.stream().map(note -> NoteEvent.of(type, note)).toList());
+        }
+    }
+
+    /**
+     * Retrieves the events recorded after a given one, oldest first.
+     *
+     * @param afterId the ID of the last event already read, or {@code null} to read from the
+     *     oldest event kept
+     * @param size the maximum number of events to return, capped at {@value #MAX_PAGE_SIZE}
+     * @return the events
+     * @throws InvalidCursorException if {@code afterId} is not an event ID
+     */
+    public List<NoteEvent> findAfter(String afterId, int size) {
+        log.debug("Retrieving {} note events after: {}", size, afterId);
+        Limit limit = Limit.of(Math.clamp(size, 1, MAX_PAGE_SIZE));
+        if (afterId == null || afterId.isBlank()) {
+            return noteEventRepository.findByOrderByIdAsc(limit);
+        }
+        if (!ObjectId.isValid(afterId)) {
+            throw new InvalidCursorException(afterId);
+        }
+        return noteEventRepository.findByIdGreaterThanOrderByIdAsc(afterId, limit);
+    }
+}
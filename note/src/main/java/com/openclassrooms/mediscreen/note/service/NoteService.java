@@ -1,13 +1,47 @@
 package com.openclassrooms.mediscreen.note.service;
 
+import java.time.Duration;
 import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Optional;
+import java.util.Set;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
+import jakarta.validation.ConstraintViolation;
+import jakarta.validation.Validator;
+
+import org.bson.types.ObjectId;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Limit;
 import org.springframework.stereotype.Service;
 
+import com.openclassrooms.mediscreen.note.controller.dto.NoteRequestDto;
+import com.openclassrooms.mediscreen.note.exception.InvalidBulkRequestException;
+import com.openclassrooms.mediscreen.note.exception.InvalidCursorException;
+import com.openclassrooms.mediscreen.note.exception.InvalidSearchQueryException;
+import com.openclassrooms.mediscreen.note.exception.InvalidVocabularyException;
 import com.openclassrooms.mediscreen.note.exception.NoteNotFoundException;
+import com.openclassrooms.mediscreen.note.exception.NoteVersionConflictException;
+import com.openclassrooms.mediscreen.note.model.BulkCreateResult;
+import com.openclassrooms.mediscreen.note.model.BulkItemResult;
 import com.openclassrooms.mediscreen.note.model.Note;
+import com.openclassrooms.mediscreen.note.model.NoteEvent;
+import com.openclassrooms.mediscreen.note.model.NotePage;
+import com.openclassrooms.mediscreen.note.model.NoteSearchPage;
+import com.openclassrooms.mediscreen.note.model.PatientTriggers;
+import com.openclassrooms.mediscreen.note.model.TriggerMaskGroup;
 import com.openclassrooms.mediscreen.note.repository.NoteRepository;
+import com.openclassrooms.mediscreen.trigger.TriggerMatcher;
 
 import lombok.RequiredArgsConstructor;
 import lombok.extern.log4j.Log4j2;
@@ -18,20 +52,86 @@ import lombok.extern.log4j.Log4j2;
 @RequiredArgsConstructor
 public class NoteService {
 
+    static final int MAX_PAGE_SIZE = 100;
+
     private final NoteRepository noteRepository;
+    private final TriggerVocabulary triggerVocabulary;
+    private final Validator validator;
+    private final NoteEventService noteEventService;
+    private final ReportCompressor reportCompressor;
+
+    @Value("${note.bulk.chunk-size:1000}")
+    private int bulkChunkSize;
+
+    @Value("${note.archive.min-age:365d}")
+    private Duration archiveMinAge;
+
+    // Callers send the same vocabulary on every request, so its automaton is compiled once
+    private final AtomicReference<TriggerMatcher> lastMatcher = new AtomicReference<>();
 
     /**
      * Retrieves all notes.
      *
+     * @param fullHistory whether archived notes are included
      * @return list of all notes
      */
-    public List<Note> findAll() {
-        log.debug("Retrieving all notes");
-        return noteRepository.findAll();
+    public List<Note> findAll(boolean fullHistory) {
+        log.debug("Retrieving all notes, full history: {}", fullHistory);
+        if (!fullHistory) {
+            return noteRepository.findAll();
+        }
+        try (Stream<Note> notes = streamAll(true)) {
+            return notes.toList();
+        }
     }
 
     /**
-     * Retrieves a note by ID.
+     * Streams all notes from database cursors, so only one batch of notes is held in memory at a
+     * time. Archived notes follow the hot ones. The stream must be closed once consumed.
+     *
+     * @param fullHistory whether archived notes are included
+     * @return stream of all notes
+     */
+    public Stream<Note> streamAll(boolean fullHistory) {
+        log.debug("Streaming all notes, full history: {}", fullHistory);
+        Stream<Note> notes = noteRepository.streamAll();
+        return fullHistory ? followedByArchive(notes) : notes;
+    }
+
+    // The archive cursor is only opened once the hot notes are consumed, so that it does not sit
+    // idle on the server, and time out, while a large hot collection is streamed
+    private Stream<Note> followedByArchive(Stream<Note> hotNotes) {
+        AtomicReference<Stream<Note>> archivedNotes = new AtomicReference<>();
+        Iterator<Note> hot = hotNotes.iterator();
+        Iterator<Note> all =
+                new Iterator<>() {
+                    private Iterator<Note> current = hot;
+
+                    @Override
+                    public boolean hasNext() {
+                        if (!current.hasNext() && archivedNotes.get() == null) {
+                            archivedNotes.set(noteRepository.streamAllArchived());
+                            current = archivedNotes.get().iterator();
+                        }
+                        return current.hasNext();
+                    }
+
+                    @Override
+                    public Note next() {
+                        if (!hasNext()) {
+                            throw new NoSuchElementException();
+                        }
+                        return current.next();
+                    }
+                };
+        return StreamSupport.stream(
+                        Spliterators.spliteratorUnknownSize(all, Spliterator.ORDERED), false)
+                .onClose(hotNotes::close)
+                .onClose(() -> Optional.ofNullable(archivedNotes.get()).ifPresent(Stream::close));
+    }
+
+    /**
+     * Retrieves a note by ID, from the archive if it was moved there.
      *
      * @param id the note ID
      * @return the note
@@ -39,18 +139,211 @@ public class NoteService {
      */
     public Note findById(String id) {
         log.debug("Retrieving note with id: {}", id);
-        return noteRepository.findById(id).orElseThrow(() -> new NoteNotFoundException(id));
+        return noteRepository
+                .findById(id)
+                .or(() -> noteRepository.findArchivedById(id))
+                .orElseThrow(() -> new NoteNotFoundException(id));
     }
 
     /**
-     * Retrieves all notes for a specific patient.
+     * Retrieves the notes of a specific patient. Notes older than the archival age are only read
+     * from the archive when the full history is asked for.
      *
      * @param patientId the patient ID
+     * @param fullHistory whether archived notes are included
      * @return list of notes for the patient
      */
-    public List<Note> findByPatientId(Long patientId) {
-        log.debug("Retrieving all notes for patient id: {}", patientId);
-        return noteRepository.findNoteByPatientId(patientId);
+    public List<Note> findByPatientId(Long patientId, boolean fullHistory) {
+        log.debug("Retrieving notes for patient id: {}, full history: {}", patientId, fullHistory);
+        List<Note> notes = noteRepository.findNoteByPatientId(patientId);
+        if (!fullHistory) {
+            return notes;
+        }
+        return withArchived(notes, noteRepository.findArchivedByPatientId(patientId));
+    }
+
+    // A run interrupted before its removal leaves a note in both collections; the hot copy wins
+    private static List<Note> withArchived(List<Note> notes, List<Note> archivedNotes) {
+        if (archivedNotes.isEmpty()) {
+            return notes;
+        }
+        List<Note> merged = new ArrayList<>(notes);
+        Set<String> hotIds = notes.stream().map(Note::getId).collect(Collectors.toSet());
+        for (Note archived : archivedNotes) {
+            if (!hotIds.contains(archived.getId())) {
+                merged.add(archived);
+            }
+        }
+        return merged;
+    }
+
+    /**
+     * Retrieves one page of the notes of a patient, most recent first. Pages are addressed by the
+     * position of the last note of the previous page rather than by an offset, so reading a page
+     * costs the same however old it is and notes written meanwhile do not shift the next pages.
+     *
+     * @param patientId the patient ID
+     * @param cursor the cursor returned with the previous page, or {@code null} for the first page
+     * @param size the maximum number of notes to return, capped at {@value #MAX_PAGE_SIZE}
+     * @return the page, with the cursor to the next one if there are more notes
+     * @throws InvalidCursorException if the cursor was not returned by a previous page
+     */
+    public NotePage findPageByPatientId(Long patientId, String cursor, int size) {
+        log.debug("Retrieving {} notes for patient id: {} before: {}", size, patientId, cursor);
+        int pageSize = Math.clamp(size, 1, MAX_PAGE_SIZE);
+        // One extra note tells whether a next page exists without a count query
+        Limit limit = Limit.of(pageSize + 1);
+        List<Note> notes;
+        if (cursor == null || cursor.isBlank()) {
+            notes = noteRepository.findFirstPageByPatientId(patientId, limit);
+        } else {
+            NoteCursor after = NoteCursor.decode(cursor);
+            notes =
+                    noteRepository.findPageByPatientIdBefore(
+                            patientId, after.created(), after.id(), limit);
+        }
+        if (notes.size() <= pageSize) {
+            return new NotePage(notes, null);
+        }
+        List<Note> page = List.copyOf(notes.subList(0, pageSize));
+        return new NotePage(page, NoteCursor.of(page.getLast()).encode());
+    }
+
+    /**
+     * Searches the reports of notes through the text index, most relevant first. Archived notes
+     * are not searched, so the page is flagged partial when the archive holds notes in scope.
+     *
+     * @param query the words to search for
+     * @param patientId the patient whose notes are searched, or {@code null} for every patient
+     * @param page the zero-based page number
+     * @param size the requested page size, clamped to {@value #MAX_PAGE_SIZE}
+     * @return the requested page of matching notes
+     * @throws InvalidSearchQueryException if the query is blank or the page number negative
+     */
+    public NoteSearchPage searchReports(String query, Long patientId, int page, int size) {
+        log.debug("Searching notes of patient id: {} for: {}, page {}", patientId, query, page);
+        if (query == null || query.isBlank()) {
+            throw new InvalidSearchQueryException("Search query must not be blank");
+        }
+        if (page < 0) {
+            throw new InvalidSearchQueryException("Page number must not be negative: " + page);
+        }
+        int pageSize = Math.clamp(size, 1, MAX_PAGE_SIZE);
+        // One extra note tells whether a next page exists without a count query
+        List<Note> notes =
+                noteRepository.searchReports(
+                        query.strip(), patientId, (long) page * pageSize, pageSize + 1);
+        boolean partial = noteRepository.hasArchivedNotes(patientId);
+        if (notes.size() <= pageSize) {
+            return new NoteSearchPage(notes, page, false, partial);
+        }
+        return new NoteSearchPage(List.copyOf(notes.subList(0, pageSize)), page, true, partial);
+    }
+
+    /**
+     * Retrieves all notes for a set of patients.
+     *
+     * @param patientIds the patient IDs
+     * @param fullHistory whether archived notes are included
+     * @return list of notes for these patients
+     */
+    public List<Note> findByPatientIds(List<Long> patientIds, boolean fullHistory) {
+        log.debug(
+                "Retrieving all notes for {} patients, full history: {}",
+                patientIds.size(),
+                fullHistory);
+        List<Note> notes = noteRepository.findNoteByPatientIdIn(patientIds);
+        if (!fullHistory) {
+            return notes;
+        }
+        return withArchived(notes, noteRepository.findArchivedByPatientIdIn(patientIds));
+    }
+
+    /**
+     * Finds which trigger terms appear in the notes of a patient, archived ones included. Only the
+     * report field of the notes is read from the database, and reading stops as soon as every term
+     * has been found.
+     *
+     * @param patientId the patient ID
+     * @param terms the trigger vocabulary, matched case-insensitively
+     * @return the matched terms, in vocabulary order
+     * @throws InvalidVocabularyException if the vocabulary is too large, contains a blank term or
+     *     holds the same term twice
+     */
+    public List<String> findMatchedTriggerTerms(Long patientId, List<String> terms) {
+        log.debug("Matching {} trigger terms for patient id: {}", terms.size(), patientId);
+        TriggerMatcher matcher = matcherFor(terms);
+        long seen = 0L;
+        try (Stream<Note> notes = noteRepository.streamReportsByPatientId(patientId)) {
+            seen = scanReports(matcher, notes, seen);
+        }
+        // The archive is only read when the recent notes did not hold every term
+        if (seen != matcher.allTerms()) {
+            try (Stream<Note> notes = noteRepository.streamArchivedReportsByPatientId(patientId)) {
+                seen = scanReports(matcher, notes, seen);
+            }
+        }
+        return matcher.termsOf(seen).toList();
+    }
+
+    private static long scanReports(TriggerMatcher matcher, Stream<Note> notes, long seen) {
+        Iterator<Note> iterator = notes.iterator();
+        while (seen != matcher.allTerms() && iterator.hasNext()) {
+            String report = iterator.next().getReport();
+            if (report != null) {
+                seen = matcher.scan(report, seen);
+            }
+        }
+        return seen;
+    }
+
+    private TriggerMatcher matcherFor(List<String> terms) {
+        TriggerMatcher cached = lastMatcher.get();
+        if (cached != null && cached.terms().equals(terms)) {
+            return cached;
+        }
+        try {
+            TriggerMatcher matcher = TriggerMatcher.compile(terms);
+            lastMatcher.set(matcher);
+            return matcher;
+        } catch (IllegalArgumentException e) {
+            throw new InvalidVocabularyException(e.getMessage());
+        }
+    }
+
+    /**
+     * Combines the trigger masks stored on the notes of a patient, archived ones included, without
+     * reading any report text. Only the notes stored under another vocabulary version, or before
+     * masks existed, are read and rescanned on the fly, in both collections.
+     *
+     * @param patientId the patient ID
+     * @return the trigger terms found across the notes of the patient
+     */
+    public PatientTriggers findPatientTriggers(Long patientId) {
+        log.debug("Retrieving trigger masks for patient id: {}", patientId);
+        String version = triggerVocabulary.version();
+        long mask = 0L;
+        boolean outdated = false;
+        for (TriggerMaskGroup group : noteRepository.aggregateTriggerMasksByPatientId(patientId)) {
+            if (version.equals(group.vocabularyVersion()) && group.triggerMask() != null) {
+                mask |= group.triggerMask();
+            } else {
+                outdated = true;
+            }
+        }
+        if (outdated) {
+            for (Note note :
+                    noteRepository.findNoteByPatientIdAndVocabularyVersionNot(patientId, version)) {
+                mask |= triggerVocabulary.maskOf(note.getReport());
+            }
+            for (Note note :
+                    noteRepository.findArchivedByPatientIdAndVocabularyVersionNot(
+                            patientId, version)) {
+                mask |= triggerVocabulary.maskOf(note.getReport());
+            }
+        }
+        return new PatientTriggers(
+                patientId, version, mask, triggerVocabulary.matcher().termsOf(mask).toList());
     }
 
     /**
@@ -62,33 +355,168 @@ public class NoteService {
     public Note create(Note note) {
         log.debug("Creating note for patient id: {}", note.getPatientId());
         note.setCreated(LocalDateTime.now());
-        return noteRepository.save(note);
+        prepareReport(note);
+        Note savedNote = noteRepository.save(note);
+        noteEventService.record(NoteEvent.Type.CREATED, savedNote);
+        return savedNote;
     }
 
     /**
-     * Updates the report of an existing note.
+     * Creates notes in chunks of unordered bulk inserts, one database round trip per chunk.
+     * Requests are read one at a time, so only the current chunk is held in memory besides the
+     * outcome of every note. Invalid requests and notes rejected by the database are reported
+     * without failing the others.
+     *
+     * <p>If a request cannot be read, reading stops there: the notes read before it are still
+     * stored, and the result reports them along with the position of the unreadable one.
+     *
+     * @param requests the notes to create, throwing {@link InvalidBulkRequestException} for a note
+     *     that cannot be read
+     * @return the outcome of every note read, in request order, and the unreadable note if any
+     */
+    public BulkCreateResult createAll(Iterator<NoteRequestDto> requests) {
+        List<BulkItemResult> items = new ArrayList<>();
+        BulkItemResult parseError = null;
+        int createdCount = 0;
+        List<Note> chunk = new ArrayList<>(bulkChunkSize);
+        List<Integer> chunkIndexes = new ArrayList<>(bulkChunkSize);
+        int index = 0;
+        try {
+            for (; ; index++) {
+                NoteRequestDto request;
+                try {
+                    if (!requests.hasNext()) {
+                        break;
+                    }
+                    request = requests.next();
+                } catch (InvalidBulkRequestException e) {
+                    parseError = BulkItemResult.failed(index, e.getMessage());
+                    break;
+                }
+                String violations = violationsOf(request);
+                if (violations != null) {
+                    items.add(BulkItemResult.failed(index, violations));
+                    continue;
+                }
+                Note note = request.toEntity();
+                // Bulk inserts do not report generated IDs back, so they are assigned here
+                note.setId(new ObjectId().toHexString());
+                note.setCreated(LocalDateTime.now());
+                prepareReport(note);
+                chunk.add(note);
+                chunkIndexes.add(index);
+                if (chunk.size() >= bulkChunkSize) {
+                    createdCount += insertChunk(chunk, chunkIndexes, items);
+                }
+            }
+        } finally {
+            if (!chunk.isEmpty()) {
+                createdCount += insertChunk(chunk, chunkIndexes, items);
+            }
+        }
+        items.sort(Comparator.comparingInt(BulkItemResult::index));
+        log.debug("Bulk created {} notes out of {}", createdCount, index);
+        return new BulkCreateResult(createdCount, items, parseError);
+    }
+
+    private String violationsOf(NoteRequestDto request) {
+        if (request == null) {
+            return "Note is required";
+        }
+        Set<ConstraintViolation<NoteRequestDto>> violations = validator.validate(request);
+        if (violations.isEmpty()) {
+            return null;
+        }
+        return violations.stream()
+                .map(ConstraintViolation::getMessage)
+                .sorted()
+                .collect(Collectors.joining(", "));
+    }
+
+    private int insertChunk(
+            List<Note> chunk, List<Integer> chunkIndexes, List<BulkItemResult> items) {
+        try {
+            Map<Integer, String> rejected = noteRepository.insertUnordered(chunk);
+            List<Note> created = new ArrayList<>(chunk.size());
+            for (int i = 0; i < chunk.size(); i++) {
+                String failure = rejected.get(i);
+                if (failure == null) {
+                    created.add(chunk.get(i));
+                    items.add(BulkItemResult.created(chunkIndexes.get(i), chunk.get(i).getId()));
+                } else {
+                    items.add(BulkItemResult.failed(chunkIndexes.get(i), failure));
+                }
+            }
+            noteEventService.recordAll(NoteEvent.Type.CREATED, created);
+            return created.size();
+        } finally {
+            chunk.clear();
+            chunkIndexes.clear();
+        }
+    }
+
+    /**
+     * Updates the report of an existing note in a single atomic update, without reading the note
+     * first.
      *
      * @param id the note ID
      * @param report the new report content
+     * @param expectedVersion the version the report was edited from, or {@code null} to overwrite
+     *     the report whatever its current version
      * @return the updated note
      * @throws NoteNotFoundException if note not found
+     * @throws NoteVersionConflictException if the note was updated since {@code expectedVersion}
      */
-    public Note updateReport(String id, String report) {
-        log.debug("Updating report for note id: {}", id);
-        Note note = findById(id);
-        note.setReport(report);
-        return noteRepository.save(note);
+    public Note updateReport(String id, String report, Long expectedVersion) {
+        log.debug("Updating report for note id: {} at version: {}", id, expectedVersion);
+        Note changes = new Note(null, null, report, null);
+        prepareReport(changes);
+        Optional<Note> updated = noteRepository.updateReport(id, expectedVersion, changes);
+        // Only a failed update pays for more round trips, to tell a stale version from an
+        // archived or missing note
+        if (updated.isEmpty()) {
+            if (noteRepository.existsById(id)) {
+                throw new NoteVersionConflictException(id, expectedVersion);
+            }
+            updated = noteRepository.updateArchivedReport(id, expectedVersion, changes);
+            if (updated.isEmpty()) {
+                if (noteRepository.existsArchivedById(id)) {
+                    throw new NoteVersionConflictException(id, expectedVersion);
+                }
+                throw new NoteNotFoundException(id);
+            }
+        }
+        noteEventService.record(NoteEvent.Type.UPDATED, updated.get());
+        return updated.get();
     }
 
     /**
-     * Deletes a note by ID.
+     * Deletes a note by ID, looking in the archive only if it is not in the hot collection.
      *
      * @param id the note ID
      * @throws NoteNotFoundException if note not found
      */
     public void delete(String id) {
         log.debug("Deleting note with id: {}", id);
-        Note note = findById(id);
-        noteRepository.delete(note);
+        Optional<Note> deleted = noteRepository.deleteNoteById(id);
+        if (deleted.isPresent()) {
+            // A note old enough to be archived may have a copy being written by an archive run,
+            // which would bring it back; recent notes never pay for this round trip
+            LocalDateTime created = deleted.get().getCreated();
+            if (created != null && created.isBefore(LocalDateTime.now().minus(archiveMinAge))) {
+                noteRepository.deleteArchivedById(id);
+            }
+        } else {
+            deleted = noteRepository.deleteArchivedById(id);
+        }
+        Note deletedNote = deleted.orElseThrow(() -> new NoteNotFoundException(id));
+        noteEventService.record(NoteEvent.Type.DELETED, deletedNote);
+    }
+
+    // Computes the trigger fields of the report, then compresses it if it is large
+    private void prepareReport(Note note) {
+        note.setTriggerMask(triggerVocabulary.maskOf(note.getReport()));
+        note.setVocabularyVersion(triggerVocabulary.version());
+        reportCompressor.compress(note);
     }
 }
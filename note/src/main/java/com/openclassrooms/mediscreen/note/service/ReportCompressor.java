@@ -0,0 +1,72 @@
+package com.openclassrooms.mediscreen.note.service;
+
+import java.nio.charset.StandardCharsets;
+import java.util.LinkedHashSet;
+import java.util.Locale;
+import java.util.Set;
+import java.util.regex.Pattern;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import com.openclassrooms.mediscreen.note.model.Note;
+import com.openclassrooms.mediscreen.note.model.ReportCodec;
+
+/**
+ * Compresses the reports of notes above a size threshold before they are written. Most notes are
+ * a few sentences and are stored as is; only long free-text reports are worth the CPU.
+ *
+ * <p>The text index cannot read a compressed report, so the distinct words of the report are
+ * stored and indexed next to it. Stemming, stop words and diacritics are left to the text index,
+ * which applies them to these words as it would to the report.
+ */
+@Component
+public class ReportCompressor {
+
+    private static final ReportCodec CODEC = ReportCodec.DEFLATE;
+    private static final Pattern WORD_SEPARATOR = Pattern.compile("[^\\p{L}\\p{N}]+");
+
+    private final int threshold;
+
+    public ReportCompressor(@Value("${note.report.compression-threshold:4096}") int threshold) {
+        this.threshold = threshold;
+    }
+
+    /**
+     * Compresses the report of a note if it is larger than the threshold and compression actually
+     * makes it smaller.
+     *
+     * @param note the note about to be written
+     */
+    public void compress(Note note) {
+        String report = note.getReport();
+        // A UTF-8 character takes at most 3 bytes, so short reports are skipped without encoding
+        if (report == null || report.length() * 3L <= threshold) {
+            return;
+        }
+        byte[] text = report.getBytes(StandardCharsets.UTF_8);
+        if (text.length <= threshold) {
+            return;
+        }
+        byte[] compressed = CODEC.encode(text);
+        if (compressed.length < text.length) {
+            note.compressReport(CODEC, compressed, termsOf(report));
+        }
+    }
+
+    /**
+     * Lists the distinct words of a report in lower case, in order of first appearance.
+     *
+     * @param report the report
+     * @return the words, separated by spaces
+     */
+    static String termsOf(String report) {
+        Set<String> terms = new LinkedHashSet<>();
+        for (String word : WORD_SEPARATOR.split(report)) {
+            if (!word.isEmpty()) {
+                terms.add(word.toLowerCase(Locale.ROOT));
+            }
+        }
+        return String.join(" ", terms);
+    }
+}
@@ -0,0 +1,59 @@
+package com.openclassrooms.mediscreen.note.service;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.List;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.Resource;
+import org.springframework.stereotype.Component;
+
+import com.openclassrooms.mediscreen.trigger.TriggerMatcher;
+import com.openclassrooms.mediscreen.trigger.TriggerTerms;
+
+/**
+ * Trigger vocabulary stored alongside notes, compiled into a {@link TriggerMatcher}.
+ *
+ * <p>The term list is read and versioned by {@link TriggerTerms}, as in the report service, and
+ * defaults to the vocabulary file of the trigger module, so a trigger mask stored on a note can be
+ * used by the report service whenever both versions match.
+ */
+@Component
+public class TriggerVocabulary {
+
+    private final String version;
+    private final TriggerMatcher matcher;
+
+    public TriggerVocabulary(
+            @Value("${note.triggers.location:classpath:trigger-terms.txt}") Resource location) {
+        List<String> terms = readTerms(location);
+        this.version = TriggerTerms.version(terms);
+        this.matcher = TriggerMatcher.compile(terms);
+    }
+
+    public String version() {
+        return version;
+    }
+
+    public TriggerMatcher matcher() {
+        return matcher;
+    }
+
+    /**
+     * Computes the trigger mask of a note report.
+     *
+     * @param report the report, possibly null
+     * @return bitmask of the ordinals of the terms found in the report
+     */
+    public long maskOf(String report) {
+        return report == null ? 0L : matcher.scan(report);
+    }
+
+    private static List<String> readTerms(Resource location) {
+        try {
+            return TriggerTerms.read(location.getInputStream());
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to read trigger terms from " + location, e);
+        }
+    }
+}
@@ -0,0 +1,200 @@
+package com.openclassrooms.mediscreen.note.configuration;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.clearInvocations;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+
+import org.bson.BsonDocument;
+import org.bson.Document;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+
+import com.mongodb.event.CommandStartedEvent;
+import com.mongodb.event.CommandSucceededEvent;
+import com.openclassrooms.mediscreen.note.configuration.SlowQueryLogger.IndexUsage;
+
+class SlowQueryLoggerTest {
+
+    @Nested
+    @DisplayName("shapeOf")
+    class ShapeOfTests {
+
+        @Test
+        @DisplayName("Should replace values and keep field names and operators")
+        void shouldReplaceValues() {
+            BsonDocument filter =
+                    BsonDocument.parse(
+                            "{ patient_id: 1, $or: [ { created: { $lt: 'a' } }, { _id: 'b' } ],"
+                                    + " vocabulary_version: { $in: ['v1', 'v2'] } }");
+
+            BsonDocument shape = SlowQueryLogger.shapeOf(filter);
+
+            assertThat(shape)
+                    .isEqualTo(
+                            BsonDocument.parse(
+                                    "{ patient_id: '?',"
+                                            + " $or: [ { created: { $lt: '?' } }, { _id: '?' } ],"
+                                            + " vocabulary_version: { $in: '?' } }"));
+        }
+    }
+
+    @Nested
+    @DisplayName("indexUsageOf")
+    class IndexUsageOfTests {
+
+        @Test
+        @DisplayName("Should report a collection scan")
+        void shouldReportCollectionScan() {
+            Document explain =
+                    Document.parse("{ queryPlanner: { winningPlan: { stage: 'COLLSCAN' } } }");
+
+            assertThat(SlowQueryLogger.indexUsageOf(explain)).isEqualTo(IndexUsage.NO);
+        }
+
+        @Test
+        @DisplayName("Should report an index scan below a fetch and ignore rejected plans")
+        void shouldReportIndexScan() {
+            Document explain =
+                    Document.parse(
+                            "{ queryPlanner: { winningPlan: { stage: 'FETCH', inputStage:"
+                                    + " { stage: 'IXSCAN' } }, rejectedPlans: [ { stage:"
+                                    + " 'COLLSCAN' } ] } }");
+
+            assertThat(SlowQueryLogger.indexUsageOf(explain)).isEqualTo(IndexUsage.YES);
+        }
+
+        @Test
+        @DisplayName("Should inspect the winning plan of every aggregation stage")
+        void shouldInspectAggregationStages() {
+            Document explain =
+                    Document.parse(
+                            "{ stages: [ { $cursor: { queryPlanner: { winningPlan:"
+                                    + " { stage: 'COLLSCAN' } } } }, { $group: {} } ] }");
+
+            assertThat(SlowQueryLogger.indexUsageOf(explain)).isEqualTo(IndexUsage.NO);
+        }
+
+        @Test
+        @DisplayName("Should report an unknown usage without a winning plan")
+        void shouldReportUnknownUsage() {
+            assertThat(SlowQueryLogger.indexUsageOf(new Document("ok", 1.0)))
+                    .isEqualTo(IndexUsage.UNKNOWN);
+        }
+    }
+
+    @Nested
+    @DisplayName("command events")
+    class CommandEventTests {
+
+        private static final Duration TTL = Duration.ofMinutes(10);
+
+        @SuppressWarnings("unchecked")
+        private final Function<BsonDocument, Document> explainer = mock(Function.class);
+
+        private final AtomicLong now = new AtomicLong();
+        private SlowQueryLogger slowQueryLogger;
+        private int requestId;
+
+        @BeforeEach
+        void setUp() {
+            when(explainer.apply(any()))
+                    .thenReturn(
+                            Document.parse(
+                                    "{ queryPlanner: { winningPlan: { stage: 'COLLSCAN' } } }"));
+            slowQueryLogger =
+                    new SlowQueryLogger(
+                            Duration.ofMillis(100), TTL, explainer, Runnable::run, now::get);
+        }
+
+        @Test
+        @DisplayName("Should explain a slow query once per shape")
+        void shouldExplainSlowQueryOncePerShape() {
+            run("{ find: 'note', filter: { patient_id: 1 }, $db: 'mediscreen' }", 150);
+            run("{ find: 'note', filter: { patient_id: 2 }, $db: 'mediscreen' }", 200);
+
+            verify(explainer, times(1))
+                    .apply(BsonDocument.parse("{ find: 'note', filter: { patient_id: 1 } }"));
+        }
+
+        @Test
+        @DisplayName("Should explain a shape again once its index usage expired")
+        void shouldExplainAgainAfterTtl() {
+            run("{ find: 'note', filter: { patient_id: 1 } }", 150);
+            now.addAndGet(TTL.toNanos());
+            run("{ find: 'note', filter: { patient_id: 2 } }", 150);
+
+            verify(explainer, times(2)).apply(any());
+        }
+
+        @Test
+        @DisplayName("Should not remember the index usage of a failed explain")
+        void shouldNotRememberFailedExplain() {
+            doThrow(new IllegalStateException("explain failed"))
+                    .doReturn(
+                            Document.parse(
+                                    "{ queryPlanner: { winningPlan: { stage: 'IXSCAN' } } }"))
+                    .when(explainer)
+                    .apply(any());
+
+            run("{ find: 'note', filter: { patient_id: 1 } }", 150);
+            run("{ find: 'note', filter: { patient_id: 2 } }", 150);
+            run("{ find: 'note', filter: { patient_id: 3 } }", 150);
+
+            verify(explainer, times(2)).apply(any());
+        }
+
+        @Test
+        @DisplayName("Should make room for new shapes once known ones expired")
+        void shouldEvictExpiredShapesWhenFull() {
+            for (int i = 0; i < SlowQueryLogger.MAX_SHAPES; i++) {
+                run("{ find: 'note', filter: { field" + i + ": 1 } }", 150);
+            }
+            clearInvocations(explainer);
+
+            run("{ find: 'note', filter: { other: 1 } }", 150);
+            verify(explainer, never()).apply(any());
+
+            now.addAndGet(TTL.toNanos());
+            run("{ find: 'note', filter: { other: 1 } }", 150);
+            verify(explainer).apply(BsonDocument.parse("{ find: 'note', filter: { other: 1 } }"));
+        }
+
+        @Test
+        @DisplayName("Should not explain fast queries nor writes")
+        void shouldNotExplainFastQueriesNorWrites() {
+            run("{ find: 'note', filter: { patient_id: 1 } }", 10);
+            run("{ insert: 'note', documents: [ { report: 'x' } ] }", 500);
+
+            verify(explainer, never()).apply(any());
+        }
+
+        private void run(String command, long elapsedMillis) {
+            BsonDocument document = BsonDocument.parse(command);
+            int id = ++requestId;
+            CommandStartedEvent started = mock(CommandStartedEvent.class);
+            when(started.getRequestId()).thenReturn(id);
+            when(started.getCommandName()).thenReturn(document.getFirstKey());
+            when(started.getCommand()).thenReturn(document);
+            CommandSucceededEvent succeeded = mock(CommandSucceededEvent.class);
+            when(succeeded.getRequestId()).thenReturn(id);
+            when(succeeded.getElapsedTime(TimeUnit.NANOSECONDS))
+                    .thenReturn(TimeUnit.MILLISECONDS.toNanos(elapsedMillis));
+
+            slowQueryLogger.commandStarted(started);
+            slowQueryLogger.commandSucceeded(succeeded);
+        }
+    }
+}
@@ -1,5 +1,7 @@
 package com.openclassrooms.mediscreen.note.controller;
 
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.doNothing;
@@ -8,23 +10,42 @@ import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 import java.time.LocalDateTime;
+import java.util.Iterator;
 import java.util.List;
 
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Nested;
 import org.junit.jupiter.api.Test;
+import org.mockito.invocation.InvocationOnMock;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.webmvc.test.autoconfigure.WebMvcTest;
 import org.springframework.core.ParameterizedTypeReference;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.test.context.bean.override.mockito.MockitoBean;
 import org.springframework.test.web.servlet.MockMvc;
 import org.springframework.test.web.servlet.client.RestTestClient;
 
+import com.openclassrooms.mediscreen.note.controller.dto.BulkCreateResponseDto;
+import com.openclassrooms.mediscreen.note.controller.dto.NotePageResponseDto;
+import com.openclassrooms.mediscreen.note.controller.dto.NoteRequestDto;
 import com.openclassrooms.mediscreen.note.controller.dto.NoteResponseDto;
+import com.openclassrooms.mediscreen.note.controller.dto.NoteSearchResponseDto;
+import com.openclassrooms.mediscreen.note.controller.dto.PatientTriggersResponseDto;
+import com.openclassrooms.mediscreen.note.controller.dto.TriggerMatchResponseDto;
+import com.openclassrooms.mediscreen.note.exception.InvalidBulkRequestException;
+import com.openclassrooms.mediscreen.note.exception.InvalidCursorException;
+import com.openclassrooms.mediscreen.note.exception.InvalidSearchQueryException;
+import com.openclassrooms.mediscreen.note.exception.InvalidVocabularyException;
 import com.openclassrooms.mediscreen.note.exception.NoteNotFoundException;
+import com.openclassrooms.mediscreen.note.exception.NoteVersionConflictException;
+import com.openclassrooms.mediscreen.note.model.BulkCreateResult;
+import com.openclassrooms.mediscreen.note.model.BulkItemResult;
 import com.openclassrooms.mediscreen.note.model.Note;
+import com.openclassrooms.mediscreen.note.model.NotePage;
+import com.openclassrooms.mediscreen.note.model.NoteSearchPage;
+import com.openclassrooms.mediscreen.note.model.PatientTriggers;
 import com.openclassrooms.mediscreen.note.service.NoteService;
 
 @WebMvcTest(NoteController.class)
@@ -54,7 +75,7 @@ class NoteControllerTest {
         @Test
         @DisplayName("Should return all notes")
         void shouldReturnAllNotes() {
-            when(noteService.findAll()).thenReturn(createNoteList());
+            when(noteService.findAll(false)).thenReturn(createNoteList());
 
             client.get()
                     .uri(BASE_URL)
@@ -69,7 +90,7 @@ class NoteControllerTest {
         @Test
         @DisplayName("Should return empty list when no notes exist")
         void shouldReturnEmptyListWhenNoNotesExist() {
-            when(noteService.findAll()).thenReturn(List.of());
+            when(noteService.findAll(false)).thenReturn(List.of());
 
             client.get()
                     .uri(BASE_URL)
@@ -82,6 +103,54 @@ class NoteControllerTest {
         }
     }
 
+    @Nested
+    @DisplayName("GET /api/v1/notes/stream")
+    class StreamAllNotesTests {
+
+        @Test
+        @DisplayName("Should stream one JSON note per line")
+        void shouldStreamOneNotePerLine() {
+            when(noteService.streamAll(false)).thenReturn(createNoteList().stream());
+
+            String body =
+                    client.get()
+                            .uri(BASE_URL + "/stream")
+                            .exchange()
+                            .expectStatus()
+                            .isOk()
+                            .expectHeader()
+                            .contentTypeCompatibleWith(MediaType.APPLICATION_NDJSON)
+                            .expectBody(String.class)
+                            .returnResult()
+                            .getResponseBody();
+
+            assertThat(body).isNotNull();
+            assertThat(body.lines())
+                    .hasSize(3)
+                    .allSatisfy(line -> assertThat(line).startsWith("{").contains("\"Report "));
+        }
+
+        @Test
+        @DisplayName("Should include archived notes when the full history is asked for")
+        void shouldStreamFullHistory() {
+            when(noteService.streamAll(true)).thenReturn(createNoteList().stream());
+
+            String body =
+                    client.get()
+                            .uri(BASE_URL + "/stream?fullHistory=true")
+                            .exchange()
+                            .expectStatus()
+                            .isOk()
+                            .expectBody(String.class)
+                            .returnResult()
+                            .getResponseBody();
+
+            assertThat(body).isNotNull();
+            assertThat(body.lines()).hasSize(3);
+            verify(noteService).streamAll(true);
+        }
+    }
+
     @Nested
     @DisplayName("GET /api/v1/notes/{id}")
     class GetNoteByIdTests {
@@ -124,7 +193,7 @@ class NoteControllerTest {
         @DisplayName("Should return all notes for patient")
         void shouldReturnAllNotesForPatient() {
             List<Note> patientNotes = createNoteList();
-            when(noteService.findByPatientId(PATIENT_ID)).thenReturn(patientNotes);
+            when(noteService.findByPatientId(PATIENT_ID, false)).thenReturn(patientNotes);
 
             client.get()
                     .uri(BASE_URL + "/patient/" + PATIENT_ID)
@@ -139,7 +208,7 @@ class NoteControllerTest {
         @Test
         @DisplayName("Should return empty list when patient has no notes")
         void shouldReturnEmptyListWhenPatientHasNoNotes() {
-            when(noteService.findByPatientId(PATIENT_ID)).thenReturn(List.of());
+            when(noteService.findByPatientId(PATIENT_ID, false)).thenReturn(List.of());
 
             client.get()
                     .uri(BASE_URL + "/patient/" + PATIENT_ID)
@@ -150,6 +219,197 @@ class NoteControllerTest {
                     .expectBody(new ParameterizedTypeReference<List<NoteResponseDto>>() {})
                     .isEqualTo(List.of());
         }
+
+        @Test
+        @DisplayName("Should include archived notes when the full history is asked for")
+        void shouldIncludeArchivedNotes() {
+            when(noteService.findByPatientId(PATIENT_ID, true)).thenReturn(createNoteList());
+
+            client.get()
+                    .uri(BASE_URL + "/patient/" + PATIENT_ID + "?fullHistory=true")
+                    .exchange()
+                    .expectStatus()
+                    .isOk()
+                    .expectBody(new ParameterizedTypeReference<List<NoteResponseDto>>() {})
+                    .isEqualTo(createExpectedResponseList());
+        }
+    }
+
+    @Nested
+    @DisplayName("GET /api/v1/notes/patient/{patientId}/page")
+    class GetNotePageByPatientIdTests {
+
+        @Test
+        @DisplayName("Should return the first page with the cursor to the next one")
+        void shouldReturnFirstPage() {
+            when(noteService.findPageByPatientId(PATIENT_ID, null, 10))
+                    .thenReturn(new NotePage(createNoteList(), "next"));
+
+            client.get()
+                    .uri(BASE_URL + "/patient/" + PATIENT_ID + "/page")
+                    .accept(MediaType.APPLICATION_JSON)
+                    .exchange()
+                    .expectStatus()
+                    .isOk()
+                    .expectBody(NotePageResponseDto.class)
+                    .isEqualTo(new NotePageResponseDto(createExpectedResponseList(), "next"));
+        }
+
+        @Test
+        @DisplayName("Should pass the cursor and size through")
+        void shouldPassCursorAndSize() {
+            when(noteService.findPageByPatientId(PATIENT_ID, "next", 2))
+                    .thenReturn(new NotePage(List.of(), null));
+
+            client.get()
+                    .uri(BASE_URL + "/patient/" + PATIENT_ID + "/page?cursor=next&size=2")
+                    .exchange()
+                    .expectStatus()
+                    .isOk()
+                    .expectBody(NotePageResponseDto.class)
+                    .isEqualTo(new NotePageResponseDto(List.of(), null));
+        }
+
+        @Test
+        @DisplayName("Should return 400 when the cursor is invalid")
+        void shouldReturn400WhenCursorIsInvalid() {
+            when(noteService.findPageByPatientId(PATIENT_ID, "bogus", 10))
+                    .thenThrow(new InvalidCursorException("bogus"));
+
+            client.get()
+                    .uri(BASE_URL + "/patient/" + PATIENT_ID + "/page?cursor=bogus")
+                    .exchange()
+                    .expectStatus()
+                    .isBadRequest();
+        }
+    }
+
+    @Nested
+    @DisplayName("GET /api/v1/notes/search")
+    class SearchNotesTests {
+
+        @Test
+        @DisplayName("Should return the first page of matching notes")
+        void shouldReturnFirstPage() {
+            when(noteService.searchReports("hémoglobine", null, 0, 10))
+                    .thenReturn(new NoteSearchPage(createNoteList(), 0, true, false));
+
+            client.get()
+                    .uri(BASE_URL + "/search?q=hémoglobine")
+                    .accept(MediaType.APPLICATION_JSON)
+                    .exchange()
+                    .expectStatus()
+                    .isOk()
+                    .expectBody(NoteSearchResponseDto.class)
+                    .isEqualTo(
+                            new NoteSearchResponseDto(
+                                    createExpectedResponseList(), 0, true, false));
+        }
+
+        @Test
+        @DisplayName("Should pass the patient, page and size through")
+        void shouldPassPatientPageAndSize() {
+            when(noteService.searchReports("vertige", PATIENT_ID, 2, 5))
+                    .thenReturn(new NoteSearchPage(List.of(), 2, false, true));
+
+            client.get()
+                    .uri(BASE_URL + "/search?q=vertige&patientId=" + PATIENT_ID + "&page=2&size=5")
+                    .exchange()
+                    .expectStatus()
+                    .isOk()
+                    .expectBody(NoteSearchResponseDto.class)
+                    .isEqualTo(new NoteSearchResponseDto(List.of(), 2, false, true));
+        }
+
+        @Test
+        @DisplayName("Should return 400 when the query is blank")
+        void shouldReturn400WhenQueryIsBlank() {
+            when(noteService.searchReports(" ", null, 0, 10))
+                    .thenThrow(new InvalidSearchQueryException("Search query must not be blank"));
+
+            client.get().uri(BASE_URL + "/search?q= ").exchange().expectStatus().isBadRequest();
+        }
+    }
+
+    @Nested
+    @DisplayName("POST /api/v1/notes/by-patient-ids")
+    class GetNotesByPatientIdsTests {
+
+        @Test
+        @DisplayName("Should return all notes for the given patients")
+        void shouldReturnAllNotesForPatients() {
+            when(noteService.findByPatientIds(List.of(1L, 2L, 3L), false))
+                    .thenReturn(createNoteList());
+
+            client.post()
+                    .uri(BASE_URL + "/by-patient-ids")
+                    .contentType(MediaType.APPLICATION_JSON)
+                    .body("[1, 2, 3]")
+                    .exchange()
+                    .expectStatus()
+                    .isOk()
+                    .expectBody(new ParameterizedTypeReference<List<NoteResponseDto>>() {})
+                    .isEqualTo(createExpectedResponseList());
+        }
+    }
+
+    @Nested
+    @DisplayName("GET /api/v1/notes/patient/{patientId}/triggers")
+    class GetPatientTriggersTests {
+
+        @Test
+        @DisplayName("Should return the combined trigger mask of the patient")
+        void shouldReturnCombinedTriggerMask() {
+            when(noteService.findPatientTriggers(1L))
+                    .thenReturn(new PatientTriggers(1L, "3f2a9c01d4e7", 16L, List.of("fumeur")));
+
+            client.get()
+                    .uri(BASE_URL + "/patient/1/triggers")
+                    .exchange()
+                    .expectStatus()
+                    .isOk()
+                    .expectBody(PatientTriggersResponseDto.class)
+                    .isEqualTo(
+                            new PatientTriggersResponseDto(
+                                    1L, "3f2a9c01d4e7", 16L, List.of("fumeur")));
+        }
+    }
+
+    @Nested
+    @DisplayName("POST /api/v1/notes/patient/{patientId}/triggers")
+    class GetMatchedTriggerTermsTests {
+
+        @Test
+        @DisplayName("Should return the matched terms only")
+        void shouldReturnMatchedTerms() {
+            when(noteService.findMatchedTriggerTerms(1L, List.of("poids", "fumeur")))
+                    .thenReturn(List.of("fumeur"));
+
+            client.post()
+                    .uri(BASE_URL + "/patient/1/triggers")
+                    .contentType(MediaType.APPLICATION_JSON)
+                    .body("[\"poids\", \"fumeur\"]")
+                    .exchange()
+                    .expectStatus()
+                    .isOk()
+                    .expectBody(TriggerMatchResponseDto.class)
+                    .isEqualTo(new TriggerMatchResponseDto(1L, List.of("fumeur")));
+        }
+
+        @Test
+        @DisplayName("Should return 400 when the vocabulary is invalid")
+        void shouldReturn400WhenVocabularyIsInvalid() {
+            when(noteService.findMatchedTriggerTerms(1L, List.of(" ")))
+                    .thenThrow(new InvalidVocabularyException("Trigger terms must not be blank"));
+
+            client.post()
+                    .uri(BASE_URL + "/patient/1/triggers")
+                    .contentType(MediaType.APPLICATION_JSON)
+                    .body("[\" \"]")
+                    .exchange()
+                    .expectStatus()
+                    .isBadRequest();
+        }
     }
 
     @Nested
@@ -197,6 +457,86 @@ class NoteControllerTest {
         }
     }
 
+    @Nested
+    @DisplayName("POST /api/v1/notes/bulk")
+    class CreateNotesTests {
+
+        private static final List<BulkItemResult> ITEMS =
+                List.of(
+                        BulkItemResult.created(0, NOTE_ID),
+                        BulkItemResult.failed(1, "Report is required"));
+
+        @Test
+        @DisplayName("Should read a JSON array one note at a time")
+        void shouldReadJsonArray() {
+            when(noteService.createAll(any())).thenAnswer(this::readAll);
+
+            client.post()
+                    .uri(BASE_URL + "/bulk")
+                    .contentType(MediaType.APPLICATION_JSON)
+                    .body("[" + createNoteRequestJson() + ", {\"practitionerName\": \"x\"}]")
+                    .exchange()
+                    .expectStatus()
+                    .isOk()
+                    .expectBody(BulkCreateResponseDto.class)
+                    .isEqualTo(new BulkCreateResponseDto(1, 1, ITEMS, null));
+        }
+
+        @Test
+        @DisplayName("Should read an NDJSON stream one note at a time")
+        void shouldReadNdjsonStream() {
+            when(noteService.createAll(any())).thenAnswer(this::readAll);
+
+            client.post()
+                    .uri(BASE_URL + "/bulk")
+                    .contentType(MediaType.APPLICATION_NDJSON)
+                    .body(
+                            createNoteRequestJson().replace("\n", "")
+                                    + "\n{\"practitionerName\": \"x\"}\n")
+                    .exchange()
+                    .expectStatus()
+                    .isOk()
+                    .expectBody(BulkCreateResponseDto.class)
+                    .isEqualTo(new BulkCreateResponseDto(1, 1, ITEMS, null));
+        }
+
+        @Test
+        @DisplayName("Should return 400 with the notes stored before a malformed one")
+        void shouldReturn400WhenNoteIsMalformed() {
+            List<BulkItemResult> stored = List.of(BulkItemResult.created(0, NOTE_ID));
+            BulkItemResult parseError = BulkItemResult.failed(1, "Malformed note");
+            when(noteService.createAll(any()))
+                    .thenAnswer(
+                            invocation -> {
+                                Iterator<NoteRequestDto> requests = invocation.getArgument(0);
+                                assertThat(requests.next().practitionerName())
+                                        .isEqualTo(PRACTITIONER_NAME);
+                                assertThatThrownBy(requests::next)
+                                        .isInstanceOf(InvalidBulkRequestException.class)
+                                        .hasMessageStartingWith("Malformed note in bulk request");
+                                return new BulkCreateResult(1, stored, parseError);
+                            });
+
+            client.post()
+                    .uri(BASE_URL + "/bulk")
+                    .contentType(MediaType.APPLICATION_JSON)
+                    .body("[" + createNoteRequestJson() + ", {\"patientId\": }]")
+                    .exchange()
+                    .expectStatus()
+                    .isBadRequest()
+                    .expectBody(BulkCreateResponseDto.class)
+                    .isEqualTo(new BulkCreateResponseDto(1, 0, stored, parseError));
+        }
+
+        private BulkCreateResult readAll(InvocationOnMock invocation) {
+            Iterator<NoteRequestDto> requests = invocation.getArgument(0);
+            assertThat(requests.next().practitionerName()).isEqualTo(PRACTITIONER_NAME);
+            assertThat(requests.next().practitionerName()).isEqualTo("x");
+            assertThat(requests.hasNext()).isFalse();
+            return new BulkCreateResult(1, ITEMS, null);
+        }
+    }
+
     @Nested
     @DisplayName("PUT /api/v1/notes/{id}")
     class UpdateNoteReportTests {
@@ -206,7 +546,9 @@ class NoteControllerTest {
         void shouldUpdateNoteReportAndReturnUpdatedData() {
             Note updatedNote = createNote(NOTE_ID);
             updatedNote.setReport("Updated report content");
-            when(noteService.updateReport(eq(NOTE_ID), any(String.class))).thenReturn(updatedNote);
+            updatedNote.setVersion(3L);
+            when(noteService.updateReport(NOTE_ID, "Updated report content", 2L))
+                    .thenReturn(updatedNote);
 
             client.put()
                     .uri(BASE_URL + "/" + NOTE_ID)
@@ -222,7 +564,7 @@ class NoteControllerTest {
         @Test
         @DisplayName("Should return 404 when updating non-existent note")
         void shouldReturn404WhenUpdatingNonExistentNote() {
-            when(noteService.updateReport(eq(NOTE_ID), any(String.class)))
+            when(noteService.updateReport(eq(NOTE_ID), any(String.class), any()))
                     .thenThrow(new NoteNotFoundException(NOTE_ID));
 
             client.put()
@@ -234,6 +576,21 @@ class NoteControllerTest {
                     .isNotFound();
         }
 
+        @Test
+        @DisplayName("Should return 409 when the note changed since the version edited from")
+        void shouldReturn409WhenVersionIsStale() {
+            when(noteService.updateReport(NOTE_ID, "Updated report content", 2L))
+                    .thenThrow(new NoteVersionConflictException(NOTE_ID, 2L));
+
+            client.put()
+                    .uri(BASE_URL + "/" + NOTE_ID)
+                    .contentType(MediaType.APPLICATION_JSON)
+                    .body(createUpdateReportRequestJson())
+                    .exchange()
+                    .expectStatus()
+                    .isEqualTo(HttpStatus.CONFLICT);
+        }
+
         @Test
         @DisplayName("Should return 400 when request body is invalid")
         void shouldReturn400WhenRequestBodyIsInvalid() {
@@ -320,7 +677,8 @@ class NoteControllerTest {
     private static String createUpdateReportRequestJson() {
         return """
                 {
-                    "report": "Updated report content"
+                    "report": "Updated report content",
+                    "version": 2
                 }
                 """;
     }
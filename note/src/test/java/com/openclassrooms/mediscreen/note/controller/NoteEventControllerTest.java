@@ -0,0 +1,79 @@
+package com.openclassrooms.mediscreen.note.controller;
+
+import static org.mockito.Mockito.when;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.webmvc.test.autoconfigure.WebMvcTest;
+import org.springframework.core.ParameterizedTypeReference;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.client.RestTestClient;
+
+import com.openclassrooms.mediscreen.note.controller.dto.NoteEventResponseDto;
+import com.openclassrooms.mediscreen.note.exception.InvalidCursorException;
+import com.openclassrooms.mediscreen.note.model.NoteEvent;
+import com.openclassrooms.mediscreen.note.service.NoteEventService;
+
+@WebMvcTest(NoteEventController.class)
+class NoteEventControllerTest {
+
+    private static final String BASE_URL = "/api/v1/notes/events";
+    private static final String EVENT_ID = "60f532903ded77001064ae93";
+
+    @Autowired private MockMvc mockMvc;
+    private RestTestClient client;
+
+    @MockitoBean private NoteEventService noteEventService;
+
+    @BeforeEach
+    void setUp() {
+        client = RestTestClient.bindTo(mockMvc).build();
+    }
+
+    @Nested
+    @DisplayName("GET /api/v1/notes/events")
+    class GetEventsAfterTests {
+
+        @Test
+        @DisplayName("Should return the events after the given one")
+        void shouldReturnEventsAfterGivenOne() {
+            NoteEvent event =
+                    new NoteEvent(
+                            "60f532903ded77001064ae94",
+                            NoteEvent.Type.CREATED,
+                            "60f532903ded77001064ae92",
+                            1L,
+                            0L,
+                            LocalDateTime.of(2024, 1, 15, 10, 30));
+            when(noteEventService.findAfter(EVENT_ID, 100)).thenReturn(List.of(event));
+
+            client.get()
+                    .uri(BASE_URL + "?afterId=" + EVENT_ID)
+                    .exchange()
+                    .expectStatus()
+                    .isOk()
+                    .expectBody(new ParameterizedTypeReference<List<NoteEventResponseDto>>() {})
+                    .isEqualTo(List.of(NoteEventResponseDto.from(event)));
+        }
+
+        @Test
+        @DisplayName("Should return 400 when the event ID is invalid")
+        void shouldReturn400WhenEventIdIsInvalid() {
+            when(noteEventService.findAfter("latest", 100))
+                    .thenThrow(new InvalidCursorException("latest"));
+
+            client.get()
+                    .uri(BASE_URL + "?afterId=latest")
+                    .exchange()
+                    .expectStatus()
+                    .isBadRequest();
+        }
+    }
+}
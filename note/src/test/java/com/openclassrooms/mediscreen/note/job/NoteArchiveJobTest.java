@@ -0,0 +1,95 @@
+package com.openclassrooms.mediscreen.note.job;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.Mockito.inOrder;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InOrder;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.domain.Limit;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import com.openclassrooms.mediscreen.note.model.Note;
+import com.openclassrooms.mediscreen.note.repository.NoteRepository;
+
+@ExtendWith(MockitoExtension.class)
+class NoteArchiveJobTest {
+
+    private static final LocalDateTime OLD = LocalDateTime.of(2020, 1, 1, 0, 0);
+
+    @Mock private NoteRepository noteRepository;
+
+    @InjectMocks private NoteArchiveJob noteArchiveJob;
+
+    @BeforeEach
+    void setUp() {
+        ReflectionTestUtils.setField(noteArchiveJob, "minAge", Duration.ofDays(365));
+        ReflectionTestUtils.setField(noteArchiveJob, "batchSize", 2);
+    }
+
+    @Test
+    @DisplayName("Should archive old notes batch by batch until none is left")
+    void shouldArchiveBatchByBatch() {
+        List<Note> first = List.of(createNote("id1"), createNote("id2"));
+        List<Note> second = List.of(createNote("id3"));
+        when(noteRepository.findNoteByCreatedBeforeOrderByCreatedAsc(any(), any()))
+                .thenReturn(first, second);
+        when(noteRepository.archive(first)).thenReturn(2L);
+        when(noteRepository.archive(second)).thenReturn(1L);
+
+        long archived = noteArchiveJob.run();
+
+        assertThat(archived).isEqualTo(3);
+        InOrder order = inOrder(noteRepository);
+        order.verify(noteRepository).prepareArchive();
+        order.verify(noteRepository)
+                .findNoteByCreatedBeforeOrderByCreatedAsc(
+                        argThat(cutoff -> cutoff.isBefore(LocalDateTime.now().minusDays(364))),
+                        argThat(limit -> limit.equals(Limit.of(2))));
+        order.verify(noteRepository).archive(first);
+        order.verify(noteRepository).archive(second);
+    }
+
+    @Test
+    @DisplayName("Should do nothing when no note is old enough")
+    void shouldDoNothingWithoutOldNotes() {
+        when(noteRepository.findNoteByCreatedBeforeOrderByCreatedAsc(any(), any()))
+                .thenReturn(List.of());
+
+        assertThat(noteArchiveJob.run()).isZero();
+        verify(noteRepository, never()).archive(any());
+    }
+
+    @Test
+    @DisplayName("Should stop when a whole batch was updated while being archived")
+    void shouldStopWhenNothingWasRemoved() {
+        List<Note> batch = List.of(createNote("id1"), createNote("id2"));
+        when(noteRepository.findNoteByCreatedBeforeOrderByCreatedAsc(any(), any()))
+                .thenReturn(batch);
+        when(noteRepository.archive(batch)).thenReturn(0L);
+
+        assertThat(noteArchiveJob.run()).isZero();
+        verify(noteRepository, times(1)).archive(batch);
+    }
+
+    private static Note createNote(String id) {
+        Note note = new Note("Dr. Smith", 1L, "Patient fumeur", OLD);
+        note.setId(id);
+        return note;
+    }
+}
@@ -0,0 +1,108 @@
+package com.openclassrooms.mediscreen.note.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.domain.Limit;
+
+import com.openclassrooms.mediscreen.note.exception.InvalidCursorException;
+import com.openclassrooms.mediscreen.note.model.Note;
+import com.openclassrooms.mediscreen.note.model.NoteEvent;
+import com.openclassrooms.mediscreen.note.repository.NoteEventRepository;
+
+@ExtendWith(MockitoExtension.class)
+class NoteEventServiceTest {
+
+    private static final String NOTE_ID = "60f532903ded77001064ae92";
+    private static final String EVENT_ID = "60f532903ded77001064ae93";
+    private static final Long PATIENT_ID = 1L;
+
+    @Mock private NoteEventRepository noteEventRepository;
+
+    @InjectMocks private NoteEventService noteEventService;
+
+    @Nested
+    @DisplayName("record")
+    class RecordTests {
+
+        @Test
+        @DisplayName("Should record the note ID, patient ID and version")
+        void shouldRecordNoteIdentity() {
+            Note note = new Note("Dr. Smith", PATIENT_ID, "Report", LocalDateTime.now());
+            note.setId(NOTE_ID);
+            note.setVersion(4L);
+            ArgumentCaptor<NoteEvent> event = ArgumentCaptor.forClass(NoteEvent.class);
+
+            noteEventService.record(NoteEvent.Type.UPDATED, note);
+
+            verify(noteEventRepository).insert(event.capture());
+            assertThat(event.getValue().type()).isEqualTo(NoteEvent.Type.UPDATED);
+            assertThat(event.getValue().noteId()).isEqualTo(NOTE_ID);
+            assertThat(event.getValue().patientId()).isEqualTo(PATIENT_ID);
+            assertThat(event.getValue().version()).isEqualTo(4L);
+            assertThat(event.getValue().occurredAt()).isNotNull();
+        }
+
+        @Test
+        @DisplayName("Should not write anything for an empty batch")
+        void shouldSkipEmptyBatch() {
+            noteEventService.recordAll(NoteEvent.Type.CREATED, List.of());
+
+            verify(noteEventRepository, never()).insert(anyList());
+        }
+    }
+
+    @Nested
+    @DisplayName("findAfter")
+    class FindAfterTests {
+
+        @Test
+        @DisplayName("Should read from the oldest event without a position")
+        void shouldReadFromOldestEvent() {
+            noteEventService.findAfter(null, 100);
+
+            verify(noteEventRepository).findByOrderByIdAsc(Limit.of(100));
+        }
+
+        @Test
+        @DisplayName("Should read the events after the given one")
+        void shouldReadEventsAfterGivenOne() {
+            NoteEvent event =
+                    new NoteEvent(
+                            EVENT_ID,
+                            NoteEvent.Type.DELETED,
+                            NOTE_ID,
+                            PATIENT_ID,
+                            2L,
+                            LocalDateTime.now());
+            when(noteEventRepository.findByIdGreaterThanOrderByIdAsc(NOTE_ID, Limit.of(1000)))
+                    .thenReturn(List.of(event));
+
+            assertThat(noteEventService.findAfter(NOTE_ID, 50_000)).containsExactly(event);
+        }
+
+        @Test
+        @DisplayName("Should reject a position that is not an event ID")
+        void shouldRejectInvalidPosition() {
+            assertThatThrownBy(() -> noteEventService.findAfter("latest", 100))
+                    .isInstanceOf(InvalidCursorException.class);
+            verify(noteEventRepository, never()).findByIdGreaterThanOrderByIdAsc(any(), any());
+        }
+    }
+}
@@ -2,24 +2,64 @@ package com.openclassrooms.mediscreen.note.service;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.AdditionalAnswers.returnsFirstArg;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.isNull;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
+import java.time.Duration;
 import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.stream.Stream;
 
+import jakarta.validation.Validation;
+import jakarta.validation.Validator;
+
+import org.bson.types.ObjectId;
+import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Nested;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
+import org.mockito.Spy;
 import org.mockito.junit.jupiter.MockitoExtension;
-
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.data.domain.Limit;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import com.openclassrooms.mediscreen.note.controller.dto.NoteRequestDto;
+import com.openclassrooms.mediscreen.note.exception.InvalidBulkRequestException;
+import com.openclassrooms.mediscreen.note.exception.InvalidCursorException;
+import com.openclassrooms.mediscreen.note.exception.InvalidSearchQueryException;
+import com.openclassrooms.mediscreen.note.exception.InvalidVocabularyException;
 import com.openclassrooms.mediscreen.note.exception.NoteNotFoundException;
+import com.openclassrooms.mediscreen.note.exception.NoteVersionConflictException;
+import com.openclassrooms.mediscreen.note.model.BulkCreateResult;
+import com.openclassrooms.mediscreen.note.model.BulkItemResult;
 import com.openclassrooms.mediscreen.note.model.Note;
+import com.openclassrooms.mediscreen.note.model.NoteEvent;
+import com.openclassrooms.mediscreen.note.model.NotePage;
+import com.openclassrooms.mediscreen.note.model.NoteSearchPage;
+import com.openclassrooms.mediscreen.note.model.PatientTriggers;
+import com.openclassrooms.mediscreen.note.model.ReportCodec;
+import com.openclassrooms.mediscreen.note.model.TriggerMaskGroup;
 import com.openclassrooms.mediscreen.note.repository.NoteRepository;
 
 @ExtendWith(MockitoExtension.class)
@@ -32,6 +72,16 @@ class NoteServiceTest {
 
     @Mock private NoteRepository noteRepository;
 
+    @Spy
+    private TriggerVocabulary triggerVocabulary =
+            new TriggerVocabulary(new ClassPathResource("trigger-terms.txt"));
+
+    @Mock private NoteEventService noteEventService;
+
+    @Spy private ReportCompressor reportCompressor = new ReportCompressor(4096);
+
+    @Spy private Validator validator = Validation.buildDefaultValidatorFactory().getValidator();
+
     @InjectMocks private NoteService noteService;
 
     @Nested
@@ -44,10 +94,25 @@ class NoteServiceTest {
             List<Note> expectedNotes = createNoteList();
             when(noteRepository.findAll()).thenReturn(expectedNotes);
 
-            List<Note> result = noteService.findAll();
+            List<Note> result = noteService.findAll(false);
 
             assertThat(result).hasSize(3).containsExactlyElementsOf(expectedNotes);
             verify(noteRepository).findAll();
+            verify(noteRepository, never()).streamAllArchived();
+        }
+
+        @Test
+        @DisplayName("Should add archived notes to the full history from the note cursors")
+        void shouldAddArchivedNotesToFullHistory() {
+            List<Note> hotNotes = createNoteList();
+            Note archived = createNote("archived");
+            when(noteRepository.streamAll()).thenReturn(hotNotes.stream());
+            when(noteRepository.streamAllArchived()).thenReturn(Stream.of(archived));
+
+            List<Note> result = noteService.findAll(true);
+
+            assertThat(result).hasSize(4).endsWith(archived);
+            verify(noteRepository, never()).findAll();
         }
 
         @Test
@@ -55,13 +120,57 @@ class NoteServiceTest {
         void shouldReturnEmptyListWhenNoNotesExist() {
             when(noteRepository.findAll()).thenReturn(List.of());
 
-            List<Note> result = noteService.findAll();
+            List<Note> result = noteService.findAll(false);
 
             assertThat(result).isEmpty();
             verify(noteRepository).findAll();
         }
     }
 
+    @Nested
+    @DisplayName("streamAll")
+    class StreamAllTests {
+
+        @Test
+        @DisplayName("Should stream notes from the repository cursor")
+        void shouldStreamNotesFromRepositoryCursor() {
+            List<Note> expectedNotes = createNoteList();
+            when(noteRepository.streamAll()).thenReturn(expectedNotes.stream());
+
+            try (Stream<Note> result = noteService.streamAll(false)) {
+                assertThat(result).containsExactlyElementsOf(expectedNotes);
+            }
+            verify(noteRepository, never()).findAll();
+            verify(noteRepository, never()).streamAllArchived();
+        }
+
+        @Test
+        @DisplayName("Should open the archive cursor once the hot notes are consumed")
+        void shouldStreamArchivedNotesAfterHotNotes() {
+            List<Note> hotNotes = createNoteList();
+            Note archived = createNote("archived");
+            AtomicBoolean hotClosed = new AtomicBoolean();
+            AtomicBoolean archiveClosed = new AtomicBoolean();
+            when(noteRepository.streamAll())
+                    .thenReturn(hotNotes.stream().onClose(() -> hotClosed.set(true)));
+            when(noteRepository.streamAllArchived())
+                    .thenReturn(Stream.of(archived).onClose(() -> archiveClosed.set(true)));
+
+            try (Stream<Note> result = noteService.streamAll(true)) {
+                Iterator<Note> notes = result.iterator();
+                for (Note hot : hotNotes) {
+                    assertThat(notes.next()).isSameAs(hot);
+                }
+                verify(noteRepository, never()).streamAllArchived();
+
+                assertThat(notes.next()).isSameAs(archived);
+                assertThat(notes.hasNext()).isFalse();
+            }
+            assertThat(hotClosed).isTrue();
+            assertThat(archiveClosed).isTrue();
+        }
+    }
+
     @Nested
     @DisplayName("findById")
     class FindByIdTests {
@@ -78,10 +187,21 @@ class NoteServiceTest {
             verify(noteRepository).findById(NOTE_ID);
         }
 
+        @Test
+        @DisplayName("Should return an archived note")
+        void shouldReturnArchivedNote() {
+            Note archived = createNote(NOTE_ID);
+            when(noteRepository.findById(NOTE_ID)).thenReturn(Optional.empty());
+            when(noteRepository.findArchivedById(NOTE_ID)).thenReturn(Optional.of(archived));
+
+            assertThat(noteService.findById(NOTE_ID)).isEqualTo(archived);
+        }
+
         @Test
         @DisplayName("Should throw NoteNotFoundException when not found")
         void shouldThrowExceptionWhenNotFound() {
             when(noteRepository.findById(NOTE_ID)).thenReturn(Optional.empty());
+            when(noteRepository.findArchivedById(NOTE_ID)).thenReturn(Optional.empty());
 
             assertThatThrownBy(() -> noteService.findById(NOTE_ID))
                     .isInstanceOf(NoteNotFoundException.class)
@@ -99,7 +219,7 @@ class NoteServiceTest {
             List<Note> expectedNotes = createNoteList();
             when(noteRepository.findNoteByPatientId(PATIENT_ID)).thenReturn(expectedNotes);
 
-            List<Note> result = noteService.findByPatientId(PATIENT_ID);
+            List<Note> result = noteService.findByPatientId(PATIENT_ID, false);
 
             assertThat(result).hasSize(3).containsExactlyElementsOf(expectedNotes);
             verify(noteRepository).findNoteByPatientId(PATIENT_ID);
@@ -110,11 +230,349 @@ class NoteServiceTest {
         void shouldReturnEmptyListWhenPatientHasNoNotes() {
             when(noteRepository.findNoteByPatientId(PATIENT_ID)).thenReturn(List.of());
 
-            List<Note> result = noteService.findByPatientId(PATIENT_ID);
+            List<Note> result = noteService.findByPatientId(PATIENT_ID, false);
 
             assertThat(result).isEmpty();
             verify(noteRepository).findNoteByPatientId(PATIENT_ID);
         }
+
+        @Test
+        @DisplayName("Should not read the archive without full history")
+        void shouldNotReadArchiveWithoutFullHistory() {
+            when(noteRepository.findNoteByPatientId(PATIENT_ID)).thenReturn(createNoteList());
+
+            noteService.findByPatientId(PATIENT_ID, false);
+
+            verify(noteRepository, never()).findArchivedByPatientId(PATIENT_ID);
+        }
+
+        @Test
+        @DisplayName("Should merge archived notes into the full history")
+        void shouldMergeArchivedNotes() {
+            Note hot = createNote("id1");
+            Note archived = createNote("id2");
+            Note leftOver = createNote("id1");
+            leftOver.setReport("Archived copy of a note still hot");
+            when(noteRepository.findNoteByPatientId(PATIENT_ID)).thenReturn(List.of(hot));
+            when(noteRepository.findArchivedByPatientId(PATIENT_ID))
+                    .thenReturn(List.of(leftOver, archived));
+
+            List<Note> result = noteService.findByPatientId(PATIENT_ID, true);
+
+            assertThat(result).containsExactly(hot, archived);
+        }
+    }
+
+    @Nested
+    @DisplayName("findPageByPatientId")
+    class FindPageByPatientIdTests {
+
+        private static final LocalDateTime NEWEST = LocalDateTime.of(2024, 1, 15, 10, 30);
+
+        @Test
+        @DisplayName("Should return the last page without a cursor")
+        void shouldReturnLastPageWithoutCursor() {
+            List<Note> notes = createDatedNotes(2);
+            when(noteRepository.findFirstPageByPatientId(PATIENT_ID, Limit.of(11)))
+                    .thenReturn(notes);
+
+            NotePage page = noteService.findPageByPatientId(PATIENT_ID, null, 10);
+
+            assertThat(page.notes()).containsExactlyElementsOf(notes);
+            assertThat(page.nextCursor()).isNull();
+        }
+
+        @Test
+        @DisplayName("Should continue after the last note of the previous page")
+        void shouldContinueAfterLastNoteOfPreviousPage() {
+            List<Note> notes = createDatedNotes(3);
+            when(noteRepository.findFirstPageByPatientId(PATIENT_ID, Limit.of(3)))
+                    .thenReturn(notes);
+
+            NotePage first = noteService.findPageByPatientId(PATIENT_ID, null, 2);
+            noteService.findPageByPatientId(PATIENT_ID, first.nextCursor(), 2);
+
+            assertThat(first.notes()).containsExactlyElementsOf(notes.subList(0, 2));
+            assertThat(first.nextCursor()).isNotBlank();
+            verify(noteRepository)
+                    .findPageByPatientIdBefore(
+                            PATIENT_ID,
+                            notes.get(1).getCreated(),
+                            new ObjectId(notes.get(1).getId()),
+                            Limit.of(3));
+        }
+
+        @Test
+        @DisplayName("Should cap the page size")
+        void shouldCapPageSize() {
+            noteService.findPageByPatientId(PATIENT_ID, null, 10_000);
+
+            verify(noteRepository)
+                    .findFirstPageByPatientId(PATIENT_ID, Limit.of(NoteService.MAX_PAGE_SIZE + 1));
+        }
+
+        @Test
+        @DisplayName("Should reject a cursor it did not issue")
+        void shouldRejectUnknownCursor() {
+            // "not-a-cursor", URL-safe base64 encoded
+            String cursor = "bm90LWEtY3Vyc29y";
+
+            assertThatThrownBy(() -> noteService.findPageByPatientId(PATIENT_ID, cursor, 10))
+                    .isInstanceOf(InvalidCursorException.class);
+            verify(noteRepository, never()).findPageByPatientIdBefore(any(), any(), any(), any());
+        }
+
+        private static List<Note> createDatedNotes(int count) {
+            List<Note> notes = new ArrayList<>();
+            for (int i = 0; i < count; i++) {
+                Note note = new Note(PRACTITIONER_NAME, PATIENT_ID, REPORT, NEWEST.minusDays(i));
+                note.setId(new ObjectId().toHexString());
+                notes.add(note);
+            }
+            return notes;
+        }
+    }
+
+    @Nested
+    @DisplayName("searchReports")
+    class SearchReportsTests {
+
+        @Test
+        @DisplayName("Should skip the previous pages and fetch one extra note")
+        void shouldSkipPreviousPages() {
+            Note note = createNote(NOTE_ID);
+            when(noteRepository.searchReports("cholestérol", PATIENT_ID, 20L, 11))
+                    .thenReturn(List.of(note));
+
+            NoteSearchPage result = noteService.searchReports(" cholestérol ", PATIENT_ID, 2, 10);
+
+            assertThat(result.notes()).containsExactly(note);
+            assertThat(result.page()).isEqualTo(2);
+            assertThat(result.hasNext()).isFalse();
+            assertThat(result.partial()).isFalse();
+        }
+
+        @Test
+        @DisplayName("Should report a next page when more notes match")
+        void shouldReportNextPage() {
+            when(noteRepository.searchReports("vertige", null, 0L, 3))
+                    .thenReturn(List.of(createNote("id1"), createNote("id2"), createNote("id3")));
+
+            NoteSearchPage result = noteService.searchReports("vertige", null, 0, 2);
+
+            assertThat(result.notes()).extracting(Note::getId).containsExactly("id1", "id2");
+            assertThat(result.hasNext()).isTrue();
+        }
+
+        @Test
+        @DisplayName("Should flag the page partial when the patient has archived notes")
+        void shouldFlagPartialWhenNotesArchived() {
+            when(noteRepository.searchReports("vertige", PATIENT_ID, 0L, 11))
+                    .thenReturn(List.of(createNote(NOTE_ID)));
+            when(noteRepository.hasArchivedNotes(PATIENT_ID)).thenReturn(true);
+
+            NoteSearchPage result = noteService.searchReports("vertige", PATIENT_ID, 0, 10);
+
+            assertThat(result.partial()).isTrue();
+        }
+
+        @Test
+        @DisplayName("Should clamp the page size")
+        void shouldClampPageSize() {
+            when(noteRepository.searchReports("poids", null, 0L, NoteService.MAX_PAGE_SIZE + 1))
+                    .thenReturn(List.of());
+
+            NoteSearchPage result = noteService.searchReports("poids", null, 0, 10_000);
+
+            assertThat(result.notes()).isEmpty();
+            assertThat(result.hasNext()).isFalse();
+        }
+
+        @Test
+        @DisplayName("Should reject a blank query")
+        void shouldRejectBlankQuery() {
+            assertThatThrownBy(() -> noteService.searchReports("  ", PATIENT_ID, 0, 10))
+                    .isInstanceOf(InvalidSearchQueryException.class);
+            verify(noteRepository, never()).searchReports(any(), any(), anyLong(), anyInt());
+        }
+
+        @Test
+        @DisplayName("Should reject a negative page")
+        void shouldRejectNegativePage() {
+            assertThatThrownBy(() -> noteService.searchReports("poids", PATIENT_ID, -1, 10))
+                    .isInstanceOf(InvalidSearchQueryException.class);
+        }
+    }
+
+    @Nested
+    @DisplayName("findByPatientIds")
+    class FindByPatientIdsTests {
+
+        @Test
+        @DisplayName("Should return all notes for the given patients")
+        void shouldReturnAllNotesForPatients() {
+            List<Long> patientIds = List.of(1L, 2L, 3L);
+            List<Note> expectedNotes = createNoteList();
+            when(noteRepository.findNoteByPatientIdIn(patientIds)).thenReturn(expectedNotes);
+
+            List<Note> result = noteService.findByPatientIds(patientIds, false);
+
+            assertThat(result).containsExactlyElementsOf(expectedNotes);
+            verify(noteRepository).findNoteByPatientIdIn(patientIds);
+            verify(noteRepository, never()).findArchivedByPatientIdIn(any());
+        }
+
+        @Test
+        @DisplayName("Should add the archived notes of the patients to the full history")
+        void shouldAddArchivedNotesToFullHistory() {
+            List<Long> patientIds = List.of(1L, 2L);
+            Note archived = createNote("archived");
+            when(noteRepository.findNoteByPatientIdIn(patientIds)).thenReturn(createNoteList());
+            when(noteRepository.findArchivedByPatientIdIn(patientIds))
+                    .thenReturn(List.of(archived));
+
+            List<Note> result = noteService.findByPatientIds(patientIds, true);
+
+            assertThat(result).hasSize(4).endsWith(archived);
+        }
+    }
+
+    @Nested
+    @DisplayName("findMatchedTriggerTerms")
+    class FindMatchedTriggerTermsTests {
+
+        @Test
+        @DisplayName("Should return the terms found across the notes of the patient")
+        void shouldReturnMatchedTerms() {
+            when(noteRepository.streamReportsByPatientId(PATIENT_ID))
+                    .thenReturn(
+                            Stream.of(
+                                    createNoteWithDetails(null, null, null, "Patient Fumeur"),
+                                    createNoteWithDetails(null, null, null, null),
+                                    createNoteWithDetails(null, null, null, "Vertige ce matin")));
+
+            List<String> result =
+                    noteService.findMatchedTriggerTerms(
+                            PATIENT_ID, List.of("poids", "fumeur", "vertige"));
+
+            assertThat(result).containsExactly("fumeur", "vertige");
+        }
+
+        @Test
+        @DisplayName("Should stop reading notes once every term has been found")
+        void shouldStopOnceEveryTermIsFound() {
+            Note unread = createNoteWithDetails(null, null, null, "Poids stable");
+            List<Note> read = new ArrayList<>();
+            when(noteRepository.streamReportsByPatientId(PATIENT_ID))
+                    .thenReturn(
+                            Stream.of(
+                                            createNoteWithDetails(
+                                                    null, null, null, "Patient fumeur"),
+                                            unread)
+                                    .peek(read::add));
+
+            List<String> result =
+                    noteService.findMatchedTriggerTerms(PATIENT_ID, List.of("fumeur"));
+
+            assertThat(result).containsExactly("fumeur");
+            assertThat(read).doesNotContain(unread);
+        }
+
+        @Test
+        @DisplayName("Should read the archive only for the terms missing from recent notes")
+        void shouldReadArchiveOnlyForMissingTerms() {
+            when(noteRepository.streamReportsByPatientId(PATIENT_ID))
+                    .thenReturn(Stream.of(createNoteWithDetails(null, null, null, "Fumeur")));
+            when(noteRepository.streamArchivedReportsByPatientId(PATIENT_ID))
+                    .thenReturn(Stream.of(createNoteWithDetails(null, null, null, "Vertige")));
+
+            assertThat(noteService.findMatchedTriggerTerms(PATIENT_ID, List.of("fumeur")))
+                    .containsExactly("fumeur");
+            verify(noteRepository, never()).streamArchivedReportsByPatientId(PATIENT_ID);
+
+            assertThat(
+                            noteService.findMatchedTriggerTerms(
+                                    PATIENT_ID, List.of("fumeur", "vertige")))
+                    .containsExactly("vertige");
+        }
+
+        @Test
+        @DisplayName("Should reject an invalid vocabulary")
+        void shouldRejectInvalidVocabulary() {
+            assertThatThrownBy(
+                            () -> noteService.findMatchedTriggerTerms(PATIENT_ID, List.of(" ")))
+                    .isInstanceOf(InvalidVocabularyException.class);
+        }
+
+        @Test
+        @DisplayName("Should reject a vocabulary holding a null term")
+        void shouldRejectNullTerm() {
+            List<String> terms = Arrays.asList("fumeur", null);
+
+            assertThatThrownBy(() -> noteService.findMatchedTriggerTerms(PATIENT_ID, terms))
+                    .isInstanceOf(InvalidVocabularyException.class);
+        }
+    }
+
+    @Nested
+    @DisplayName("findPatientTriggers")
+    class FindPatientTriggersTests {
+
+        @Test
+        @DisplayName("Should combine the stored masks without reading any note")
+        void shouldCombineStoredMasks() {
+            String version = triggerVocabulary.version();
+            long mask = triggerVocabulary.maskOf("fumeur vertige");
+            when(noteRepository.aggregateTriggerMasksByPatientId(PATIENT_ID))
+                    .thenReturn(List.of(new TriggerMaskGroup(version, mask, 3)));
+
+            PatientTriggers result = noteService.findPatientTriggers(PATIENT_ID);
+
+            assertThat(result.vocabularyVersion()).isEqualTo(version);
+            assertThat(result.matchedTerms()).containsExactly("fumeur", "vertige");
+            verify(noteRepository, never())
+                    .findNoteByPatientIdAndVocabularyVersionNot(PATIENT_ID, version);
+            verify(noteRepository, never())
+                    .findArchivedByPatientIdAndVocabularyVersionNot(PATIENT_ID, version);
+        }
+
+        @Test
+        @DisplayName("Should rescan the notes stored under another vocabulary version")
+        void shouldRescanOutdatedNotes() {
+            String version = triggerVocabulary.version();
+            when(noteRepository.aggregateTriggerMasksByPatientId(PATIENT_ID))
+                    .thenReturn(
+                            List.of(
+                                    new TriggerMaskGroup(
+                                            version, triggerVocabulary.maskOf("fumeur"), 1),
+                                    new TriggerMaskGroup(null, null, 1)));
+            when(noteRepository.findNoteByPatientIdAndVocabularyVersionNot(PATIENT_ID, version))
+                    .thenReturn(
+                            List.of(
+                                    createNoteWithDetails(
+                                            "id1", PRACTITIONER_NAME, PATIENT_ID, "Rechute")));
+
+            PatientTriggers result = noteService.findPatientTriggers(PATIENT_ID);
+
+            assertThat(result.matchedTerms()).containsExactly("fumeur", "rechute");
+        }
+
+        @Test
+        @DisplayName("Should rescan the archived notes stored under another vocabulary version")
+        void shouldRescanOutdatedArchivedNotes() {
+            String version = triggerVocabulary.version();
+            Note outdated = createNoteWithDetails("id2", PRACTITIONER_NAME, PATIENT_ID, "Rechute");
+            outdated.setVocabularyVersion("previous");
+            when(noteRepository.aggregateTriggerMasksByPatientId(PATIENT_ID))
+                    .thenReturn(List.of(new TriggerMaskGroup("previous", 0L, 1)));
+            when(noteRepository.findArchivedByPatientIdAndVocabularyVersionNot(PATIENT_ID, version))
+                    .thenReturn(List.of(outdated));
+
+            PatientTriggers result = noteService.findPatientTriggers(PATIENT_ID);
+
+            assertThat(result.matchedTerms()).containsExactly("rechute");
+            verify(noteRepository, never()).findArchivedByPatientId(PATIENT_ID);
+        }
     }
 
     @Nested
@@ -136,6 +594,154 @@ class NoteServiceTest {
             assertThat(result.getId()).isEqualTo(NOTE_ID);
             assertThat(noteToCreate.getCreated()).isNotNull();
             verify(noteRepository).save(noteToCreate);
+            verify(noteEventService).record(NoteEvent.Type.CREATED, savedNote);
+        }
+
+        @Test
+        @DisplayName("Should store the trigger mask and vocabulary version of the report")
+        void shouldStoreTriggerMask() {
+            Note noteToCreate =
+                    createNoteWithDetails(null, PRACTITIONER_NAME, PATIENT_ID, "Fumeur");
+            when(noteRepository.save(any(Note.class))).then(returnsFirstArg());
+
+            Note result = noteService.create(noteToCreate);
+
+            assertThat(result.getVocabularyVersion()).isEqualTo(triggerVocabulary.version());
+            assertThat(triggerVocabulary.matcher().termsOf(result.getTriggerMask()))
+                    .containsExactly("fumeur");
+        }
+
+        @Test
+        @DisplayName("Should compress a large report and decompress it only when read")
+        void shouldCompressLargeReport() {
+            String largeReport = "Poids stable, taille normale. ".repeat(500);
+            Note noteToCreate =
+                    createNoteWithDetails(null, PRACTITIONER_NAME, PATIENT_ID, largeReport);
+            when(noteRepository.save(any(Note.class))).then(returnsFirstArg());
+
+            Note result = noteService.create(noteToCreate);
+
+            Note stored = new Note(PRACTITIONER_NAME, PATIENT_ID, null, result.getCreated());
+            stored.compressReport(
+                    result.getReportCodec(), result.getCompressedReport(), result.getReportTerms());
+            assertThat(result.getCompressedReport()).hasSizeLessThan(largeReport.length() / 10);
+            assertThat(stored.getReport()).isEqualTo(largeReport);
+            assertThat(result.getReportTerms()).isEqualTo("poids stable taille normale");
+        }
+
+        @Test
+        @DisplayName("Should store a short report as is")
+        void shouldStoreShortReportAsIs() {
+            when(noteRepository.save(any(Note.class))).then(returnsFirstArg());
+
+            Note result = noteService.create(createNote(null));
+
+            assertThat(result.getCompressedReport()).isNull();
+            assertThat(result.getReportCodec()).isNull();
+            assertThat(result.getReport()).isEqualTo(REPORT);
+        }
+    }
+
+    @Nested
+    @DisplayName("createAll")
+    class CreateAllTests {
+
+        @BeforeEach
+        void setUp() {
+            ReflectionTestUtils.setField(noteService, "bulkChunkSize", 2);
+        }
+
+        @Test
+        @DisplayName("Should insert valid notes in chunks and count them")
+        void shouldInsertValidNotesInChunks() {
+            when(noteRepository.insertUnordered(anyList())).thenReturn(Map.of());
+
+            BulkCreateResult result =
+                    noteService.createAll(
+                            List.of(validRequest(), validRequest(), validRequest()).iterator());
+
+            assertThat(result.createdCount()).isEqualTo(3);
+            assertThat(result.items())
+                    .extracting(BulkItemResult::index)
+                    .containsExactly(0, 1, 2);
+            assertThat(result.items())
+                    .allSatisfy(item -> assertThat(ObjectId.isValid(item.id())).isTrue());
+            assertThat(result.parseError()).isNull();
+            verify(noteRepository, times(2)).insertUnordered(anyList());
+        }
+
+        @Test
+        @DisplayName("Should report invalid notes without writing them")
+        void shouldReportInvalidNotes() {
+            when(noteRepository.insertUnordered(anyList())).thenReturn(Map.of());
+            NoteRequestDto invalid = new NoteRequestDto("", PATIENT_ID, REPORT);
+
+            BulkCreateResult result =
+                    noteService.createAll(List.of(invalid, validRequest()).iterator());
+
+            assertThat(result.createdCount()).isEqualTo(1);
+            assertThat(result.items()).hasSize(2);
+            assertThat(result.items().get(0))
+                    .isEqualTo(BulkItemResult.failed(0, "Practitioner name is required"));
+            assertThat(result.items().get(1).succeeded()).isTrue();
+        }
+
+        @Test
+        @DisplayName("Should report notes rejected by the database at their request index")
+        void shouldReportRejectedNotes() {
+            when(noteRepository.insertUnordered(anyList()))
+                    .thenReturn(Map.of(1, "E11000 duplicate key error"))
+                    .thenReturn(Map.of());
+
+            BulkCreateResult result =
+                    noteService.createAll(
+                            List.of(validRequest(), validRequest(), validRequest()).iterator());
+
+            assertThat(result.createdCount()).isEqualTo(2);
+            assertThat(result.items())
+                    .extracting(BulkItemResult::succeeded)
+                    .containsExactly(true, false, true);
+            assertThat(result.items().get(1).error()).contains("duplicate key");
+            verify(noteEventService)
+                    .recordAll(
+                            eq(NoteEvent.Type.CREATED),
+                            argThat(notes -> notes.size() == 1));
+        }
+
+        @Test
+        @DisplayName("Should store and report the notes read before a malformed one")
+        void shouldStoreNotesReadBeforeMalformedOne() {
+            Iterator<NoteRequestDto> requests =
+                    new Iterator<>() {
+                        private boolean read;
+
+                        @Override
+                        public boolean hasNext() {
+                            return true;
+                        }
+
+                        @Override
+                        public NoteRequestDto next() {
+                            if (read) {
+                                throw new InvalidBulkRequestException("Malformed note", null);
+                            }
+                            read = true;
+                            return validRequest();
+                        }
+                    };
+
+            when(noteRepository.insertUnordered(anyList())).thenReturn(Map.of());
+
+            BulkCreateResult result = noteService.createAll(requests);
+
+            assertThat(result.createdCount()).isEqualTo(1);
+            assertThat(result.items()).hasSize(1);
+            assertThat(result.parseError()).isEqualTo(BulkItemResult.failed(1, "Malformed note"));
+            verify(noteRepository).insertUnordered(anyList());
+        }
+
+        private static NoteRequestDto validRequest() {
+            return new NoteRequestDto(PRACTITIONER_NAME, PATIENT_ID, REPORT);
         }
     }
 
@@ -144,58 +750,166 @@ class NoteServiceTest {
     class UpdateReportTests {
 
         @Test
-        @DisplayName("Should update and return note with new report")
+        @DisplayName("Should update and return note with new report in a single update")
         void shouldUpdateAndReturnNote() {
             String newReport = "Updated report content";
-            Note existingNote = createNote(NOTE_ID);
             Note updatedNote = createNote(NOTE_ID);
             updatedNote.setReport(newReport);
+            updatedNote.setVersion(3L);
+            when(noteRepository.updateReport(eq(NOTE_ID), eq(2L), any(Note.class)))
+                    .thenReturn(Optional.of(updatedNote));
 
-            when(noteRepository.findById(NOTE_ID)).thenReturn(Optional.of(existingNote));
-            when(noteRepository.save(any(Note.class))).thenReturn(updatedNote);
+            Note result = noteService.updateReport(NOTE_ID, newReport, 2L);
 
-            Note result = noteService.updateReport(NOTE_ID, newReport);
+            assertThat(result).isEqualTo(updatedNote);
+            verify(noteRepository, never()).findById(NOTE_ID);
+            verify(noteRepository, never()).save(any(Note.class));
+            verify(noteEventService).record(NoteEvent.Type.UPDATED, updatedNote);
+        }
 
-            assertThat(result.getReport()).isEqualTo(newReport);
-            verify(noteRepository).findById(NOTE_ID);
-            verify(noteRepository).save(existingNote);
+        @Test
+        @DisplayName("Should recompute the trigger mask of the new report")
+        void shouldRecomputeTriggerMask() {
+            ArgumentCaptor<Note> changes = ArgumentCaptor.forClass(Note.class);
+            when(noteRepository.updateReport(eq(NOTE_ID), isNull(), changes.capture()))
+                    .thenReturn(Optional.of(createNote(NOTE_ID)));
+
+            noteService.updateReport(NOTE_ID, "Vertige", null);
+
+            assertThat(changes.getValue().getReport()).isEqualTo("Vertige");
+            assertThat(changes.getValue().getVocabularyVersion())
+                    .isEqualTo(triggerVocabulary.version());
+            assertThat(triggerVocabulary.matcher().termsOf(changes.getValue().getTriggerMask()))
+                    .containsExactly("vertige");
+        }
+
+        @Test
+        @DisplayName("Should store a large new report compressed")
+        void shouldCompressLargeReport() {
+            String largeReport = "Patient fumeur, vertige ce matin. ".repeat(500);
+            ArgumentCaptor<Note> changes = ArgumentCaptor.forClass(Note.class);
+            when(noteRepository.updateReport(eq(NOTE_ID), isNull(), changes.capture()))
+                    .thenReturn(Optional.of(createNote(NOTE_ID)));
+
+            noteService.updateReport(NOTE_ID, largeReport, null);
+
+            assertThat(changes.getValue().getCompressedReport())
+                    .isNotNull()
+                    .hasSizeLessThan(largeReport.length());
+            assertThat(changes.getValue().getReportCodec()).isEqualTo(ReportCodec.DEFLATE);
+            assertThat(triggerVocabulary.matcher().termsOf(changes.getValue().getTriggerMask()))
+                    .containsExactly("fumeur", "vertige");
+        }
+
+        @Test
+        @DisplayName("Should throw NoteVersionConflictException when the note changed meanwhile")
+        void shouldThrowExceptionWhenVersionIsStale() {
+            when(noteRepository.updateReport(any(), any(), any()))
+                    .thenReturn(Optional.empty());
+            when(noteRepository.existsById(NOTE_ID)).thenReturn(true);
+
+            assertThatThrownBy(() -> noteService.updateReport(NOTE_ID, "new report", 1L))
+                    .isInstanceOf(NoteVersionConflictException.class)
+                    .hasMessageContaining(NOTE_ID);
+            verify(noteEventService, never()).record(any(), any());
         }
 
         @Test
         @DisplayName("Should throw NoteNotFoundException when updating non-existent note")
         void shouldThrowExceptionWhenUpdatingNonExistentNote() {
-            when(noteRepository.findById(NOTE_ID)).thenReturn(Optional.empty());
+            when(noteRepository.updateReport(any(), any(), any()))
+                    .thenReturn(Optional.empty());
+            when(noteRepository.existsById(NOTE_ID)).thenReturn(false);
 
-            assertThatThrownBy(() -> noteService.updateReport(NOTE_ID, "new report"))
+            assertThatThrownBy(() -> noteService.updateReport(NOTE_ID, "new report", null))
                     .isInstanceOf(NoteNotFoundException.class)
                     .hasMessageContaining(NOTE_ID);
         }
+
+        @Test
+        @DisplayName("Should update an archived note in the archive")
+        void shouldUpdateArchivedNote() {
+            Note updated = createNote(NOTE_ID);
+            when(noteRepository.updateReport(any(), any(), any())).thenReturn(Optional.empty());
+            when(noteRepository.existsById(NOTE_ID)).thenReturn(false);
+            when(noteRepository.updateArchivedReport(eq(NOTE_ID), eq(1L), any()))
+                    .thenReturn(Optional.of(updated));
+
+            Note result = noteService.updateReport(NOTE_ID, "new report", 1L);
+
+            assertThat(result).isEqualTo(updated);
+            verify(noteEventService).record(NoteEvent.Type.UPDATED, updated);
+        }
+
+        @Test
+        @DisplayName("Should throw NoteVersionConflictException when an archived note changed")
+        void shouldThrowExceptionWhenArchivedVersionIsStale() {
+            when(noteRepository.updateReport(any(), any(), any())).thenReturn(Optional.empty());
+            when(noteRepository.updateArchivedReport(any(), any(), any()))
+                    .thenReturn(Optional.empty());
+            when(noteRepository.existsArchivedById(NOTE_ID)).thenReturn(true);
+
+            assertThatThrownBy(() -> noteService.updateReport(NOTE_ID, "new report", 1L))
+                    .isInstanceOf(NoteVersionConflictException.class);
+        }
     }
 
     @Nested
     @DisplayName("delete")
     class DeleteTests {
 
+        @BeforeEach
+        void setUp() {
+            ReflectionTestUtils.setField(noteService, "archiveMinAge", Duration.ofDays(365));
+        }
+
         @Test
-        @DisplayName("Should delete note when found")
+        @DisplayName("Should delete note without reading it and record the deletion")
         void shouldDeleteNoteWhenFound() {
             Note note = createNote(NOTE_ID);
-            when(noteRepository.findById(NOTE_ID)).thenReturn(Optional.of(note));
+            when(noteRepository.deleteNoteById(NOTE_ID)).thenReturn(Optional.of(note));
 
             noteService.delete(NOTE_ID);
 
-            verify(noteRepository).findById(NOTE_ID);
-            verify(noteRepository).delete(note);
+            verify(noteRepository, never()).findById(NOTE_ID);
+            verify(noteRepository, never()).deleteArchivedById(NOTE_ID);
+            verify(noteEventService).record(NoteEvent.Type.DELETED, note);
+        }
+
+        @Test
+        @DisplayName("Should remove the archive copy of a hot note old enough to be archived")
+        void shouldDeleteArchiveCopyOfOldNote() {
+            Note note = createNote(NOTE_ID);
+            note.setCreated(LocalDateTime.now().minusYears(2));
+            when(noteRepository.deleteNoteById(NOTE_ID)).thenReturn(Optional.of(note));
+
+            noteService.delete(NOTE_ID);
+
+            verify(noteRepository).deleteArchivedById(NOTE_ID);
+            verify(noteEventService).record(NoteEvent.Type.DELETED, note);
+        }
+
+        @Test
+        @DisplayName("Should delete an archived note")
+        void shouldDeleteArchivedNote() {
+            Note archived = createNote(NOTE_ID);
+            when(noteRepository.deleteNoteById(NOTE_ID)).thenReturn(Optional.empty());
+            when(noteRepository.deleteArchivedById(NOTE_ID)).thenReturn(Optional.of(archived));
+
+            noteService.delete(NOTE_ID);
+
+            verify(noteEventService).record(NoteEvent.Type.DELETED, archived);
         }
 
         @Test
         @DisplayName("Should throw NoteNotFoundException when deleting non-existent note")
         void shouldThrowExceptionWhenDeletingNonExistentNote() {
-            when(noteRepository.findById(NOTE_ID)).thenReturn(Optional.empty());
+            when(noteRepository.deleteNoteById(NOTE_ID)).thenReturn(Optional.empty());
 
             assertThatThrownBy(() -> noteService.delete(NOTE_ID))
                     .isInstanceOf(NoteNotFoundException.class)
                     .hasMessageContaining(NOTE_ID);
+            verify(noteEventService, never()).record(any(), any());
         }
     }
 
@@ -13,6 +13,7 @@ import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.PutMapping;
 import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
 
 import com.openclassrooms.mediscreen.patient.controller.dto.PatientRequestDto;
@@ -55,6 +56,31 @@ public class PatientController {
         return PatientResponseDto.from(patientService.findById(id));
     }
 
+    @Operation(
+            summary = "Retrieve a page of patients ordered by ID",
+            description =
+                    "Keyset pagination: pass the last ID of the previous page as afterId to get the next page")
+    @ApiResponses(
+            value = {@ApiResponse(responseCode = "200", description = "Page of patients returned")})
+    @GetMapping("/page")
+    public List<PatientResponseDto> getPatientsPage(
+            @RequestParam(defaultValue = "0") Long afterId,
+            @RequestParam(defaultValue = "500") int size) {
+        return patientService.findPageAfter(afterId, size).stream()
+                .map(PatientResponseDto::from)
+                .toList();
+    }
+
+    @Operation(summary = "Retrieve the patients matching a list of IDs")
+    @ApiResponses(
+            value = {
+                @ApiResponse(responseCode = "200", description = "List of found patients returned")
+            })
+    @PostMapping("/by-ids")
+    public List<PatientResponseDto> getPatientsByIds(@RequestBody List<Long> ids) {
+        return patientService.findAllById(ids).stream().map(PatientResponseDto::from).toList();
+    }
+
     @Operation(summary = "Create a new patient")
     @ApiResponses(
             value = {
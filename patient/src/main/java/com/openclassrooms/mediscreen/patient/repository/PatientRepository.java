@@ -1,9 +1,15 @@
 package com.openclassrooms.mediscreen.patient.repository;
 
+import java.util.List;
+
+import org.springframework.data.domain.Limit;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.stereotype.Repository;
 
 import com.openclassrooms.mediscreen.patient.model.Patient;
 
 @Repository
-public interface PatientRepository extends JpaRepository<Patient, Long> {}
+public interface PatientRepository extends JpaRepository<Patient, Long> {
+
+    List<Patient> findByIdGreaterThanOrderByIdAsc(Long id, Limit limit);
+}
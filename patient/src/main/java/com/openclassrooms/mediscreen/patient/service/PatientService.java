@@ -2,6 +2,7 @@ package com.openclassrooms.mediscreen.patient.service;
 
 import java.util.List;
 
+import org.springframework.data.domain.Limit;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
@@ -19,6 +20,8 @@ import lombok.extern.log4j.Log4j2;
 @Transactional(readOnly = true)
 public class PatientService {
 
+    static final int MAX_PAGE_SIZE = 1000;
+
     private final PatientRepository patientRepository;
 
     /**
@@ -43,6 +46,31 @@ public class PatientService {
         return patientRepository.findById(id).orElseThrow(() -> new PatientNotFoundException(id));
     }
 
+    /**
+     * Retrieves the patients matching the given IDs. Unknown IDs are ignored.
+     *
+     * @param ids the patient IDs
+     * @return list of the patients found
+     */
+    public List<Patient> findAllById(List<Long> ids) {
+        log.debug("Retrieving {} patients by id", ids.size());
+        return patientRepository.findAllById(ids);
+    }
+
+    /**
+     * Retrieves a page of patients ordered by ID, starting right after the given ID. Walking the
+     * pages by passing the last ID of the previous page keeps every page an index range scan.
+     *
+     * @param afterId the last ID of the previous page, or 0 for the first page
+     * @param size the maximum number of patients to return, clamped to {@value #MAX_PAGE_SIZE}
+     * @return the patients of the page
+     */
+    public List<Patient> findPageAfter(Long afterId, int size) {
+        int pageSize = Math.clamp(size, 1, MAX_PAGE_SIZE);
+        log.debug("Retrieving {} patients after id: {}", pageSize, afterId);
+        return patientRepository.findByIdGreaterThanOrderByIdAsc(afterId, Limit.of(pageSize));
+    }
+
     /**
      * Creates a new patient.
      *
@@ -115,6 +115,56 @@ class PatientControllerTest {
         }
     }
 
+    @Nested
+    @DisplayName("POST /api/v1/patients/by-ids")
+    class GetPatientsByIdsTests {
+
+        @Test
+        @DisplayName("Should return the patients matching the given ids")
+        void shouldReturnPatientsMatchingIds() {
+            when(patientService.findAllById(List.of(1L, 2L, 3L))).thenReturn(createPatientList());
+
+            client.post()
+                    .uri(BASE_URL + "/by-ids")
+                    .contentType(MediaType.APPLICATION_JSON)
+                    .body("[1, 2, 3]")
+                    .exchange()
+                    .expectStatus()
+                    .isOk()
+                    .expectBody(new ParameterizedTypeReference<List<PatientResponseDto>>() {})
+                    .isEqualTo(createExpectedResponseList());
+        }
+    }
+
+    @Nested
+    @DisplayName("GET /api/v1/patients/page")
+    class GetPatientsPageTests {
+
+        @Test
+        @DisplayName("Should return the page of patients following the given id")
+        void shouldReturnPageAfterId() {
+            when(patientService.findPageAfter(10L, 4)).thenReturn(createPatientList());
+
+            client.get()
+                    .uri(BASE_URL + "/page?afterId=10&size=4")
+                    .exchange()
+                    .expectStatus()
+                    .isOk()
+                    .expectBody(new ParameterizedTypeReference<List<PatientResponseDto>>() {})
+                    .isEqualTo(createExpectedResponseList());
+        }
+
+        @Test
+        @DisplayName("Should start from the first patient by default")
+        void shouldStartFromFirstPatientByDefault() {
+            when(patientService.findPageAfter(0L, 500)).thenReturn(List.of());
+
+            client.get().uri(BASE_URL + "/page").exchange().expectStatus().isOk();
+
+            verify(patientService).findPageAfter(0L, 500);
+        }
+    }
+
     @Nested
     @DisplayName("POST /api/v1/patients")
     class CreatePatientTests {
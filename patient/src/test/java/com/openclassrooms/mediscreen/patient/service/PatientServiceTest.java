@@ -16,6 +16,7 @@ import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.domain.Limit;
 
 import com.openclassrooms.mediscreen.patient.enumeration.Gender;
 import com.openclassrooms.mediscreen.patient.exception.PatientNotFoundException;
@@ -87,6 +88,52 @@ class PatientServiceTest {
         }
     }
 
+    @Nested
+    @DisplayName("findAllById")
+    class FindAllByIdTests {
+
+        @Test
+        @DisplayName("Should return the patients matching the given ids")
+        void shouldReturnPatientsMatchingIds() {
+            List<Long> ids = List.of(1L, 2L, 3L, 4L);
+            List<Patient> expectedPatients = createPatientList();
+            when(patientRepository.findAllById(ids)).thenReturn(expectedPatients);
+
+            List<Patient> result = patientService.findAllById(ids);
+
+            assertThat(result).containsExactlyElementsOf(expectedPatients);
+            verify(patientRepository).findAllById(ids);
+        }
+    }
+
+    @Nested
+    @DisplayName("findPageAfter")
+    class FindPageAfterTests {
+
+        @Test
+        @DisplayName("Should return the patients following the given id, up to the page size")
+        void shouldReturnPatientsAfterId() {
+            List<Patient> expectedPatients = createPatientList();
+            when(patientRepository.findByIdGreaterThanOrderByIdAsc(10L, Limit.of(4)))
+                    .thenReturn(expectedPatients);
+
+            List<Patient> result = patientService.findPageAfter(10L, 4);
+
+            assertThat(result).containsExactlyElementsOf(expectedPatients);
+        }
+
+        @Test
+        @DisplayName("Should clamp the page size to the supported range")
+        void shouldClampPageSize() {
+            patientService.findPageAfter(0L, Integer.MAX_VALUE);
+            patientService.findPageAfter(0L, -5);
+
+            verify(patientRepository)
+                    .findByIdGreaterThanOrderByIdAsc(0L, Limit.of(PatientService.MAX_PAGE_SIZE));
+            verify(patientRepository).findByIdGreaterThanOrderByIdAsc(0L, Limit.of(1));
+        }
+    }
+
     @Nested
     @DisplayName("create")
     class CreateTests {
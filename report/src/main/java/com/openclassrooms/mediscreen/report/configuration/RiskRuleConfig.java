@@ -0,0 +1,18 @@
+package com.openclassrooms.mediscreen.report.configuration;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.io.Resource;
+
+import com.openclassrooms.mediscreen.report.service.RiskRuleEngine;
+
+@Configuration
+public class RiskRuleConfig {
+
+    @Bean
+    public RiskRuleEngine riskRuleEngine(
+            @Value("${report.rules.location:classpath:risk-rules.csv}") Resource rules) {
+        return RiskRuleEngine.load(rules);
+    }
+}
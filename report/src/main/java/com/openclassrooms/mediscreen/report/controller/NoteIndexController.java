@@ -0,0 +1,51 @@
+package com.openclassrooms.mediscreen.report.controller;
+
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.DeleteMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PutMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import com.openclassrooms.mediscreen.report.model.Note;
+import com.openclassrooms.mediscreen.report.service.ReportService;
+
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.Parameter;
+import io.swagger.v3.oas.annotations.responses.ApiResponse;
+import io.swagger.v3.oas.annotations.responses.ApiResponses;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import lombok.RequiredArgsConstructor;
+
+@RestController
+@RequestMapping("/api/v1/report/index")
+@RequiredArgsConstructor
+@Tag(name = "Trigger index", description = "Note deltas keeping the trigger index up to date")
+public class NoteIndexController {
+
+    private final ReportService reportService;
+
+    @PutMapping("/notes")
+    @Operation(summary = "Apply a created or updated note to the trigger index")
+    @ApiResponses(
+            value = {@ApiResponse(responseCode = "204", description = "Note delta applied")})
+    public ResponseEntity<Void> noteSaved(@RequestBody Note note) {
+        reportService.onNoteSaved(note);
+        return ResponseEntity.noContent().build();
+    }
+
+    @DeleteMapping("/notes/{noteId}")
+    @Operation(summary = "Apply a deleted note to the trigger index")
+    @ApiResponses(
+            value = {@ApiResponse(responseCode = "204", description = "Note delta applied")})
+    public ResponseEntity<Void> noteDeleted(
+            @PathVariable String noteId,
+            @RequestParam(required = false)
+                    @Parameter(description = "Patient the note belonged to", example = "1")
+                    Long patientId) {
+        reportService.onNoteDeleted(patientId, noteId);
+        return ResponseEntity.noContent().build();
+    }
+}
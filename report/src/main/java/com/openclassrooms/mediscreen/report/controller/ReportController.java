@@ -1,11 +1,22 @@
 package com.openclassrooms.mediscreen.report.controller;
 
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import com.openclassrooms.mediscreen.report.dto.BatchReportDTO;
 import com.openclassrooms.mediscreen.report.dto.ReportDTO;
 import com.openclassrooms.mediscreen.report.service.ReportService;
 
@@ -17,14 +28,20 @@ import io.swagger.v3.oas.annotations.responses.ApiResponse;
 import io.swagger.v3.oas.annotations.responses.ApiResponses;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import lombok.RequiredArgsConstructor;
+import lombok.extern.log4j.Log4j2;
+import tools.jackson.databind.json.JsonMapper;
 
 @RestController
+@Log4j2
 @RequestMapping("/api/v1/report")
 @RequiredArgsConstructor
 @Tag(name = "Reports", description = "Patient risk assessment reports")
 public class ReportController {
 
+    static final String EXPORT_ABORTED = "Export aborted, the reports above are incomplete";
+
     private final ReportService reportService;
+    private final JsonMapper jsonMapper;
 
     @GetMapping("/{patientId}")
     @Operation(
@@ -35,7 +52,8 @@ public class ReportController {
             value = {
                 @ApiResponse(
                         responseCode = "200",
-                        description = "Report successfully retrieved",
+                        description =
+                                "Report successfully retrieved, flagged stale when computed from the last good data of an unavailable service",
                         content = @Content(schema = @Schema(implementation = ReportDTO.class))),
                 @ApiResponse(
                         responseCode = "404",
@@ -56,4 +74,80 @@ public class ReportController {
             return ResponseEntity.notFound().build();
         }
     }
+
+    @PostMapping("/batch")
+    @Operation(
+            summary = "Get risk assessment reports for several patients",
+            description =
+                    "Retrieve one diabetes risk assessment report per requested patient ID. Patients that cannot be assessed are reported with an error instead of failing the whole batch")
+    @ApiResponses(
+            value = {
+                @ApiResponse(
+                        responseCode = "200",
+                        description = "Reports computed, with per-patient errors where relevant"),
+                @ApiResponse(
+                        responseCode = "400",
+                        description = "Invalid request body",
+                        content = @Content)
+            })
+    public ResponseEntity<List<BatchReportDTO>> getPatientRiskReports(
+            @RequestBody List<Long> patientIds) {
+        return ResponseEntity.ok(reportService.getReportsOfRisk(patientIds));
+    }
+
+    @GetMapping(value = "/export", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    @Operation(
+            summary = "Export the risk assessment reports of every patient",
+            description =
+                    "Stream one JSON report per line (NDJSON), flushed page by page as the reports are computed")
+    @ApiResponses(
+            value = {
+                @ApiResponse(
+                        responseCode = "200",
+                        description =
+                                "Reports streamed. An export failing midway ends with an error record instead of a report")
+            })
+    public ResponseEntity<StreamingResponseBody> exportPatientRiskReports() {
+        StreamingResponseBody body =
+                output -> {
+                    AtomicLong exported = new AtomicLong();
+                    try {
+                        reportService.exportReportsOfRisk(
+                                page -> {
+                                    writeLines(output, page);
+                                    exported.addAndGet(page.size());
+                                });
+                    } catch (UncheckedIOException e) {
+                        // The client is gone, there is nobody left to tell
+                        throw e.getCause();
+                    } catch (RuntimeException e) {
+                        // The 200 status is already sent, so a trailing record tells the client
+                        // that the export is incomplete
+                        log.warn("Export aborted after {} reports", exported.get(), e);
+                        ExportError error = new ExportError(EXPORT_ABORTED, exported.get());
+                        writeLines(output, List.of(error));
+                    }
+                };
+        return ResponseEntity.ok().contentType(MediaType.APPLICATION_NDJSON).body(body);
+    }
+
+    private void writeLines(OutputStream output, List<?> lines) {
+        try {
+            for (Object line : lines) {
+                output.write(jsonMapper.writeValueAsBytes(line));
+                output.write('\n');
+            }
+            output.flush();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Last line of an export that failed midway.
+     *
+     * @param error why the export stopped
+     * @param exported the number of reports streamed before the failure
+     */
+    record ExportError(String error, long exported) {}
 }
@@ -0,0 +1,56 @@
+package com.openclassrooms.mediscreen.report.controller;
+
+import java.io.UncheckedIOException;
+
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import com.openclassrooms.mediscreen.report.dto.VocabularyDTO;
+import com.openclassrooms.mediscreen.report.service.TriggerVocabulary;
+
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.responses.ApiResponse;
+import io.swagger.v3.oas.annotations.responses.ApiResponses;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import lombok.RequiredArgsConstructor;
+
+@RestController
+@RequestMapping("/api/v1/report/vocabulary")
+@RequiredArgsConstructor
+@Tag(name = "Trigger vocabulary", description = "Trigger terms used to assess risk levels")
+public class VocabularyController {
+
+    private final TriggerVocabulary triggerVocabulary;
+
+    @GetMapping
+    @Operation(summary = "Get the trigger vocabulary currently in use")
+    @ApiResponses(
+            value = {@ApiResponse(responseCode = "200", description = "Vocabulary returned")})
+    public ResponseEntity<VocabularyDTO> getVocabulary() {
+        return ResponseEntity.ok(toDTO(triggerVocabulary.current()));
+    }
+
+    @PostMapping("/reload")
+    @Operation(summary = "Reload the trigger vocabulary from its source")
+    @ApiResponses(
+            value = {
+                @ApiResponse(responseCode = "200", description = "Vocabulary reloaded"),
+                @ApiResponse(
+                        responseCode = "400",
+                        description = "Unreadable or invalid vocabulary, previous one kept")
+            })
+    public ResponseEntity<VocabularyDTO> reloadVocabulary() {
+        try {
+            return ResponseEntity.ok(toDTO(triggerVocabulary.reload()));
+        } catch (IllegalArgumentException | UncheckedIOException _) {
+            return ResponseEntity.badRequest().build();
+        }
+    }
+
+    private static VocabularyDTO toDTO(TriggerVocabulary.Snapshot snapshot) {
+        return new VocabularyDTO(snapshot.version(), snapshot.matcher().terms());
+    }
+}
@@ -0,0 +1,20 @@
+package com.openclassrooms.mediscreen.report.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+@Data
+@AllArgsConstructor
+public class BatchReportDTO {
+    private Long patientId;
+    private ReportDTO report;
+    private String error;
+
+    public static BatchReportDTO success(Long patientId, ReportDTO report) {
+        return new BatchReportDTO(patientId, report, null);
+    }
+
+    public static BatchReportDTO failure(Long patientId, String error) {
+        return new BatchReportDTO(patientId, null, error);
+    }
+}
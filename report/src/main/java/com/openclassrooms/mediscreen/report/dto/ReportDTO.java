@@ -1,13 +1,15 @@
 package com.openclassrooms.mediscreen.report.dto;
 
-import lombok.AllArgsConstructor;
-import lombok.Data;
+import lombok.Value;
 
-@Data
-@AllArgsConstructor
+// Immutable, since cached reports are shared by every request of the same patient
+@Value
 public class ReportDTO {
-    private String firstName;
-    private String lastName;
-    private int age;
-    private String level;
+    String firstName;
+    String lastName;
+    int age;
+    String level;
+    String vocabularyVersion;
+    // Computed from the last good data of an unavailable service rather than from fresh data
+    boolean stale;
 }
@@ -0,0 +1,13 @@
+package com.openclassrooms.mediscreen.report.dto;
+
+import java.util.List;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+@Data
+@AllArgsConstructor
+public class VocabularyDTO {
+    private String version;
+    private List<String> terms;
+}
@@ -0,0 +1,119 @@
+package com.openclassrooms.mediscreen.report.job;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import com.openclassrooms.mediscreen.report.model.NoteEvent;
+import com.openclassrooms.mediscreen.report.proxy.NoteProxy;
+import com.openclassrooms.mediscreen.report.service.ReportService;
+
+import lombok.extern.log4j.Log4j2;
+
+/**
+ * Tails the note change outbox of the note service and applies every change to the trigger index,
+ * so indexed patients stay coherent without refetching their notes.
+ *
+ * <p>Event IDs are assigned before the event is written, so an event may become visible after
+ * events with greater IDs. Each poll therefore reads again the events recorded within an overlap
+ * window before the newest one seen, and skips those already applied: an event committed late by
+ * less than the window is still applied, exactly once. Events lost for good, for instance when the
+ * note service stops between a note write and its event, are caught up by the maximum age of the
+ * trigger index entries.
+ *
+ * <p>The position in the outbox is kept in memory only: after a restart the index is empty, and
+ * replayed events of patients that are not indexed yet cost nothing.
+ */
+@Component
+@Log4j2
+public class NoteEventPoller {
+
+    static final int PAGE_SIZE = 500;
+
+    private final NoteProxy noteProxy;
+    private final ReportService reportService;
+    private final Duration overlap;
+
+    // Events applied within the overlap window, in the order they were read
+    private final Deque<NoteEvent> window = new ArrayDeque<>();
+    private final Set<String> windowIds = new HashSet<>();
+    // Newest event that left the window; polls read the events after it
+    private String cursor;
+    private LocalDateTime newest;
+
+    public NoteEventPoller(
+            NoteProxy noteProxy,
+            ReportService reportService,
+            @Value("${report.note-events.overlap:30s}") Duration overlap) {
+        this.noteProxy = noteProxy;
+        this.reportService = reportService;
+        this.overlap = overlap;
+    }
+
+    @Scheduled(cron = "${report.note-events.cron:-}")
+    public void scheduledPoll() {
+        poll();
+    }
+
+    /**
+     * Applies every event recorded since the previous poll, and those that became visible since
+     * then within the overlap window.
+     *
+     * @return the number of events applied
+     */
+    public synchronized int poll() {
+        int count = 0;
+        String afterId = cursor;
+        List<NoteEvent> events;
+        do {
+            events = noteProxy.getNoteEvents(afterId, PAGE_SIZE);
+            for (NoteEvent event : events) {
+                if (windowIds.add(event.id())) {
+                    apply(event);
+                    window.addLast(event);
+                    if (newest == null || event.occurredAt().isAfter(newest)) {
+                        newest = event.occurredAt();
+                    }
+                    count++;
+                }
+                afterId = event.id();
+            }
+        } while (events.size() == PAGE_SIZE);
+        slideWindow();
+        if (count > 0) {
+            log.debug("Applied {} note events, up to: {}", count, afterId);
+        }
+        return count;
+    }
+
+    private void slideWindow() {
+        if (newest == null) {
+            return;
+        }
+        LocalDateTime start = newest.minus(overlap);
+        while (!window.isEmpty() && window.peekFirst().occurredAt().isBefore(start)) {
+            NoteEvent event = window.removeFirst();
+            windowIds.remove(event.id());
+            // Event IDs are fixed-length hex ObjectIds, so they compare as strings
+            if (cursor == null || event.id().compareTo(cursor) > 0) {
+                cursor = event.id();
+            }
+        }
+    }
+
+    private void apply(NoteEvent event) {
+        try {
+            reportService.onNoteEvent(event);
+        } catch (RuntimeException e) {
+            log.warn("Failed to apply note event {}: {}", event.id(), e.getMessage());
+        }
+    }
+}
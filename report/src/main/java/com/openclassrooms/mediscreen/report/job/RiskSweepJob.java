@@ -0,0 +1,177 @@
+package com.openclassrooms.mediscreen.report.job;
+
+import static java.util.Collections.emptyList;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import com.openclassrooms.mediscreen.report.enumeration.Level;
+import com.openclassrooms.mediscreen.report.model.Note;
+import com.openclassrooms.mediscreen.report.model.Patient;
+import com.openclassrooms.mediscreen.report.proxy.NoteProxy;
+import com.openclassrooms.mediscreen.report.proxy.PatientProxy;
+import com.openclassrooms.mediscreen.report.service.ReportService;
+import com.openclassrooms.mediscreen.trigger.TriggerMatcher;
+
+import feign.Response;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.log4j.Log4j2;
+import tools.jackson.databind.MappingIterator;
+import tools.jackson.databind.json.JsonMapper;
+
+/**
+ * Assesses the risk level of the whole patient population.
+ *
+ * <p>Every note, archived ones included, is read line by line from the NDJSON stream of the note
+ * service and reduced on arrival to the trigger terms of its patient, so a single bit mask per
+ * patient is held instead of the notes. Patients are then read one page at a time; the levels of a
+ * page are computed in parallel on the fork/join common pool and written as one CSV line per
+ * patient before the next page is read. A CSV of the level distribution follows.
+ */
+@Component
+@Log4j2
+@RequiredArgsConstructor
+public class RiskSweepJob {
+
+    private static final DateTimeFormatter FILE_TIMESTAMP =
+            DateTimeFormatter.ofPattern("yyyyMMdd-HHmmss");
+
+    private final PatientProxy patientProxy;
+    private final NoteProxy noteProxy;
+    private final ReportService reportService;
+    private final JsonMapper jsonMapper;
+
+    @Value("${report.sweep.output-dir:sweep}")
+    private String outputDir;
+
+    @Value("${report.sweep.page-size:500}")
+    private int pageSize;
+
+    @Scheduled(cron = "${report.sweep.cron:-}")
+    public void scheduledRun() {
+        run();
+    }
+
+    /**
+     * Runs a full sweep over every known patient.
+     *
+     * @return the summary of the sweep, including the files written
+     */
+    public RiskSweepSummary run() {
+        // A single vocabulary for the whole sweep, even if it is reloaded meanwhile
+        Map<Long, Long> triggerTerms = scanNotes(reportService.triggerMatcher());
+        log.info("Starting risk sweep, {} patients with notes", triggerTerms.size());
+
+        Map<Level, Long> distribution = new EnumMap<>(Level.class);
+        for (Level level : Level.values()) {
+            distribution.put(level, 0L);
+        }
+        String timestamp = LocalDateTime.now().format(FILE_TIMESTAMP);
+        Path patientsFile = Path.of(outputDir, "risk-sweep-" + timestamp + "-patients.csv");
+        Path distributionFile = Path.of(outputDir, "risk-sweep-" + timestamp + "-distribution.csv");
+        int patientCount = 0;
+        int failureCount = 0;
+        try {
+            Files.createDirectories(patientsFile.getParent());
+            try (BufferedWriter writer = Files.newBufferedWriter(patientsFile)) {
+                writer.write("patient_id,level");
+                writer.newLine();
+                long afterId = 0L;
+                List<Patient> patients;
+                do {
+                    patients = nullToEmpty(patientProxy.getPatientsPage(afterId, pageSize));
+                    List<PatientLevel> levels =
+                            patients.parallelStream()
+                                    .map(patient -> assess(patient, triggerTerms))
+                                    .toList();
+                    for (PatientLevel entry : levels) {
+                        writer.write(entry.patientId() + "," + levelName(entry.level()));
+                        writer.newLine();
+                        if (entry.level() == null) {
+                            failureCount++;
+                        } else {
+                            distribution.merge(entry.level(), 1L, Long::sum);
+                        }
+                    }
+                    patientCount += patients.size();
+                    if (!patients.isEmpty()) {
+                        afterId = patients.getLast().id();
+                    }
+                } while (patients.size() == pageSize);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to write risk sweep file " + patientsFile, e);
+        }
+        writeDistribution(distributionFile, distribution);
+
+        log.info("Risk sweep done: {} ({} failures)", distribution, failureCount);
+        return new RiskSweepSummary(
+                patientCount, failureCount, distribution, patientsFile, distributionFile);
+    }
+
+    private Map<Long, Long> scanNotes(TriggerMatcher matcher) {
+        Map<Long, Long> triggerTerms = new HashMap<>();
+        try (Response response = noteProxy.streamNotes();
+                InputStream body = response.body().asInputStream();
+                MappingIterator<Note> notes = jsonMapper.readerFor(Note.class).readValues(body)) {
+            while (notes.hasNextValue()) {
+                Note note = notes.nextValue();
+                if (note.patientId() != null) {
+                    long seen = triggerTerms.getOrDefault(note.patientId(), 0L);
+                    triggerTerms.put(
+                            note.patientId(), reportService.scanTriggers(matcher, note, seen));
+                }
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to read the note stream", e);
+        }
+        return triggerTerms;
+    }
+
+    private PatientLevel assess(Patient patient, Map<Long, Long> triggerTerms) {
+        try {
+            long terms = triggerTerms.getOrDefault(patient.id(), 0L);
+            return new PatientLevel(patient.id(), reportService.assessLevel(patient, terms));
+        } catch (RuntimeException e) {
+            log.warn("Risk sweep failed for patient id {}: {}", patient.id(), e.getMessage());
+            return new PatientLevel(patient.id(), null);
+        }
+    }
+
+    private void writeDistribution(Path file, Map<Level, Long> distribution) {
+        try (BufferedWriter writer = Files.newBufferedWriter(file)) {
+            writer.write("level,count");
+            writer.newLine();
+            for (Map.Entry<Level, Long> entry : distribution.entrySet()) {
+                writer.write(entry.getKey().getLevel() + "," + entry.getValue());
+                writer.newLine();
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to write risk sweep file " + file, e);
+        }
+    }
+
+    private static String levelName(Level level) {
+        return level != null ? level.getLevel() : "Error";
+    }
+
+    private static <T> List<T> nullToEmpty(List<T> list) {
+        return list != null ? list : emptyList();
+    }
+
+    private record PatientLevel(Long patientId, Level level) {}
+}
@@ -0,0 +1,13 @@
+package com.openclassrooms.mediscreen.report.job;
+
+import java.nio.file.Path;
+import java.util.Map;
+
+import com.openclassrooms.mediscreen.report.enumeration.Level;
+
+public record RiskSweepSummary(
+        int patientCount,
+        int failureCount,
+        Map<Level, Long> distribution,
+        Path patientsFile,
+        Path distributionFile) {}
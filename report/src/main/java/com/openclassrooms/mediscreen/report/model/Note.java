@@ -3,4 +3,9 @@ package com.openclassrooms.mediscreen.report.model;
 import java.time.LocalDateTime;
 
 public record Note(
-        String id, String practitionerName, Long patientId, String report, LocalDateTime created) {}
+        String id,
+        String practitionerName,
+        Long patientId,
+        String report,
+        LocalDateTime created,
+        Long version) {}
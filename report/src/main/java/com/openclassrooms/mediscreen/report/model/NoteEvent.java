@@ -0,0 +1,18 @@
+package com.openclassrooms.mediscreen.report.model;
+
+import java.time.LocalDateTime;
+
+public record NoteEvent(
+        String id,
+        Type type,
+        String noteId,
+        Long patientId,
+        Long version,
+        LocalDateTime occurredAt) {
+
+    public enum Type {
+        CREATED,
+        UPDATED,
+        DELETED
+    }
+}
@@ -0,0 +1,20 @@
+package com.openclassrooms.mediscreen.report.proxy;
+
+/**
+ * A downstream response along with whether it is the last good response of an unavailable
+ * service rather than a fresh one.
+ *
+ * @param value the response
+ * @param stale {@code true} if the value was served after the call failed
+ * @param <T> the response type
+ */
+public record Fetched<T>(T value, boolean stale) {
+
+    public static <T> Fetched<T> fresh(T value) {
+        return new Fetched<>(value, false);
+    }
+
+    public static <T> Fetched<T> stale(T value) {
+        return new Fetched<>(value, true);
+    }
+}
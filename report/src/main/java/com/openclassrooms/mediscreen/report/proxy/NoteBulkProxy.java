@@ -0,0 +1,15 @@
+package com.openclassrooms.mediscreen.report.proxy;
+
+import org.springframework.cloud.openfeign.FeignClient;
+
+/**
+ * The {@link NoteProxy} endpoints on a Feign client of their own, so that bulk and sweep calls get
+ * a read timeout sized for their payload instead of the one of single-patient calls.
+ */
+@FeignClient(
+        name = "noteApi",
+        contextId = "noteBulkApi",
+        url = "http://note:8080/api/v1/notes",
+        qualifiers = "noteBulkFeignClient",
+        primary = false)
+public interface NoteBulkProxy extends NoteProxy {}
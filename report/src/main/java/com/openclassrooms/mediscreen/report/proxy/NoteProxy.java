@@ -3,19 +3,54 @@ package com.openclassrooms.mediscreen.report.proxy;
 import java.util.List;
 
 import org.springframework.cloud.openfeign.FeignClient;
+import org.springframework.http.MediaType;
 import org.springframework.web.bind.annotation.*;
 
 import com.openclassrooms.mediscreen.report.model.Note;
+import com.openclassrooms.mediscreen.report.model.NoteEvent;
 
-@FeignClient(name = "noteApi", url = "http://note:8080/api/v1" + "/notePatient/")
+import feign.Response;
+
+@FeignClient(
+        name = "noteApi",
+        url = "http://note:8080/api/v1/notes",
+        qualifiers = "noteFeignClient",
+        primary = false)
 public interface NoteProxy {
 
-    @GetMapping("/allNotes")
-    List<Note> getNotes();
+    // Reports assess the whole history of a patient, so archived notes are always asked for
+
+    /**
+     * Streams every note as NDJSON, one note per line, straight from the note service cursors. The
+     * response is handed over unread, whatever its status, and must be closed.
+     *
+     * @return the raw response
+     */
+    @GetMapping(value = "/stream?fullHistory=true", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    Response streamNotes();
 
     @GetMapping("/{id}")
     Note getNoteById(@PathVariable("id") String id);
 
-    @GetMapping("/notes/{patientId}")
+    @GetMapping("/patient/{patientId}?fullHistory=true")
     List<Note> getNotesByPatientId(@PathVariable("patientId") Long patientId);
+
+    /**
+     * Returns the notes of a patient along with whether they are the last good response of an
+     * unavailable note service. Plain clients only ever return fresh notes.
+     *
+     * @param patientId the patient ID
+     * @return the notes of the patient
+     */
+    default Fetched<List<Note>> fetchNotesByPatientId(Long patientId) {
+        return Fetched.fresh(getNotesByPatientId(patientId));
+    }
+
+    @PostMapping("/by-patient-ids?fullHistory=true")
+    List<Note> getNotesByPatientIds(@RequestBody List<Long> patientIds);
+
+    @GetMapping("/events")
+    List<NoteEvent> getNoteEvents(
+            @RequestParam(value = "afterId", required = false) String afterId,
+            @RequestParam("size") int size);
 }
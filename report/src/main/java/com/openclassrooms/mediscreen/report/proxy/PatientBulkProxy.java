@@ -0,0 +1,15 @@
+package com.openclassrooms.mediscreen.report.proxy;
+
+import org.springframework.cloud.openfeign.FeignClient;
+
+/**
+ * The {@link PatientProxy} endpoints on a Feign client of their own, so that bulk and sweep calls
+ * get a read timeout sized for their payload instead of the one of single-patient calls.
+ */
+@FeignClient(
+        name = "patientApi",
+        contextId = "patientBulkApi",
+        url = "http://patient:8081/api/v1/patients",
+        qualifiers = "patientBulkFeignClient",
+        primary = false)
+public interface PatientBulkProxy extends PatientProxy {}
@@ -6,16 +6,41 @@ import org.springframework.cloud.openfeign.FeignClient;
 import org.springframework.validation.annotation.Validated;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestParam;
 
 import com.openclassrooms.mediscreen.report.model.Patient;
 
 @Validated
-@FeignClient(name = "patientApi", url = "http://patient:8081/api/v1/patient/")
+@FeignClient(
+        name = "patientApi",
+        url = "http://patient:8081/api/v1/patients",
+        qualifiers = "patientFeignClient",
+        primary = false)
 public interface PatientProxy {
 
-    @GetMapping("/list")
+    @GetMapping
     List<Patient> getPatients();
 
     @GetMapping("/{id}")
     Patient getPatientById(@PathVariable("id") Long id);
+
+    /**
+     * Returns a patient along with whether it is the last good response of an unavailable patient
+     * service. Plain clients only ever return fresh patients.
+     *
+     * @param id the patient ID
+     * @return the patient
+     */
+    default Fetched<Patient> fetchPatientById(Long id) {
+        return Fetched.fresh(getPatientById(id));
+    }
+
+    @GetMapping("/page")
+    List<Patient> getPatientsPage(
+            @RequestParam("afterId") Long afterId, @RequestParam("size") int size);
+
+    @PostMapping("/by-ids")
+    List<Patient> getPatientsByIds(@RequestBody List<Long> ids);
 }
@@ -0,0 +1,112 @@
+package com.openclassrooms.mediscreen.report.proxy;
+
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Supplier;
+
+import jakarta.annotation.PreDestroy;
+
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.cloud.client.circuitbreaker.CircuitBreaker;
+import org.springframework.cloud.client.circuitbreaker.CircuitBreakerFactory;
+import org.springframework.context.annotation.Primary;
+import org.springframework.stereotype.Component;
+
+import com.openclassrooms.mediscreen.report.model.Note;
+import com.openclassrooms.mediscreen.report.model.NoteEvent;
+
+import feign.FeignException;
+import feign.Response;
+import io.micrometer.core.instrument.MeterRegistry;
+
+/**
+ * {@link NoteProxy} guarded by the {@code noteApi} circuit breaker, time limiter and bulkhead. The
+ * notes of a single patient are served from their last good response while the note service is
+ * unavailable. Bulk and sweep calls go through the {@code noteBulkApi} client and breaker instead,
+ * so that their larger payloads neither need the tight limits of single-patient calls nor open the
+ * breaker of those calls.
+ */
+@Component
+@Primary
+public class ResilientNoteProxy implements NoteProxy {
+
+    static final String NAME = "noteApi";
+    static final String BULK_NAME = "noteBulkApi";
+
+    private final NoteProxy delegate;
+    private final NoteProxy bulkDelegate;
+    private final CircuitBreaker bulkCircuitBreaker;
+    private final ExecutorService refreshExecutor = Executors.newVirtualThreadPerTaskExecutor();
+    private final StaleWhileRevalidate<Long, List<Note>> notesByPatient;
+
+    public ResilientNoteProxy(
+            @Qualifier("noteFeignClient") NoteProxy delegate,
+            @Qualifier("noteBulkFeignClient") NoteProxy bulkDelegate,
+            CircuitBreakerFactory<?, ?> circuitBreakerFactory,
+            MeterRegistry registry,
+            @Value("${report.proxy.stale-store.maximum-size:10000}") long maximumSize) {
+        this.delegate = delegate;
+        this.bulkDelegate = bulkDelegate;
+        this.bulkCircuitBreaker = circuitBreakerFactory.create(BULK_NAME);
+        this.notesByPatient =
+                new StaleWhileRevalidate<>(
+                        NAME,
+                        circuitBreakerFactory.create(NAME),
+                        refreshExecutor,
+                        maximumSize,
+                        registry);
+    }
+
+    @Override
+    public Response streamNotes() {
+        return bulk(() -> requireSuccess(bulkDelegate.streamNotes()));
+    }
+
+    @Override
+    public Note getNoteById(String id) {
+        return notesByPatient.call(() -> delegate.getNoteById(id));
+    }
+
+    @Override
+    public List<Note> getNotesByPatientId(Long patientId) {
+        return fetchNotesByPatientId(patientId).value();
+    }
+
+    @Override
+    public Fetched<List<Note>> fetchNotesByPatientId(Long patientId) {
+        return notesByPatient.fetch(patientId, () -> delegate.getNotesByPatientId(patientId));
+    }
+
+    @Override
+    public List<Note> getNotesByPatientIds(List<Long> patientIds) {
+        return bulk(() -> bulkDelegate.getNotesByPatientIds(patientIds));
+    }
+
+    @Override
+    public List<NoteEvent> getNoteEvents(String afterId, int size) {
+        return bulk(() -> bulkDelegate.getNoteEvents(afterId, size));
+    }
+
+    // Raw responses are handed over whatever their status, so errors are raised here for the
+    // breaker to count
+    private static Response requireSuccess(Response response) {
+        if (response.status() >= 200 && response.status() < 300) {
+            return response;
+        }
+        FeignException failure = FeignException.errorStatus("NoteProxy#streamNotes()", response);
+        response.close();
+        throw failure;
+    }
+
+    private <T> T bulk(Supplier<T> call) {
+        return bulkCircuitBreaker.run(
+                call, failure -> StaleWhileRevalidate.rethrow(BULK_NAME, failure));
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        refreshExecutor.shutdownNow();
+    }
+}
@@ -0,0 +1,93 @@
+package com.openclassrooms.mediscreen.report.proxy;
+
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Supplier;
+
+import jakarta.annotation.PreDestroy;
+
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.cloud.client.circuitbreaker.CircuitBreaker;
+import org.springframework.cloud.client.circuitbreaker.CircuitBreakerFactory;
+import org.springframework.context.annotation.Primary;
+import org.springframework.stereotype.Component;
+
+import com.openclassrooms.mediscreen.report.model.Patient;
+
+import io.micrometer.core.instrument.MeterRegistry;
+
+/**
+ * {@link PatientProxy} guarded by the {@code patientApi} circuit breaker, time limiter and
+ * bulkhead. Single patients are served from their last good response while the patient service is
+ * unavailable. Bulk and sweep calls go through the {@code patientBulkApi} client and breaker
+ * instead, so that their larger payloads neither need the tight limits of single-patient calls nor
+ * open the breaker of those calls.
+ */
+@Component
+@Primary
+public class ResilientPatientProxy implements PatientProxy {
+
+    static final String NAME = "patientApi";
+    static final String BULK_NAME = "patientBulkApi";
+
+    private final PatientProxy delegate;
+    private final PatientProxy bulkDelegate;
+    private final CircuitBreaker bulkCircuitBreaker;
+    private final ExecutorService refreshExecutor = Executors.newVirtualThreadPerTaskExecutor();
+    private final StaleWhileRevalidate<Long, Patient> patients;
+
+    public ResilientPatientProxy(
+            @Qualifier("patientFeignClient") PatientProxy delegate,
+            @Qualifier("patientBulkFeignClient") PatientProxy bulkDelegate,
+            CircuitBreakerFactory<?, ?> circuitBreakerFactory,
+            MeterRegistry registry,
+            @Value("${report.proxy.stale-store.maximum-size:10000}") long maximumSize) {
+        this.delegate = delegate;
+        this.bulkDelegate = bulkDelegate;
+        this.bulkCircuitBreaker = circuitBreakerFactory.create(BULK_NAME);
+        this.patients =
+                new StaleWhileRevalidate<>(
+                        NAME,
+                        circuitBreakerFactory.create(NAME),
+                        refreshExecutor,
+                        maximumSize,
+                        registry);
+    }
+
+    @Override
+    public List<Patient> getPatients() {
+        return bulk(bulkDelegate::getPatients);
+    }
+
+    @Override
+    public Patient getPatientById(Long id) {
+        return fetchPatientById(id).value();
+    }
+
+    @Override
+    public Fetched<Patient> fetchPatientById(Long id) {
+        return patients.fetch(id, () -> delegate.getPatientById(id));
+    }
+
+    @Override
+    public List<Patient> getPatientsByIds(List<Long> ids) {
+        return bulk(() -> bulkDelegate.getPatientsByIds(ids));
+    }
+
+    @Override
+    public List<Patient> getPatientsPage(Long afterId, int size) {
+        return bulk(() -> bulkDelegate.getPatientsPage(afterId, size));
+    }
+
+    private <T> T bulk(Supplier<T> call) {
+        return bulkCircuitBreaker.run(
+                call, failure -> StaleWhileRevalidate.rethrow(BULK_NAME, failure));
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        refreshExecutor.shutdownNow();
+    }
+}
@@ -0,0 +1,157 @@
+package com.openclassrooms.mediscreen.report.proxy;
+
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.function.Supplier;
+
+import org.springframework.cloud.client.circuitbreaker.CircuitBreaker;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+
+import feign.FeignException;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.log4j.Log4j2;
+
+/**
+ * Runs downstream calls through a circuit breaker and keeps the last good response of every key.
+ *
+ * <p>When a keyed call fails, times out, is rejected by the bulkhead or short-circuited, the last
+ * good response is served instead, marked stale, and a single background refresh per key is
+ * started. Client errors (4xx) are never masked, so a deleted patient is not served from the store.
+ *
+ * @param <K> the key type
+ * @param <V> the response type
+ */
+@Log4j2
+final class StaleWhileRevalidate<K, V> {
+
+    private final String name;
+    private final CircuitBreaker circuitBreaker;
+    private final Executor refreshExecutor;
+    private final Cache<K, Entry<V>> lastKnownGood;
+    private final Set<K> refreshing = ConcurrentHashMap.newKeySet();
+    private final Counter staleServed;
+
+    StaleWhileRevalidate(
+            String name,
+            CircuitBreaker circuitBreaker,
+            Executor refreshExecutor,
+            long maximumSize,
+            MeterRegistry registry) {
+        this.name = name;
+        this.circuitBreaker = circuitBreaker;
+        this.refreshExecutor = refreshExecutor;
+        this.lastKnownGood = Caffeine.newBuilder().maximumSize(maximumSize).build();
+        this.staleServed =
+                Counter.builder("report.proxy.stale")
+                        .description("Responses served from the last known good store")
+                        .tag("proxy", name)
+                        .register(registry);
+    }
+
+    /**
+     * Calls the downstream service for a key, falling back to its last good response.
+     *
+     * @param key the key the response is stored under
+     * @param call the downstream call
+     * @return the fresh response, or the last good one if the call failed
+     */
+    V get(K key, Supplier<V> call) {
+        return fetch(key, call).value();
+    }
+
+    /**
+     * Calls the downstream service for a key, falling back to its last good response, and tells
+     * which of the two was returned.
+     *
+     * @param key the key the response is stored under
+     * @param call the downstream call
+     * @return the fresh response, or the last good one marked stale if the call failed
+     */
+    Fetched<V> fetch(K key, Supplier<V> call) {
+        return circuitBreaker.run(
+                () -> Fetched.fresh(remember(key, call.get())),
+                failure -> serveStale(key, call, failure));
+    }
+
+    /**
+     * Calls the downstream service without keeping its response, for calls that have no
+     * meaningful key such as the fetch of a single note.
+     *
+     * @param call the downstream call
+     * @return the response
+     */
+    <T> T call(Supplier<T> call) {
+        return circuitBreaker.run(call, failure -> rethrow(name, failure));
+    }
+
+    /** Returns the last good response of a key, if any. */
+    Optional<V> lastKnownGood(K key) {
+        return Optional.ofNullable(lastKnownGood.getIfPresent(key)).map(Entry::value);
+    }
+
+    /**
+     * Returns whether the stored response of a key has been served after a failure and not
+     * refreshed since.
+     */
+    boolean isStale(K key) {
+        Entry<V> entry = lastKnownGood.getIfPresent(key);
+        return entry != null && entry.stale();
+    }
+
+    private V remember(K key, V value) {
+        if (value != null) {
+            lastKnownGood.put(key, new Entry<>(value, false));
+        }
+        return value;
+    }
+
+    private Fetched<V> serveStale(K key, Supplier<V> call, Throwable failure) {
+        Entry<V> entry = isClientError(failure) ? null : lastKnownGood.getIfPresent(key);
+        if (entry == null) {
+            return rethrow(name, failure);
+        }
+        lastKnownGood.put(key, new Entry<>(entry.value(), true));
+        staleServed.increment();
+        log.warn("{} unavailable, serving stale response for {}: {}", name, key, failure);
+        if (refreshing.add(key)) {
+            refreshExecutor.execute(() -> refresh(key, call));
+        }
+        return Fetched.stale(entry.value());
+    }
+
+    private void refresh(K key, Supplier<V> call) {
+        try {
+            circuitBreaker.run(() -> remember(key, call.get()), _ -> null);
+        } finally {
+            refreshing.remove(key);
+        }
+    }
+
+    private static boolean isClientError(Throwable failure) {
+        return failure instanceof FeignException e && e.status() >= 400 && e.status() < 500;
+    }
+
+    /**
+     * Rethrows the failure of a call made through a circuit breaker, wrapping checked exceptions.
+     *
+     * @param name the name of the breaker, for the message of wrapped exceptions
+     * @param failure the failure passed to the breaker fallback
+     * @return never returns normally
+     */
+    static <T> T rethrow(String name, Throwable failure) {
+        if (failure instanceof RuntimeException e) {
+            throw e;
+        }
+        if (failure instanceof Error e) {
+            throw e;
+        }
+        throw new IllegalStateException(name + " call failed", failure);
+    }
+
+    private record Entry<V>(V value, boolean stale) {}
+}
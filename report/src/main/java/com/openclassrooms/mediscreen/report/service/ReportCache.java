@@ -0,0 +1,112 @@
+package com.openclassrooms.mediscreen.report.service;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.function.Supplier;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.openclassrooms.mediscreen.report.dto.ReportDTO;
+import com.openclassrooms.mediscreen.report.model.Note;
+import com.openclassrooms.mediscreen.report.model.Patient;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+
+/**
+ * Bounded cache of computed reports.
+ *
+ * <p>Entries are keyed by patient ID, trigger vocabulary version and a SHA-256 digest of the
+ * patient record and of the versions of its notes, so any change to the demographics, to a note or
+ * to the vocabulary yields a different key and the stale entry simply ages out. A note the note
+ * service did not version is digested from its content instead. Reports are immutable, so the
+ * cached instance is safely shared by every caller. Hit, miss and eviction counts are published
+ * as {@code cache.*} metrics tagged {@code cache=report}.
+ */
+@Component
+public class ReportCache implements MeterBinder {
+
+    private final Cache<Key, ReportDTO> cache;
+
+    public ReportCache(
+            @Value("${report.cache.maximum-size:10000}") long maximumSize,
+            @Value("${report.cache.ttl:10m}") Duration ttl) {
+        this.cache =
+                Caffeine.newBuilder()
+                        .maximumSize(maximumSize)
+                        .expireAfterWrite(ttl)
+                        .recordStats()
+                        .build();
+    }
+
+    /**
+     * Returns the cached report for this version of the patient data, computing it on a miss.
+     *
+     * @param patient the patient
+     * @param notes the notes of the patient
+     * @param vocabularyVersion the trigger vocabulary version
+     * @param compute computes the report on a miss
+     * @return the report
+     */
+    public ReportDTO get(
+            Patient patient,
+            List<Note> notes,
+            String vocabularyVersion,
+            Supplier<ReportDTO> compute) {
+        Key key = new Key(patient.id(), vocabularyVersion, digest(patient, notes));
+        return cache.get(key, _ -> compute.get());
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        CaffeineCacheMetrics.monitor(registry, cache, "report");
+    }
+
+    static String digest(Patient patient, List<Note> notes) {
+        // Notes are sorted since the note service does not guarantee any ordering
+        List<String> noteKeys = new ArrayList<>(notes.size());
+        for (Note note : notes) {
+            noteKeys.add(
+                    note.id() != null && note.version() != null
+                            ? note.id() + ':' + note.version()
+                            : note.id() + ':' + note.created() + ':' + note.report());
+        }
+        Collections.sort(noteKeys);
+
+        MessageDigest sha256 = sha256();
+        update(sha256, patient.firstName());
+        update(sha256, patient.lastName());
+        update(sha256, String.valueOf(patient.dateOfBirth()));
+        update(sha256, String.valueOf(patient.gender()));
+        noteKeys.forEach(noteKey -> update(sha256, noteKey));
+        return HexFormat.of().formatHex(sha256.digest());
+    }
+
+    private static void update(MessageDigest digest, String value) {
+        // Length-prefixed, so that no two sequences of values hash the same input
+        byte[] bytes = String.valueOf(value).getBytes(StandardCharsets.UTF_8);
+        digest.update(ByteBuffer.allocate(Integer.BYTES).putInt(bytes.length).array());
+        digest.update(bytes);
+    }
+
+    private static MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+    }
+
+    private record Key(Long patientId, String vocabularyVersion, String digest) {}
+}
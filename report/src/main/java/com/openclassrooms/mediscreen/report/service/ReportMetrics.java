@@ -0,0 +1,120 @@
+package com.openclassrooms.mediscreen.report.service;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+import org.springframework.stereotype.Component;
+
+import com.openclassrooms.mediscreen.report.model.Note;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+
+/**
+ * Latency and size metrics of report computations.
+ *
+ * <p>Every phase of a report is timed as {@code report.phase} tagged with the phase and its
+ * outcome, with a percentile histogram so that p99 can be compared across phases. The notes behind
+ * every report are measured as {@code report.notes} (count) and {@code report.notes.size} (UTF-8
+ * bytes).
+ */
+@Component
+public class ReportMetrics {
+
+    private final MeterRegistry.MeterProvider<Timer> phaseTimers;
+    private final DistributionSummary noteCounts;
+    private final DistributionSummary noteSizes;
+
+    public ReportMetrics(MeterRegistry registry) {
+        this.phaseTimers =
+                Timer.builder("report.phase")
+                        .description("Duration of a phase of a report computation")
+                        .publishPercentileHistogram()
+                        .withRegistry(registry);
+        this.noteCounts =
+                DistributionSummary.builder("report.notes")
+                        .description("Number of notes behind a report")
+                        .baseUnit("notes")
+                        .publishPercentileHistogram()
+                        .register(registry);
+        this.noteSizes =
+                DistributionSummary.builder("report.notes.size")
+                        .description("Total size of the notes behind a report")
+                        .baseUnit("bytes")
+                        .publishPercentileHistogram()
+                        .register(registry);
+    }
+
+    /**
+     * Runs a phase of a report computation and records its duration and outcome.
+     *
+     * @param phase the phase
+     * @param step the work of the phase
+     * @return the result of the phase
+     */
+    public <T> T time(Phase phase, Supplier<T> step) {
+        long start = System.nanoTime();
+        String outcome = "error";
+        try {
+            T result = step.get();
+            outcome = "success";
+            return result;
+        } finally {
+            phaseTimers
+                    .withTags("phase", phase.tag, "outcome", outcome)
+                    .record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    /**
+     * Records the number and total size of the notes a report is computed from.
+     *
+     * @param notes the notes of the patient
+     */
+    public void recordNotes(List<Note> notes) {
+        long bytes = 0;
+        for (Note note : notes) {
+            bytes += utf8Length(note.report());
+        }
+        noteCounts.record(notes.size());
+        noteSizes.record(bytes);
+    }
+
+    // Counts the encoded length without allocating the encoded bytes
+    private static long utf8Length(String text) {
+        if (text == null) {
+            return 0;
+        }
+        long length = 0;
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            if (c < 0x80) {
+                length++;
+            } else if (c < 0x800) {
+                length += 2;
+            } else if (Character.isHighSurrogate(c)) {
+                length += 4;
+                i++;
+            } else {
+                length += 3;
+            }
+        }
+        return length;
+    }
+
+    /** Phases of a report computation. */
+    public enum Phase {
+        PATIENT_FETCH("patient-fetch"),
+        NOTE_FETCH("note-fetch"),
+        TRIGGER_SCAN("trigger-scan"),
+        LEVEL_CLASSIFICATION("level-classification");
+
+        private final String tag;
+
+        Phase(String tag) {
+            this.tag = tag;
+        }
+    }
+}
@@ -3,133 +3,418 @@ package com.openclassrooms.mediscreen.report.service;
 import static java.util.Collections.emptyList;
 
 import java.util.*;
-import java.util.stream.Stream;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+
+import jakarta.annotation.PreDestroy;
 
 import org.springframework.stereotype.Service;
 
+import com.openclassrooms.mediscreen.report.dto.BatchReportDTO;
 import com.openclassrooms.mediscreen.report.dto.ReportDTO;
-import com.openclassrooms.mediscreen.report.enumeration.Gender;
 import com.openclassrooms.mediscreen.report.enumeration.Level;
 import com.openclassrooms.mediscreen.report.model.Note;
+import com.openclassrooms.mediscreen.report.model.NoteEvent;
 import com.openclassrooms.mediscreen.report.model.Patient;
+import com.openclassrooms.mediscreen.report.proxy.Fetched;
 import com.openclassrooms.mediscreen.report.proxy.NoteProxy;
 import com.openclassrooms.mediscreen.report.proxy.PatientProxy;
+import com.openclassrooms.mediscreen.report.service.ReportMetrics.Phase;
+import com.openclassrooms.mediscreen.trigger.TriggerMatcher;
 
+import feign.FeignException;
 import lombok.RequiredArgsConstructor;
+import lombok.extern.log4j.Log4j2;
 
 @Service
+@Log4j2
 @RequiredArgsConstructor
 public class ReportService {
 
     private final PatientProxy patientProxy;
     private final NoteProxy noteProxy;
+    private final TriggerIndex triggerIndex;
+    private final ReportCache reportCache;
+    private final RiskRuleEngine riskRuleEngine;
+    private final TriggerVocabulary triggerVocabulary;
+    private final ReportMetrics reportMetrics;
+
+    // Runs the note fetch alongside the patient fetch, one virtual thread per request
+    private final ExecutorService fetchExecutor = Executors.newVirtualThreadPerTaskExecutor();
+
+    // Concurrent requests for the same patient share one computation and one pair of fetches
+    private final SingleFlight<Long, ReportDTO> reportFlights = new SingleFlight<>();
 
-    private static final List<String> TRIGGER_TERMS =
-            Arrays.asList(
-                    "hémoglobine a1c",
-                    "microalbumine",
-                    "taille",
-                    "poids",
-                    "fumeur",
-                    "anormal",
-                    "cholestérol",
-                    "vertige",
-                    "rechute",
-                    "réaction",
-                    "anticorps");
-
-    // Risk assessment thresholds
-    private static final int AGE_THRESHOLD = 30;
-    private static final int BORDERLINE_TRIGGER_COUNT = 2;
-    private static final int DANGER_TRIGGER_MIN = 3;
-    private static final int DANGER_TRIGGER_MAX_UNDER_30 = 6;
-    private static final int MALE_DANGER_TRIGGER_COUNT = 3;
-    private static final int FEMALE_DANGER_TRIGGER_COUNT = 4;
+    // Maximum number of patient ids sent to the downstream services in a single bulk call
+    private static final int BATCH_CHUNK_SIZE = 500;
 
     public ReportDTO getReportOfRisk(Long patientId) {
-        Patient patient = patientProxy.getPatientById(patientId);
-        if (patient == null) {
-            throw new IllegalArgumentException("Patient not found for id: " + patientId);
+        return reportFlights.execute(patientId, () -> computeReportOfRisk(patientId));
+    }
+
+    private ReportDTO computeReportOfRisk(Long patientId) {
+        // A single snapshot per report, so a concurrent vocabulary reload cannot mix versions
+        TriggerVocabulary.Snapshot vocabulary = triggerVocabulary.current();
+        OptionalLong indexedTriggers = triggerIndex.triggersOf(patientId, vocabulary.version());
+        if (indexedTriggers.isPresent()) {
+            Fetched<Patient> patient =
+                    reportMetrics.time(
+                            Phase.PATIENT_FETCH, () -> patientProxy.fetchPatientById(patientId));
+            if (patient.value() == null) {
+                throw new IllegalArgumentException("Patient not found for id: " + patientId);
+            }
+            return classify(
+                    patient.value(),
+                    Long.bitCount(indexedTriggers.getAsLong()),
+                    vocabulary.version(),
+                    patient.stale());
         }
 
-        List<Note> notes = noteProxy.getNotesByPatientId(patientId);
-        notes = notes != null ? notes : emptyList();
+        // Deltas recorded while the notes are fetched are buffered and replayed on load
+        triggerIndex.beginLoad(patientId);
+        try {
+            Future<Fetched<List<Note>>> pendingNotes =
+                    fetchExecutor.submit(
+                            () ->
+                                    reportMetrics.time(
+                                            Phase.NOTE_FETCH,
+                                            () -> noteProxy.fetchNotesByPatientId(patientId)));
 
-        int numberOfTrigger = countTriggers(notes);
-        Level level = getLevelOfRisk(numberOfTrigger, patient);
+            Fetched<Patient> patient = fetchPatient(patientId, pendingNotes);
+            Fetched<List<Note>> fetchedNotes = awaitNotes(pendingNotes, patientId);
+            List<Note> notes = nullToEmpty(fetchedNotes.value());
+            reportMetrics.recordNotes(notes);
+            if (patient.stale() || fetchedNotes.stale()) {
+                // Neither cached nor, for stale notes, indexed, so that data served during an
+                // outage is not kept as if it were fresh once the service is back
+                int numberOfTrigger =
+                        reportMetrics.time(
+                                Phase.TRIGGER_SCAN,
+                                () ->
+                                        fetchedNotes.stale()
+                                                ? countTriggers(vocabulary.matcher(), notes)
+                                                : countAndIndexTriggers(
+                                                        vocabulary, patientId, notes));
+                return classify(patient.value(), numberOfTrigger, vocabulary.version(), true);
+            }
+            return reportCache.get(
+                    patient.value(),
+                    notes,
+                    vocabulary.version(),
+                    () -> {
+                        int numberOfTrigger =
+                                reportMetrics.time(
+                                        Phase.TRIGGER_SCAN,
+                                        () -> countAndIndexTriggers(vocabulary, patientId, notes));
+                        return classify(
+                                patient.value(), numberOfTrigger, vocabulary.version(), false);
+                    });
+        } finally {
+            triggerIndex.endLoad(patientId);
+        }
+    }
 
-        return new ReportDTO(
-                patient.firstName(), patient.lastName(), patient.getAge(), level.getLevel());
+    private ReportDTO classify(
+            Patient patient, int numberOfTrigger, String vocabularyVersion, boolean stale) {
+        return reportMetrics.time(
+                Phase.LEVEL_CLASSIFICATION,
+                () -> toReport(patient, numberOfTrigger, vocabularyVersion, stale));
     }
 
-    private Level getLevelOfRisk(int trigger, Patient patient) {
-        int patientAge = patient.getAge();
-        Gender gender = patient.gender();
+    /**
+     * Applies a created or updated note to the trigger index.
+     *
+     * @param note the saved note
+     */
+    public void onNoteSaved(Note note) {
+        TriggerVocabulary.Snapshot vocabulary = triggerVocabulary.current();
+        long mask = extractTriggerTerms(vocabulary.matcher(), note.report(), 0L);
+        triggerIndex.put(note.patientId(), note.id(), mask, vocabulary.version());
+    }
 
-        if (isInDanger(gender, patientAge, trigger)) {
-            return Level.IN_DANGER;
+    /**
+     * Applies a deleted note to the trigger index.
+     *
+     * @param patientId the patient the note belonged to, or {@code null} if unknown
+     * @param noteId the ID of the deleted note
+     */
+    public void onNoteDeleted(Long patientId, String noteId) {
+        triggerIndex.remove(patientId, noteId);
+    }
+
+    /**
+     * Applies a note change published by the note service to the trigger index. Only notes of
+     * indexed patients are fetched; the other patients pick them up on their next full fetch.
+     *
+     * @param event the note change
+     */
+    public void onNoteEvent(NoteEvent event) {
+        if (event.type() == NoteEvent.Type.DELETED) {
+            onNoteDeleted(event.patientId(), event.noteId());
+            return;
         }
-        if (isEarlyOnset(gender, patientAge, trigger)) {
-            return Level.EARLY_ONSET;
+        if (!triggerIndex.isIndexed(event.patientId())) {
+            return;
         }
-        if (isBorderline(trigger)) {
-            return Level.BORDERLINE;
+        try {
+            onNoteSaved(noteProxy.getNoteById(event.noteId()));
+        } catch (FeignException.NotFound e) {
+            // Deleted since the event was recorded; its deletion event follows
+        } catch (RuntimeException e) {
+            // A missed delta would leave the index wrong, so the patient is loaded again instead
+            triggerIndex.evict(event.patientId());
+            throw e;
         }
-        return Level.NONE;
     }
 
-    private boolean isInDanger(Gender gender, int age, int triggerCount) {
-        if (isAdultWithDangerRangeTriggers(age, triggerCount)) {
-            return true;
+    @PreDestroy
+    public void shutdown() {
+        fetchExecutor.shutdownNow();
+    }
+
+    /**
+     * Computes the risk report of several patients, fetching patients and notes in bulk.
+     *
+     * @param patientIds the patient IDs
+     * @return one entry per requested ID, in request order, holding either the report or the
+     *     reason it could not be computed
+     */
+    public List<BatchReportDTO> getReportsOfRisk(List<Long> patientIds) {
+        TriggerVocabulary.Snapshot vocabulary = triggerVocabulary.current();
+        List<Long> distinctIds = patientIds.stream().filter(Objects::nonNull).distinct().toList();
+        Map<Long, Patient> patients = new HashMap<>();
+        Map<Long, List<Note>> notesByPatient = new HashMap<>();
+        Map<Long, String> fetchErrors = new HashMap<>();
+
+        for (int from = 0; from < distinctIds.size(); from += BATCH_CHUNK_SIZE) {
+            int to = Math.min(from + BATCH_CHUNK_SIZE, distinctIds.size());
+            List<Long> chunk = distinctIds.subList(from, to);
+            try {
+                for (Patient patient : nullToEmpty(patientProxy.getPatientsByIds(chunk))) {
+                    patients.put(patient.id(), patient);
+                }
+                for (Note note : nullToEmpty(noteProxy.getNotesByPatientIds(chunk))) {
+                    notesByPatient
+                            .computeIfAbsent(note.patientId(), _ -> new ArrayList<>())
+                            .add(note);
+                }
+            } catch (RuntimeException e) {
+                log.warn("Bulk fetch failed for {} patients: {}", chunk.size(), e.getMessage());
+                chunk.forEach(id -> fetchErrors.put(id, "Failed to fetch patient data"));
+            }
         }
-        return hasGenderSpecificDangerThreshold(gender, triggerCount);
+
+        return patientIds.stream()
+                .map(
+                        id -> {
+                            if (id == null) {
+                                return BatchReportDTO.failure(null, "Invalid patient id");
+                            }
+                            if (fetchErrors.containsKey(id)) {
+                                return BatchReportDTO.failure(id, fetchErrors.get(id));
+                            }
+                            Patient patient = patients.get(id);
+                            if (patient == null) {
+                                return BatchReportDTO.failure(
+                                        id, "Patient not found for id: " + id);
+                            }
+                            List<Note> notes = notesByPatient.getOrDefault(id, emptyList());
+                            return buildBatchReport(vocabulary, patient, notes);
+                        })
+                .toList();
     }
 
-    private boolean isEarlyOnset(Gender gender, int age, int triggerCount) {
-        if (isAdultWithEarlyOnsetTriggers(age, triggerCount)) {
-            return true;
+    private BatchReportDTO buildBatchReport(
+            TriggerVocabulary.Snapshot vocabulary, Patient patient, List<Note> notes) {
+        // One malformed patient record must not fail the reports of the whole batch
+        try {
+            return BatchReportDTO.success(patient.id(), buildReport(vocabulary, patient, notes));
+        } catch (RuntimeException e) {
+            log.warn("Report failed for patient {}: {}", patient.id(), e.toString());
+            return BatchReportDTO.failure(patient.id(), "Failed to compute report");
         }
-        return hasGenderSpecificEarlyOnsetThreshold(gender, triggerCount);
     }
 
-    private boolean isBorderline(int triggerCount) {
-        return triggerCount == BORDERLINE_TRIGGER_COUNT;
+    /**
+     * Computes the risk report of every patient, walking the patients one page at a time. Each page
+     * of reports is handed to the consumer as soon as it is computed and is not retained, so memory
+     * use depends on the page size only, not on the number of patients.
+     *
+     * @param pageConsumer receives every page of reports, in patient ID order
+     */
+    public void exportReportsOfRisk(Consumer<List<ReportDTO>> pageConsumer) {
+        TriggerVocabulary.Snapshot vocabulary = triggerVocabulary.current();
+        long afterId = 0L;
+        List<Patient> patients;
+        do {
+            patients = nullToEmpty(patientProxy.getPatientsPage(afterId, BATCH_CHUNK_SIZE));
+            if (patients.isEmpty()) {
+                return;
+            }
+            List<Long> ids = patients.stream().map(Patient::id).toList();
+            Map<Long, List<Note>> notesByPatient =
+                    nullToEmpty(noteProxy.getNotesByPatientIds(ids)).stream()
+                            .filter(note -> note.patientId() != null)
+                            .collect(Collectors.groupingBy(Note::patientId));
+            pageConsumer.accept(
+                    patients.stream()
+                            .map(
+                                    patient ->
+                                            buildReport(
+                                                    vocabulary,
+                                                    patient,
+                                                    notesByPatient.getOrDefault(
+                                                            patient.id(), emptyList())))
+                            .toList());
+            afterId = patients.getLast().id();
+        } while (patients.size() == BATCH_CHUNK_SIZE);
     }
 
-    private int countTriggers(List<Note> notes) {
-        return (int)
-                notes.stream()
-                        .map(Note::report)
-                        .flatMap(this::extractTriggerTerms)
-                        .distinct()
-                        .count();
+    private Fetched<Patient> fetchPatient(Long patientId, Future<?> pendingNotes) {
+        Fetched<Patient> patient;
+        try {
+            patient =
+                    reportMetrics.time(
+                            Phase.PATIENT_FETCH, () -> patientProxy.fetchPatientById(patientId));
+        } catch (RuntimeException e) {
+            pendingNotes.cancel(true);
+            throw e;
+        }
+        if (patient.value() == null) {
+            pendingNotes.cancel(true);
+            throw new IllegalArgumentException("Patient not found for id: " + patientId);
+        }
+        return patient;
     }
 
-    private Stream<String> extractTriggerTerms(String report) {
-        if (report == null || report.isEmpty()) {
-            return Stream.empty();
+    private static Fetched<List<Note>> awaitNotes(
+            Future<Fetched<List<Note>>> pendingNotes, Long patientId) {
+        try {
+            return pendingNotes.get();
+        } catch (InterruptedException e) {
+            pendingNotes.cancel(true);
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException(
+                    "Interrupted while fetching notes for patient id: " + patientId, e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw new IllegalStateException(
+                    "Failed to fetch notes for patient id: " + patientId, e.getCause());
         }
-        String lowerReport = report.toLowerCase();
-        return TRIGGER_TERMS.stream().filter(lowerReport::contains);
     }
 
-    private boolean isAdultWithDangerRangeTriggers(int age, int triggerCount) {
-        return age > AGE_THRESHOLD
-                && triggerCount > DANGER_TRIGGER_MIN
-                && triggerCount <= DANGER_TRIGGER_MAX_UNDER_30;
+    /**
+     * Assesses the diabetes risk level of a patient from notes that were already fetched.
+     *
+     * @param patient the patient
+     * @param notes the notes of the patient
+     * @return the risk level
+     */
+    public Level assessLevel(Patient patient, List<Note> notes) {
+        TriggerMatcher matcher = triggerVocabulary.current().matcher();
+        return getLevelOfRisk(countTriggers(matcher, notes), patient);
     }
 
-    private boolean isAdultWithEarlyOnsetTriggers(int age, int triggerCount) {
-        return age > AGE_THRESHOLD && triggerCount > DANGER_TRIGGER_MAX_UNDER_30;
+    /**
+     * Assesses the diabetes risk level of a patient from the trigger terms found in their notes.
+     *
+     * @param patient the patient
+     * @param triggerTerms the trigger terms found in the notes of the patient, as a bit mask
+     * @return the risk level
+     */
+    public Level assessLevel(Patient patient, long triggerTerms) {
+        return getLevelOfRisk(Long.bitCount(triggerTerms), patient);
     }
 
-    private boolean hasGenderSpecificDangerThreshold(Gender gender, int triggerCount) {
-        return (gender == Gender.MALE && triggerCount == MALE_DANGER_TRIGGER_COUNT)
-                || (gender == Gender.FEMALE && triggerCount == FEMALE_DANGER_TRIGGER_COUNT);
+    /**
+     * Returns the trigger matcher of the current vocabulary, so that many patients can be assessed
+     * with the same vocabulary.
+     *
+     * @return the trigger matcher
+     */
+    public TriggerMatcher triggerMatcher() {
+        return triggerVocabulary.current().matcher();
     }
 
-    private boolean hasGenderSpecificEarlyOnsetThreshold(Gender gender, int triggerCount) {
-        return (gender == Gender.MALE && triggerCount > MALE_DANGER_TRIGGER_COUNT)
-                || (gender == Gender.FEMALE && triggerCount > FEMALE_DANGER_TRIGGER_COUNT);
+    /**
+     * Adds the trigger terms of a note to those found so far in the other notes of its patient, so
+     * that patients can be assessed from notes read one at a time instead of held together.
+     *
+     * @param matcher the trigger matcher
+     * @param note the note
+     * @param seen the trigger terms found so far, as a bit mask
+     * @return the trigger terms found so far, those of the note included
+     */
+    public long scanTriggers(TriggerMatcher matcher, Note note, long seen) {
+        return extractTriggerTerms(matcher, note.report(), seen);
+    }
+
+    private ReportDTO buildReport(
+            TriggerVocabulary.Snapshot vocabulary, Patient patient, List<Note> notes) {
+        return toReport(
+                patient, countTriggers(vocabulary.matcher(), notes), vocabulary.version(), false);
+    }
+
+    private ReportDTO toReport(
+            Patient patient, int numberOfTrigger, String vocabularyVersion, boolean stale) {
+        Level level = getLevelOfRisk(numberOfTrigger, patient);
+
+        return new ReportDTO(
+                patient.firstName(),
+                patient.lastName(),
+                patient.getAge(),
+                level.getLevel(),
+                vocabularyVersion,
+                stale);
+    }
+
+    private static <T> List<T> nullToEmpty(List<T> list) {
+        return list != null ? list : emptyList();
+    }
+
+    private Level getLevelOfRisk(int trigger, Patient patient) {
+        return riskRuleEngine.classify(patient.gender(), patient.getAge(), trigger);
+    }
+
+    private int countTriggers(TriggerMatcher matcher, List<Note> notes) {
+        long allTerms = matcher.allTerms();
+        long seen = 0L;
+        for (Note note : notes) {
+            seen = extractTriggerTerms(matcher, note.report(), seen);
+            if (seen == allTerms) {
+                break;
+            }
+        }
+        return Long.bitCount(seen);
+    }
+
+    private int countAndIndexTriggers(
+            TriggerVocabulary.Snapshot vocabulary, Long patientId, List<Note> notes) {
+        // Notes without an id cannot receive deltas, so such a patient is never indexed
+        if (!triggerIndex.isEnabled() || notes.stream().anyMatch(note -> note.id() == null)) {
+            return countTriggers(vocabulary.matcher(), notes);
+        }
+        Map<String, Long> noteMasks = new HashMap<>();
+        long seen = 0L;
+        for (Note note : notes) {
+            long mask = extractTriggerTerms(vocabulary.matcher(), note.report(), 0L);
+            noteMasks.put(note.id(), mask);
+            seen |= mask;
+        }
+        triggerIndex.load(patientId, vocabulary.version(), noteMasks);
+        return Long.bitCount(seen);
+    }
+
+    private static long extractTriggerTerms(TriggerMatcher matcher, String report, long seen) {
+        if (report == null || report.isEmpty()) {
+            return seen;
+        }
+        return matcher.scan(report, seen);
     }
 }
@@ -0,0 +1,66 @@
+package com.openclassrooms.mediscreen.report.service;
+
+import com.openclassrooms.mediscreen.report.enumeration.Gender;
+import com.openclassrooms.mediscreen.report.enumeration.Level;
+
+/**
+ * One row of the risk decision table. Bounds are inclusive.
+ *
+ * @param gender the gender the rule applies to, or {@code null} for any gender
+ * @param minAge the lowest matching age
+ * @param maxAge the highest matching age
+ * @param minTriggers the lowest matching trigger count
+ * @param maxTriggers the highest matching trigger count
+ * @param level the level assigned by the rule
+ */
+public record RiskRule(
+        Gender gender, int minAge, int maxAge, int minTriggers, int maxTriggers, Level level) {
+
+    private static final String ANY = "*";
+
+    public RiskRule {
+        if (minAge < 0 || minAge > maxAge) {
+            throw new IllegalArgumentException(
+                    "Invalid age band [" + minAge + ", " + maxAge + "] in risk rule");
+        }
+        if (minTriggers < 0 || minTriggers > maxTriggers) {
+            throw new IllegalArgumentException(
+                    "Invalid trigger range [" + minTriggers + ", " + maxTriggers + "] in risk rule");
+        }
+        if (level == null) {
+            throw new IllegalArgumentException("Risk rule level is required");
+        }
+    }
+
+    /**
+     * Parses a CSV row {@code gender,min_age,max_age,min_triggers,max_triggers,level}. An empty
+     * maximum means unbounded.
+     *
+     * @param line the CSV row
+     * @return the rule
+     * @throws IllegalArgumentException if the row is malformed
+     */
+    public static RiskRule parse(String line) {
+        String[] columns = line.split(",", -1);
+        if (columns.length != 6) {
+            throw new IllegalArgumentException("Risk rule must have 6 columns: " + line);
+        }
+        String gender = columns[0].trim();
+        try {
+            return new RiskRule(
+                    ANY.equals(gender) ? null : Gender.fromSymbol(gender),
+                    Integer.parseInt(columns[1].trim()),
+                    parseMax(columns[2]),
+                    Integer.parseInt(columns[3].trim()),
+                    parseMax(columns[4]),
+                    Level.valueOf(columns[5].trim()));
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Invalid number in risk rule: " + line, e);
+        }
+    }
+
+    private static int parseMax(String column) {
+        String value = column.trim();
+        return value.isEmpty() ? Integer.MAX_VALUE : Integer.parseInt(value);
+    }
+}
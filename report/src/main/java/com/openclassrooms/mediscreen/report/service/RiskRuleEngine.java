@@ -0,0 +1,122 @@
+package com.openclassrooms.mediscreen.report.service;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.springframework.core.io.Resource;
+
+import com.openclassrooms.mediscreen.report.enumeration.Gender;
+import com.openclassrooms.mediscreen.report.enumeration.Level;
+
+/**
+ * Risk decision table compiled into a flat lookup table.
+ *
+ * <p>Every combination of gender, age and trigger count is resolved once when the rules are
+ * compiled, so classifying a patient is a single array read. Ages and trigger counts above the
+ * table bounds are clamped to the last row.
+ */
+public final class RiskRuleEngine {
+
+    static final int MAX_AGE = 150;
+    static final int MAX_TRIGGERS = Long.SIZE;
+
+    private static final int AGE_SLOTS = MAX_AGE + 1;
+    private static final int TRIGGER_SLOTS = MAX_TRIGGERS + 1;
+    // One slot per gender plus a last one for patients without a gender
+    private static final int GENDER_SLOTS = Gender.values().length + 1;
+
+    private final Level[] table;
+
+    private RiskRuleEngine(Level[] table) {
+        this.table = table;
+    }
+
+    /**
+     * Compiles a decision table.
+     *
+     * @param rules the rules, which must not overlap
+     * @return the compiled engine
+     * @throws IllegalArgumentException if two rules match the same gender, age and trigger count
+     */
+    public static RiskRuleEngine compile(List<RiskRule> rules) {
+        Level[] table = new Level[GENDER_SLOTS * AGE_SLOTS * TRIGGER_SLOTS];
+        RiskRule[] owners = new RiskRule[table.length];
+        for (RiskRule rule : rules) {
+            for (int genderSlot = 0; genderSlot < GENDER_SLOTS; genderSlot++) {
+                if (rule.gender() != null && rule.gender().ordinal() != genderSlot) {
+                    continue;
+                }
+                int maxAge = Math.min(rule.maxAge(), MAX_AGE);
+                int maxTriggers = Math.min(rule.maxTriggers(), MAX_TRIGGERS);
+                for (int age = rule.minAge(); age <= maxAge; age++) {
+                    for (int triggers = rule.minTriggers(); triggers <= maxTriggers; triggers++) {
+                        int cell = index(genderSlot, age, triggers);
+                        if (owners[cell] != null) {
+                            throw new IllegalArgumentException(
+                                    "Risk rule " + rule + " overlaps rule " + owners[cell]);
+                        }
+                        owners[cell] = rule;
+                        table[cell] = rule.level();
+                    }
+                }
+            }
+        }
+        for (int cell = 0; cell < table.length; cell++) {
+            if (table[cell] == null) {
+                table[cell] = Level.NONE;
+            }
+        }
+        return new RiskRuleEngine(table);
+    }
+
+    /**
+     * Loads and compiles a CSV decision table. Blank lines, lines starting with {@code #} and the
+     * header row are skipped.
+     *
+     * @param resource the CSV resource
+     * @return the compiled engine
+     * @throws IllegalArgumentException if a rule is malformed or rules overlap
+     */
+    public static RiskRuleEngine load(Resource resource) {
+        List<RiskRule> rules = new ArrayList<>();
+        try (BufferedReader reader =
+                new BufferedReader(
+                        new InputStreamReader(resource.getInputStream(), StandardCharsets.UTF_8))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                String trimmed = line.trim();
+                if (trimmed.isEmpty() || trimmed.startsWith("#") || trimmed.startsWith("gender")) {
+                    continue;
+                }
+                rules.add(RiskRule.parse(trimmed));
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to read risk rules from " + resource, e);
+        }
+        return compile(rules);
+    }
+
+    /**
+     * Classifies a patient.
+     *
+     * @param gender the patient gender, may be {@code null}
+     * @param age the patient age
+     * @param triggerCount the number of distinct triggers found in the patient notes
+     * @return the risk level
+     */
+    public Level classify(Gender gender, int age, int triggerCount) {
+        int genderSlot = gender != null ? gender.ordinal() : GENDER_SLOTS - 1;
+        int ageSlot = Math.clamp(age, 0, MAX_AGE);
+        int triggerSlot = Math.clamp(triggerCount, 0, MAX_TRIGGERS);
+        return table[index(genderSlot, ageSlot, triggerSlot)];
+    }
+
+    private static int index(int genderSlot, int age, int triggers) {
+        return (genderSlot * AGE_SLOTS + age) * TRIGGER_SLOTS + triggers;
+    }
+}
@@ -0,0 +1,352 @@
+package com.openclassrooms.mediscreen.report.service;
+
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.OptionalLong;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import com.github.benmanes.caffeine.cache.Ticker;
+
+/**
+ * Per-patient record of the trigger terms contributed by each note.
+ *
+ * <p>A patient is indexed the first time its notes are fully fetched, then kept up to date by note
+ * deltas. Every patient keeps a count of notes per trigger ordinal, so applying a delta and reading
+ * the combined trigger mask both cost O(1) in the number of notes. Masks are only meaningful for
+ * the vocabulary version they were computed with, so entries of another version are ignored.
+ *
+ * <p>Deltas received while the notes of a patient are being fetched are buffered from {@link
+ * #beginLoad} on and replayed over the fetched masks by {@link #load}, so a change recorded during
+ * the fetch is not lost. The number of indexed patients is bounded; the least recently used ones
+ * are dropped and loaded again on next use.
+ *
+ * <p>A patient is also dropped a maximum age after it was loaded, however many deltas it received
+ * since, so a delta that never arrived, such as the event of a note write interrupted by a crash
+ * of the note service, leaves the patient wrong for that long at most.
+ */
+@Component
+public class TriggerIndex {
+
+    private final boolean enabled;
+    private final Ticker ticker;
+    private final Cache<Long, PatientTriggers> byPatient;
+    // Only holds the notes of indexed patients, so it is bounded along with them
+    private final ConcurrentMap<String, PatientTriggers> triggersOfNote = new ConcurrentHashMap<>();
+    private final ConcurrentMap<Long, PendingDeltas> loading = new ConcurrentHashMap<>();
+
+    @Autowired
+    public TriggerIndex(
+            @Value("${report.trigger-index.enabled:false}") boolean enabled,
+            @Value("${report.trigger-index.maximum-size:100000}") long maximumSize,
+            @Value("${report.trigger-index.max-age:1h}") Duration maxAge) {
+        this(enabled, maximumSize, maxAge, Ticker.systemTicker());
+    }
+
+    TriggerIndex(boolean enabled, long maximumSize, Duration maxAge, Ticker ticker) {
+        this.enabled = enabled;
+        this.ticker = ticker;
+        this.byPatient =
+                Caffeine.newBuilder()
+                        .maximumSize(maximumSize)
+                        .expireAfter(expiringAfterLoad(maxAge))
+                        .ticker(ticker)
+                        .executor(Runnable::run)
+                        .<Long, PatientTriggers>removalListener(
+                                (patientId, triggers, _) -> forgetNotes(patientId, triggers))
+                        .build();
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Returns the combined trigger mask of an indexed patient.
+     *
+     * @param patientId the patient ID
+     * @param version the trigger vocabulary version
+     * @return the mask, or empty if the patient is not indexed for this vocabulary version
+     */
+    public OptionalLong triggersOf(Long patientId, String version) {
+        if (!enabled) {
+            return OptionalLong.empty();
+        }
+        PatientTriggers triggers = byPatient.getIfPresent(patientId);
+        return triggers != null && triggers.version.equals(version)
+                ? OptionalLong.of(triggers.combined())
+                : OptionalLong.empty();
+    }
+
+    /**
+     * Starts buffering the deltas of a patient whose notes are about to be fetched. Must be called
+     * before the fetch and followed by {@link #endLoad} once the fetch is over, loaded or not.
+     *
+     * @param patientId the patient ID
+     */
+    public void beginLoad(Long patientId) {
+        if (enabled) {
+            loading.putIfAbsent(patientId, new PendingDeltas());
+        }
+    }
+
+    /**
+     * Stops buffering the deltas of a patient.
+     *
+     * @param patientId the patient ID
+     */
+    public void endLoad(Long patientId) {
+        loading.remove(patientId);
+    }
+
+    /**
+     * Indexes a patient from the full list of its notes, replaying the deltas buffered since
+     * {@link #beginLoad}. A patient that is already indexed for the same vocabulary version is
+     * left untouched, since it may have received deltas more recent than the given notes.
+     *
+     * @param patientId the patient ID
+     * @param version the trigger vocabulary version the masks were computed with
+     * @param noteMasks trigger mask of every note of the patient, by note ID
+     */
+    public void load(Long patientId, String version, Map<String, Long> noteMasks) {
+        if (!enabled) {
+            return;
+        }
+        byPatient
+                .asMap()
+                .compute(
+                        patientId,
+                        (_, existing) -> {
+                            if (existing != null && existing.version.equals(version)) {
+                                return existing;
+                            }
+                            PatientTriggers loaded = new PatientTriggers(version, ticker.read());
+                            noteMasks.forEach(loaded::put);
+                            PendingDeltas pending = loading.get(patientId);
+                            if (pending != null) {
+                                pending.replay(loaded);
+                            }
+                            loaded.noteIds().forEach(noteId -> triggersOfNote.put(noteId, loaded));
+                            return loaded;
+                        });
+    }
+
+    /**
+     * Records a created or updated note. Notes of patients that are neither indexed nor being
+     * loaded are ignored; they will be picked up by the next full load.
+     *
+     * @param patientId the patient ID
+     * @param noteId the note ID
+     * @param mask the trigger mask of the note
+     * @param version the trigger vocabulary version the mask was computed with
+     */
+    public void put(Long patientId, String noteId, long mask, String version) {
+        if (!enabled) {
+            return;
+        }
+        // Serialized with load on the patient key, so a delta is either buffered and replayed or
+        // applied to the loaded entry
+        byPatient
+                .asMap()
+                .compute(
+                        patientId,
+                        (_, triggers) -> {
+                            if (triggers == null) {
+                                PendingDeltas pending = loading.get(patientId);
+                                if (pending != null) {
+                                    pending.put(noteId, mask, version);
+                                }
+                            } else if (triggers.version.equals(version)) {
+                                triggers.put(noteId, mask);
+                                triggersOfNote.put(noteId, triggers);
+                            }
+                            return triggers;
+                        });
+    }
+
+    /**
+     * Records a deleted note.
+     *
+     * @param patientId the patient the note belonged to, or {@code null} if unknown
+     * @param noteId the note ID
+     */
+    public void remove(Long patientId, String noteId) {
+        if (patientId == null) {
+            PatientTriggers triggers = triggersOfNote.remove(noteId);
+            if (triggers != null) {
+                triggers.remove(noteId);
+            }
+            return;
+        }
+        if (!enabled) {
+            return;
+        }
+        byPatient
+                .asMap()
+                .compute(
+                        patientId,
+                        (_, triggers) -> {
+                            if (triggers == null) {
+                                PendingDeltas pending = loading.get(patientId);
+                                if (pending != null) {
+                                    pending.remove(noteId);
+                                }
+                            } else {
+                                triggers.remove(noteId);
+                                triggersOfNote.remove(noteId, triggers);
+                            }
+                            return triggers;
+                        });
+    }
+
+    /**
+     * Tells whether the deltas of a patient are applied, because it is indexed, whatever the
+     * vocabulary version, or being loaded.
+     *
+     * @param patientId the patient ID
+     * @return {@code true} if deltas of this patient are applied
+     */
+    public boolean isIndexed(Long patientId) {
+        return enabled
+                && (byPatient.getIfPresent(patientId) != null || loading.containsKey(patientId));
+    }
+
+    /**
+     * Drops an indexed patient, so that it is loaded again from its notes on next use.
+     *
+     * @param patientId the patient ID
+     */
+    public void evict(Long patientId) {
+        byPatient.invalidate(patientId);
+    }
+
+    /** Drops every indexed patient. */
+    public void clear() {
+        byPatient.invalidateAll();
+        triggersOfNote.clear();
+    }
+
+    // Deltas update an entry without extending its life, which only a load does
+    private static Expiry<Long, PatientTriggers> expiringAfterLoad(Duration maxAge) {
+        long maxAgeNanos = maxAge.toNanos();
+        return new Expiry<>() {
+            @Override
+            public long expireAfterCreate(Long patientId, PatientTriggers triggers, long now) {
+                return Math.max(0L, maxAgeNanos - (now - triggers.loadedAt));
+            }
+
+            @Override
+            public long expireAfterUpdate(
+                    Long patientId, PatientTriggers triggers, long now, long remaining) {
+                return expireAfterCreate(patientId, triggers, now);
+            }
+
+            @Override
+            public long expireAfterRead(
+                    Long patientId, PatientTriggers triggers, long now, long remaining) {
+                return remaining;
+            }
+        };
+    }
+
+    private void forgetNotes(Long patientId, PatientTriggers triggers) {
+        // The entry may have been handed back unchanged by a compute
+        if (triggers != null && byPatient.asMap().get(patientId) != triggers) {
+            triggers.noteIds().forEach(noteId -> triggersOfNote.remove(noteId, triggers));
+        }
+    }
+
+    private static final class PatientTriggers {
+
+        private final String version;
+        private final long loadedAt;
+        private final Map<String, Long> noteMasks = new HashMap<>();
+        private final int[] noteCounts = new int[Long.SIZE];
+        private long combined;
+
+        PatientTriggers(String version, long loadedAt) {
+            this.version = version;
+            this.loadedAt = loadedAt;
+        }
+
+        synchronized void put(String noteId, long mask) {
+            Long previous = noteMasks.put(noteId, mask);
+            if (previous != null) {
+                apply(previous, -1);
+            }
+            apply(mask, 1);
+        }
+
+        synchronized void remove(String noteId) {
+            Long previous = noteMasks.remove(noteId);
+            if (previous != null) {
+                apply(previous, -1);
+            }
+        }
+
+        synchronized long combined() {
+            return combined;
+        }
+
+        synchronized List<String> noteIds() {
+            return List.copyOf(noteMasks.keySet());
+        }
+
+        private void apply(long mask, int delta) {
+            for (long bits = mask; bits != 0; bits &= bits - 1) {
+                int ordinal = Long.numberOfTrailingZeros(bits);
+                noteCounts[ordinal] += delta;
+                if (noteCounts[ordinal] > 0) {
+                    combined |= 1L << ordinal;
+                } else {
+                    combined &= ~(1L << ordinal);
+                }
+            }
+        }
+    }
+
+    /**
+     * Deltas received while the notes of a patient are fetched, in arrival order. A delta reads
+     * the note after its change was recorded, so replaying the last delta of a note over the
+     * fetched mask never loses a change; a stale mask left by a later write is replaced by the
+     * delta of that write.
+     */
+    private static final class PendingDeltas {
+
+        private final Map<String, Delta> deltas = new LinkedHashMap<>();
+
+        synchronized void put(String noteId, long mask, String version) {
+            Delta previous = deltas.get(noteId);
+            if (previous == null || !previous.deleted()) {
+                deltas.put(noteId, new Delta(mask, version, false));
+            }
+        }
+
+        synchronized void remove(String noteId) {
+            deltas.put(noteId, new Delta(0L, null, true));
+        }
+
+        synchronized void replay(PatientTriggers triggers) {
+            deltas.forEach(
+                    (noteId, delta) -> {
+                        if (delta.deleted()) {
+                            triggers.remove(noteId);
+                        } else if (triggers.version.equals(delta.version())) {
+                            triggers.put(noteId, delta.mask());
+                        }
+                    });
+        }
+
+        private record Delta(long mask, String version, boolean deleted) {}
+    }
+}
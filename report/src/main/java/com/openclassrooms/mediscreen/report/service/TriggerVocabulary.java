@@ -0,0 +1,97 @@
+package com.openclassrooms.mediscreen.report.service;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.Resource;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import com.openclassrooms.mediscreen.trigger.TriggerMatcher;
+import com.openclassrooms.mediscreen.trigger.TriggerTerms;
+
+import lombok.extern.log4j.Log4j2;
+
+/**
+ * Trigger vocabulary loaded from an external resource and compiled into a {@link TriggerMatcher}.
+ *
+ * <p>Each reload builds a complete new snapshot before publishing it with a single reference
+ * swap, so readers never see a half-built matcher and never take a lock. The snapshot version is a
+ * digest of the term list, identical on every instance serving the same vocabulary.
+ */
+@Component
+@Log4j2
+public class TriggerVocabulary {
+
+    private final Resource location;
+    private final AtomicReference<Snapshot> current;
+
+    public TriggerVocabulary(
+            @Value("${report.triggers.location:classpath:trigger-terms.txt}") Resource location) {
+        this.location = location;
+        this.current = new AtomicReference<>(load(location));
+    }
+
+    /** Returns the vocabulary currently in use. */
+    public Snapshot current() {
+        return current.get();
+    }
+
+    /**
+     * Reloads the vocabulary and publishes it if it changed.
+     *
+     * @return the vocabulary in use after the reload
+     * @throws IllegalArgumentException if the new vocabulary cannot be compiled, in which case the
+     *     previous one stays in use
+     */
+    public Snapshot reload() {
+        Snapshot next = load(location);
+        Snapshot previous = current.get();
+        if (isSame(previous, next)) {
+            return previous;
+        }
+        current.set(next);
+        log.info(
+                "Trigger vocabulary updated from version {} to {} ({} terms)",
+                previous.version(),
+                next.version(),
+                next.matcher().terms().size());
+        return next;
+    }
+
+    @Scheduled(cron = "${report.triggers.refresh-cron:0 * * * * *}")
+    public void scheduledReload() {
+        try {
+            reload();
+        } catch (RuntimeException e) {
+            log.warn(
+                    "Trigger vocabulary reload failed, keeping current version: {}",
+                    e.getMessage());
+        }
+    }
+
+    private static boolean isSame(Snapshot snapshot, Snapshot other) {
+        return snapshot.version().equals(other.version());
+    }
+
+    private static Snapshot load(Resource location) {
+        List<String> terms;
+        try {
+            terms = TriggerTerms.read(location.getInputStream());
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to read trigger terms from " + location, e);
+        }
+        return new Snapshot(TriggerTerms.version(terms), TriggerMatcher.compile(terms));
+    }
+
+    /**
+     * A compiled vocabulary.
+     *
+     * @param version digest of the term list
+     * @param matcher the matcher compiled from the term list
+     */
+    public record Snapshot(String version, TriggerMatcher matcher) {}
+}
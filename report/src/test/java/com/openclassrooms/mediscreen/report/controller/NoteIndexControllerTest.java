@@ -0,0 +1,64 @@
+package com.openclassrooms.mediscreen.report.controller;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.verify;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.webmvc.test.autoconfigure.WebMvcTest;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.client.RestTestClient;
+
+import com.openclassrooms.mediscreen.report.model.Note;
+import com.openclassrooms.mediscreen.report.service.ReportService;
+
+@WebMvcTest(NoteIndexController.class)
+class NoteIndexControllerTest {
+
+    private static final String BASE_URL = "/api/v1/report/index/notes";
+    private static final String NOTE_ID = "60f532903ded77001064ae92";
+
+    @Autowired private MockMvc mockMvc;
+    private RestTestClient client;
+
+    @MockitoBean private ReportService reportService;
+
+    @BeforeEach
+    void setUp() {
+        client = RestTestClient.bindTo(mockMvc).build();
+    }
+
+    @Test
+    @DisplayName("Should apply a saved note and return 204")
+    void shouldApplySavedNote() {
+        client.put()
+                .uri(BASE_URL)
+                .contentType(MediaType.APPLICATION_JSON)
+                .body(
+                        """
+                        {
+                            "id": "%s",
+                            "patientId": 1,
+                            "report": "Patient fumeur"
+                        }
+                        """
+                                .formatted(NOTE_ID))
+                .exchange()
+                .expectStatus()
+                .isNoContent();
+
+        verify(reportService).onNoteSaved(any(Note.class));
+    }
+
+    @Test
+    @DisplayName("Should apply a deleted note and return 204")
+    void shouldApplyDeletedNote() {
+        client.delete().uri(BASE_URL + "/" + NOTE_ID).exchange().expectStatus().isNoContent();
+
+        verify(reportService).onNoteDeleted(null, NOTE_ID);
+    }
+}
@@ -1,18 +1,26 @@
 package com.openclassrooms.mediscreen.report.controller;
 
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doAnswer;
 import static org.mockito.Mockito.when;
 
+import java.util.List;
+import java.util.function.Consumer;
+
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Nested;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.webmvc.test.autoconfigure.WebMvcTest;
+import org.springframework.core.ParameterizedTypeReference;
 import org.springframework.http.MediaType;
 import org.springframework.test.context.bean.override.mockito.MockitoBean;
 import org.springframework.test.web.servlet.MockMvc;
 import org.springframework.test.web.servlet.client.RestTestClient;
 
+import com.openclassrooms.mediscreen.report.dto.BatchReportDTO;
 import com.openclassrooms.mediscreen.report.dto.ReportDTO;
 import com.openclassrooms.mediscreen.report.service.ReportService;
 
@@ -69,7 +77,98 @@ class ReportControllerTest {
         }
     }
 
+    @Nested
+    @DisplayName("POST /api/v1/report/batch")
+    class GetPatientRiskReportsTests {
+
+        @Test
+        @DisplayName("Should return one entry per patient with per-patient errors")
+        void shouldReturnOneEntryPerPatient() {
+            List<BatchReportDTO> expectedReports =
+                    List.of(
+                            BatchReportDTO.success(PATIENT_ID, createReportDTO()),
+                            BatchReportDTO.failure(2L, "Patient not found for id: 2"));
+            when(reportService.getReportsOfRisk(List.of(PATIENT_ID, 2L)))
+                    .thenReturn(expectedReports);
+
+            client.post()
+                    .uri(BASE_URL + "/batch")
+                    .contentType(MediaType.APPLICATION_JSON)
+                    .body("[1, 2]")
+                    .exchange()
+                    .expectStatus()
+                    .isOk()
+                    .expectBody(new ParameterizedTypeReference<List<BatchReportDTO>>() {})
+                    .isEqualTo(expectedReports);
+        }
+    }
+
+    @Nested
+    @DisplayName("GET /api/v1/report/export")
+    class ExportPatientRiskReportsTests {
+
+        @Test
+        @DisplayName("Should stream one JSON report per line")
+        void shouldStreamOneReportPerLine() {
+            doAnswer(
+                            invocation -> {
+                                Consumer<List<ReportDTO>> pageConsumer = invocation.getArgument(0);
+                                pageConsumer.accept(List.of(createReportDTO()));
+                                pageConsumer.accept(List.of(createReportDTO()));
+                                return null;
+                            })
+                    .when(reportService)
+                    .exportReportsOfRisk(any());
+
+            String body =
+                    client.get()
+                            .uri(BASE_URL + "/export")
+                            .exchange()
+                            .expectStatus()
+                            .isOk()
+                            .expectHeader()
+                            .contentTypeCompatibleWith(MediaType.APPLICATION_NDJSON)
+                            .expectBody(String.class)
+                            .returnResult()
+                            .getResponseBody();
+
+            assertThat(body).isNotNull();
+            assertThat(body.lines())
+                    .hasSize(2)
+                    .allSatisfy(line -> assertThat(line).startsWith("{").contains("\"John\""));
+        }
+
+        @Test
+        @DisplayName("Should end with an error record when the export fails midway")
+        void shouldEndWithErrorRecordWhenExportFails() {
+            doAnswer(
+                            invocation -> {
+                                Consumer<List<ReportDTO>> pageConsumer = invocation.getArgument(0);
+                                pageConsumer.accept(List.of(createReportDTO()));
+                                throw new IllegalStateException("patient service unavailable");
+                            })
+                    .when(reportService)
+                    .exportReportsOfRisk(any());
+
+            String body =
+                    client.get()
+                            .uri(BASE_URL + "/export")
+                            .exchange()
+                            .expectStatus()
+                            .isOk()
+                            .expectBody(String.class)
+                            .returnResult()
+                            .getResponseBody();
+
+            assertThat(body).isNotNull();
+            assertThat(body.lines()).hasSize(2);
+            assertThat(body.lines().toList().getLast())
+                    .contains(ReportController.EXPORT_ABORTED)
+                    .contains("\"exported\":1");
+        }
+    }
+
     private static ReportDTO createReportDTO() {
-        return new ReportDTO("John", "Doe", 45, "In danger");
+        return new ReportDTO("John", "Doe", 45, "In danger", "3f2a9c01d4e7", false);
     }
 }
@@ -0,0 +1,62 @@
+package com.openclassrooms.mediscreen.report.controller;
+
+import static org.mockito.Mockito.when;
+
+import java.util.List;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.webmvc.test.autoconfigure.WebMvcTest;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.client.RestTestClient;
+
+import com.openclassrooms.mediscreen.report.service.TriggerVocabulary;
+import com.openclassrooms.mediscreen.trigger.TriggerMatcher;
+
+@WebMvcTest(VocabularyController.class)
+class VocabularyControllerTest {
+
+    private static final String BASE_URL = "/api/v1/report/vocabulary";
+
+    @Autowired private MockMvc mockMvc;
+    private RestTestClient client;
+
+    @MockitoBean private TriggerVocabulary triggerVocabulary;
+
+    @BeforeEach
+    void setUp() {
+        client = RestTestClient.bindTo(mockMvc).build();
+    }
+
+    @Test
+    @DisplayName("Should return the vocabulary currently in use")
+    void shouldReturnCurrentVocabulary() {
+        when(triggerVocabulary.current())
+                .thenReturn(
+                        new TriggerVocabulary.Snapshot(
+                                "3f2a9c01d4e7", TriggerMatcher.compile(List.of("fumeur"))));
+
+        client.get()
+                .uri(BASE_URL)
+                .exchange()
+                .expectStatus()
+                .isOk()
+                .expectBody()
+                .jsonPath("$.version")
+                .isEqualTo("3f2a9c01d4e7")
+                .jsonPath("$.terms[0]")
+                .isEqualTo("fumeur");
+    }
+
+    @Test
+    @DisplayName("Should return 400 and keep the vocabulary when the reload is invalid")
+    void shouldReturn400WhenReloadIsInvalid() {
+        when(triggerVocabulary.reload())
+                .thenThrow(new IllegalArgumentException("Trigger terms must not be blank"));
+
+        client.post().uri(BASE_URL + "/reload").exchange().expectStatus().isBadRequest();
+    }
+}
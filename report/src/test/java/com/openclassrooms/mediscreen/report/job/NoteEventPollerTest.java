@@ -0,0 +1,113 @@
+package com.openclassrooms.mediscreen.report.job;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.isNull;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.stream.IntStream;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import com.openclassrooms.mediscreen.report.model.NoteEvent;
+import com.openclassrooms.mediscreen.report.proxy.NoteProxy;
+import com.openclassrooms.mediscreen.report.service.ReportService;
+
+@ExtendWith(MockitoExtension.class)
+class NoteEventPollerTest {
+
+    private static final Duration OVERLAP = Duration.ofSeconds(30);
+    private static final LocalDateTime NOW = LocalDateTime.of(2024, 1, 1, 12, 0);
+
+    @Mock private NoteProxy noteProxyMock;
+    @Mock private ReportService reportServiceMock;
+    private NoteEventPoller noteEventPollerUT;
+
+    @BeforeEach
+    void setUp() {
+        noteEventPollerUT = new NoteEventPoller(noteProxyMock, reportServiceMock, OVERLAP);
+    }
+
+    @Test
+    @DisplayName("Should read pages until the outbox is drained")
+    void shouldDrainOutbox() {
+        List<NoteEvent> fullPage =
+                IntStream.range(0, NoteEventPoller.PAGE_SIZE)
+                        .mapToObj(i -> createEvent(i, NOW))
+                        .toList();
+        NoteEvent last = createEvent(NoteEventPoller.PAGE_SIZE, NOW);
+        when(noteProxyMock.getNoteEvents(null, NoteEventPoller.PAGE_SIZE)).thenReturn(fullPage);
+        when(noteProxyMock.getNoteEvents(fullPage.getLast().id(), NoteEventPoller.PAGE_SIZE))
+                .thenReturn(List.of(last));
+
+        assertThat(noteEventPollerUT.poll()).isEqualTo(NoteEventPoller.PAGE_SIZE + 1);
+
+        verify(reportServiceMock).onNoteEvent(last);
+    }
+
+    @Test
+    @DisplayName("Should apply an event committed late within the overlap window exactly once")
+    void shouldApplyLateEventOnce() {
+        NoteEvent first = createEvent(1, NOW);
+        NoteEvent late = createEvent(2, NOW);
+        NoteEvent third = createEvent(3, NOW.plusSeconds(1));
+        when(noteProxyMock.getNoteEvents(isNull(), anyInt()))
+                .thenReturn(List.of(first, third))
+                .thenReturn(List.of(first, late, third));
+
+        assertThat(noteEventPollerUT.poll()).isEqualTo(2);
+        assertThat(noteEventPollerUT.poll()).isEqualTo(1);
+
+        verify(reportServiceMock, times(1)).onNoteEvent(first);
+        verify(reportServiceMock, times(1)).onNoteEvent(late);
+        verify(reportServiceMock, times(1)).onNoteEvent(third);
+    }
+
+    @Test
+    @DisplayName("Should resume after the newest event older than the overlap window")
+    void shouldResumeAfterOverlapWindow() {
+        NoteEvent old = createEvent(1, NOW);
+        NoteEvent recent = createEvent(2, NOW.plus(OVERLAP).plusSeconds(1));
+        when(noteProxyMock.getNoteEvents(isNull(), anyInt())).thenReturn(List.of(old, recent));
+        when(noteProxyMock.getNoteEvents(old.id(), NoteEventPoller.PAGE_SIZE))
+                .thenReturn(List.of(recent));
+
+        assertThat(noteEventPollerUT.poll()).isEqualTo(2);
+        assertThat(noteEventPollerUT.poll()).isZero();
+
+        verify(noteProxyMock).getNoteEvents(old.id(), NoteEventPoller.PAGE_SIZE);
+    }
+
+    @Test
+    @DisplayName("Should move past an event that cannot be applied")
+    void shouldMovePastFailingEvent() {
+        NoteEvent failing = createEvent(1, NOW);
+        NoteEvent next = createEvent(2, NOW);
+        when(noteProxyMock.getNoteEvents(any(), anyInt())).thenReturn(List.of(failing, next));
+        doThrow(new IllegalStateException("note service down"))
+                .when(reportServiceMock)
+                .onNoteEvent(failing);
+
+        assertThat(noteEventPollerUT.poll()).isEqualTo(2);
+
+        verify(reportServiceMock).onNoteEvent(next);
+    }
+
+    // Event IDs are hex ObjectIds, which sort like their creation order
+    private static NoteEvent createEvent(int sequence, LocalDateTime occurredAt) {
+        return new NoteEvent(
+                "%024x".formatted(sequence), NoteEvent.Type.UPDATED, "n1", 1L, 1L, occurredAt);
+    }
+}
@@ -0,0 +1,123 @@
+package com.openclassrooms.mediscreen.report.job;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.when;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.Spy;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import com.openclassrooms.mediscreen.report.enumeration.Gender;
+import com.openclassrooms.mediscreen.report.enumeration.Level;
+import com.openclassrooms.mediscreen.report.model.Note;
+import com.openclassrooms.mediscreen.report.model.Patient;
+import com.openclassrooms.mediscreen.report.proxy.NoteProxy;
+import com.openclassrooms.mediscreen.report.proxy.PatientProxy;
+import com.openclassrooms.mediscreen.report.service.ReportService;
+
+import feign.Request;
+import feign.Response;
+import tools.jackson.databind.json.JsonMapper;
+
+@ExtendWith(MockitoExtension.class)
+class RiskSweepJobTest {
+
+    @TempDir private Path outputDir;
+
+    @Mock private PatientProxy patientProxyMock;
+    @Mock private NoteProxy noteProxyMock;
+    @Mock private ReportService reportServiceMock;
+    @Spy private JsonMapper jsonMapper = new JsonMapper();
+    @InjectMocks private RiskSweepJob riskSweepJobUT;
+
+    @BeforeEach
+    void setUp() {
+        ReflectionTestUtils.setField(riskSweepJobUT, "outputDir", outputDir.toString());
+        ReflectionTestUtils.setField(riskSweepJobUT, "pageSize", 2);
+    }
+
+    @Test
+    @DisplayName("Should assess every patient, page by page, from the streamed notes")
+    void shouldAssessEveryPatient() throws IOException {
+        Patient john = createPatient(1L);
+        Patient jane = createPatient(2L);
+        Patient jack = createPatient(3L);
+        Note johnNote =
+                new Note("n1", "Dr", 1L, "fumeur", LocalDateTime.of(2024, 1, 15, 10, 30), 0L);
+        when(noteProxyMock.streamNotes())
+                .thenReturn(
+                        ndjson(
+                                """
+                                {"id":"n1","practitionerName":"Dr","patientId":1,\
+                                "report":"fumeur","created":"2024-01-15T10:30:00","version":0}
+                                """));
+        when(reportServiceMock.scanTriggers(any(), eq(johnNote), eq(0L))).thenReturn(1L);
+        when(patientProxyMock.getPatientsPage(0L, 2)).thenReturn(List.of(john, jane));
+        when(patientProxyMock.getPatientsPage(2L, 2)).thenReturn(List.of(jack));
+        when(reportServiceMock.assessLevel(john, 1L)).thenReturn(Level.BORDERLINE);
+        when(reportServiceMock.assessLevel(jane, 0L)).thenReturn(Level.NONE);
+        when(reportServiceMock.assessLevel(jack, 0L)).thenReturn(Level.NONE);
+
+        RiskSweepSummary summary = riskSweepJobUT.run();
+
+        assertThat(summary.patientCount()).isEqualTo(3);
+        assertThat(summary.failureCount()).isZero();
+        assertThat(summary.distribution())
+                .containsEntry(Level.BORDERLINE, 1L)
+                .containsEntry(Level.NONE, 2L)
+                .containsEntry(Level.IN_DANGER, 0L);
+        assertThat(Files.readAllLines(summary.patientsFile()))
+                .containsExactly("patient_id,level", "1,Borderline", "2,None", "3,None");
+        assertThat(Files.readAllLines(summary.distributionFile())).contains("Borderline,1");
+    }
+
+    @Test
+    @DisplayName("Should record a failure without aborting the sweep")
+    void shouldRecordFailure() throws IOException {
+        Patient john = createPatient(1L);
+        when(noteProxyMock.streamNotes()).thenReturn(ndjson(""));
+        when(patientProxyMock.getPatientsPage(0L, 2)).thenReturn(List.of(john));
+        when(reportServiceMock.assessLevel(any(Patient.class), anyLong()))
+                .thenThrow(new IllegalStateException("boom"));
+
+        RiskSweepSummary summary = riskSweepJobUT.run();
+
+        assertThat(summary.failureCount()).isEqualTo(1);
+        assertThat(Files.readAllLines(summary.patientsFile())).contains("1,Error");
+    }
+
+    private static Response ndjson(String body) {
+        return Response.builder()
+                .status(200)
+                .request(
+                        Request.create(
+                                Request.HttpMethod.GET, "/stream", Map.of(), null, null, null))
+                .headers(Map.of())
+                .body(body, StandardCharsets.UTF_8)
+                .build();
+    }
+
+    private static Patient createPatient(Long id) {
+        return new Patient(
+                id, "john", "doe", LocalDate.of(1980, 1, 25), Gender.MALE, "address", "phone");
+    }
+}
@@ -0,0 +1,133 @@
+package com.openclassrooms.mediscreen.report.proxy;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.cloud.client.circuitbreaker.CircuitBreaker;
+
+import feign.FeignException;
+import feign.Request;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+class StaleWhileRevalidateTest {
+
+    private final List<Runnable> refreshes = new ArrayList<>();
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+    private StaleWhileRevalidate<Long, String> store;
+
+    @BeforeEach
+    void setUp() {
+        store =
+                new StaleWhileRevalidate<>(
+                        "patientApi",
+                        new PassThroughCircuitBreaker(),
+                        refreshes::add,
+                        100,
+                        registry);
+    }
+
+    @Test
+    @DisplayName("Should remember the last good response of a key")
+    void shouldRememberLastGoodResponse() {
+        assertThat(store.fetch(1L, () -> "john")).isEqualTo(Fetched.fresh("john"));
+
+        assertThat(store.lastKnownGood(1L)).hasValue("john");
+        assertThat(store.isStale(1L)).isFalse();
+    }
+
+    @Test
+    @DisplayName("Should serve the stale response and refresh it in the background on failure")
+    void shouldServeStaleResponseOnFailure() {
+        store.get(1L, () -> "john");
+
+        Fetched<String> result = store.fetch(1L, StaleWhileRevalidateTest::unavailable);
+
+        assertThat(result).isEqualTo(Fetched.stale("john"));
+        assertThat(store.isStale(1L)).isTrue();
+        assertThat(registry.counter("report.proxy.stale", "proxy", "patientApi").count())
+                .isEqualTo(1);
+        assertThat(refreshes).hasSize(1);
+    }
+
+    @Test
+    @DisplayName("Should start a single background refresh per key")
+    void shouldStartSingleRefreshPerKey() {
+        store.get(1L, () -> "john");
+
+        store.get(1L, StaleWhileRevalidateTest::unavailable);
+        store.get(1L, StaleWhileRevalidateTest::unavailable);
+
+        assertThat(refreshes).hasSize(1);
+    }
+
+    @Test
+    @DisplayName("Should clear the stale mark once the background refresh succeeds")
+    void shouldClearStaleMarkAfterRefresh() {
+        store.get(1L, () -> "john");
+        Iterator<Supplier<String>> calls =
+                List.<Supplier<String>>of(
+                                StaleWhileRevalidateTest::unavailable, () -> "john junior")
+                        .iterator();
+
+        store.get(1L, () -> calls.next().get());
+        refreshes.getFirst().run();
+
+        assertThat(store.lastKnownGood(1L)).hasValue("john junior");
+        assertThat(store.isStale(1L)).isFalse();
+    }
+
+    @Test
+    @DisplayName("Should rethrow the failure when no good response is known")
+    void shouldRethrowWithoutLastGoodResponse() {
+        assertThatThrownBy(() -> store.get(1L, StaleWhileRevalidateTest::unavailable))
+                .isInstanceOf(IllegalStateException.class)
+                .hasMessage("patient service unavailable");
+    }
+
+    @Test
+    @DisplayName("Should not mask client errors with a stale response")
+    void shouldNotMaskClientErrors() {
+        store.get(1L, () -> "john");
+        FeignException notFound =
+                new FeignException.NotFound(
+                        "not found",
+                        Request.create(Request.HttpMethod.GET, "/1", Map.of(), null, null, null),
+                        null,
+                        Map.of());
+
+        assertThatThrownBy(
+                        () ->
+                                store.get(
+                                        1L,
+                                        () -> {
+                                            throw notFound;
+                                        }))
+                .isSameAs(notFound);
+    }
+
+    private static String unavailable() {
+        throw new IllegalStateException("patient service unavailable");
+    }
+
+    private static final class PassThroughCircuitBreaker implements CircuitBreaker {
+
+        @Override
+        public <T> T run(Supplier<T> toRun, Function<Throwable, T> fallback) {
+            try {
+                return toRun.get();
+            } catch (RuntimeException e) {
+                return fallback.apply(e);
+            }
+        }
+    }
+}
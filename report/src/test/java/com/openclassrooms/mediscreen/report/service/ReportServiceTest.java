@@ -2,14 +2,21 @@ package com.openclassrooms.mediscreen.report.service;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
+import java.time.Duration;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicReference;
 
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Nested;
@@ -17,17 +24,25 @@ import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.junit.jupiter.params.ParameterizedTest;
 import org.junit.jupiter.params.provider.CsvSource;
+import org.mockito.Answers;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
+import org.mockito.Spy;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.core.io.ClassPathResource;
 
+import com.openclassrooms.mediscreen.report.dto.BatchReportDTO;
 import com.openclassrooms.mediscreen.report.dto.ReportDTO;
 import com.openclassrooms.mediscreen.report.enumeration.Gender;
 import com.openclassrooms.mediscreen.report.model.Note;
+import com.openclassrooms.mediscreen.report.model.NoteEvent;
 import com.openclassrooms.mediscreen.report.model.Patient;
+import com.openclassrooms.mediscreen.report.proxy.Fetched;
 import com.openclassrooms.mediscreen.report.proxy.NoteProxy;
 import com.openclassrooms.mediscreen.report.proxy.PatientProxy;
 
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
 @ExtendWith(MockitoExtension.class)
 class ReportServiceTest {
 
@@ -36,8 +51,27 @@ class ReportServiceTest {
     private static final String PATIENT_ADDRESS = "new york";
     private static final String PATIENT_PHONE = "000-111-222";
 
-    @Mock private PatientProxy patientProxyMock;
-    @Mock private NoteProxy noteProxyMock;
+    // Real default methods, so that the fetch variants go through the stubbed plain calls
+    @Mock(answer = Answers.CALLS_REAL_METHODS)
+    private PatientProxy patientProxyMock;
+
+    @Mock(answer = Answers.CALLS_REAL_METHODS)
+    private NoteProxy noteProxyMock;
+
+    @Spy private TriggerIndex triggerIndex = new TriggerIndex(false, 100, Duration.ofHours(1));
+    @Spy private ReportCache reportCache = new ReportCache(100, Duration.ofMinutes(10));
+
+    @Spy
+    private RiskRuleEngine riskRuleEngine =
+            RiskRuleEngine.load(new ClassPathResource("risk-rules.csv"));
+
+    @Spy
+    private TriggerVocabulary triggerVocabulary =
+            new TriggerVocabulary(new ClassPathResource("trigger-terms.txt"));
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    @Spy private ReportMetrics reportMetrics = new ReportMetrics(meterRegistry);
+
     @InjectMocks private ReportService reportServiceUT;
 
     @Nested
@@ -68,6 +102,8 @@ class ReportServiceTest {
             assertThat(result.getLevel()).isEqualTo("In danger");
             assertThat(result.getAge())
                     .isGreaterThan(30); // Age is calculated dynamically, should be ~40
+            assertThat(result.getVocabularyVersion())
+                    .isEqualTo(triggerVocabulary.current().version());
             verify(patientProxyMock).getPatientById(PATIENT_ID);
             verify(noteProxyMock).getNotesByPatientId(PATIENT_ID);
         }
@@ -82,6 +118,30 @@ class ReportServiceTest {
                     .hasMessageContaining("Patient not found");
         }
 
+        @Test
+        @DisplayName("Should propagate patient service failures")
+        void shouldPropagatePatientServiceFailure() {
+            when(patientProxyMock.getPatientById(PATIENT_ID))
+                    .thenThrow(new IllegalStateException("patient service unavailable"));
+
+            assertThatThrownBy(() -> reportServiceUT.getReportOfRisk(PATIENT_ID))
+                    .isInstanceOf(IllegalStateException.class)
+                    .hasMessageContaining("patient service unavailable");
+        }
+
+        @Test
+        @DisplayName("Should propagate note service failures")
+        void shouldPropagateNoteServiceFailure() {
+            Patient patient = createPatient("john", "doe", LocalDate.of(1980, 1, 25), Gender.MALE);
+            when(patientProxyMock.getPatientById(PATIENT_ID)).thenReturn(patient);
+            when(noteProxyMock.getNotesByPatientId(PATIENT_ID))
+                    .thenThrow(new IllegalStateException("note service unavailable"));
+
+            assertThatThrownBy(() -> reportServiceUT.getReportOfRisk(PATIENT_ID))
+                    .isInstanceOf(IllegalStateException.class)
+                    .hasMessageContaining("note service unavailable");
+        }
+
         @Test
         @DisplayName("Should handle null notes list gracefully")
         void shouldHandleEmptyNotes() {
@@ -95,6 +155,374 @@ class ReportServiceTest {
         }
     }
 
+    @Nested
+    @DisplayName("getReportsOfRisk")
+    class GetReportsOfRiskTests {
+
+        @Test
+        @DisplayName("Should compute every report from a single bulk fetch")
+        void shouldComputeReportsFromBulkFetch() {
+            Patient john = createPatient("john", "doe", LocalDate.of(1980, 1, 25), Gender.MALE);
+            List<Long> ids = List.of(PATIENT_ID, 2L);
+            when(patientProxyMock.getPatientsByIds(ids)).thenReturn(List.of(john));
+            when(noteProxyMock.getNotesByPatientIds(ids))
+                    .thenReturn(createNotesWithTriggers(2));
+
+            List<BatchReportDTO> result = reportServiceUT.getReportsOfRisk(ids);
+
+            assertThat(result).hasSize(2);
+            assertThat(result.get(0).getPatientId()).isEqualTo(PATIENT_ID);
+            assertThat(result.get(0).getReport().getLevel()).isEqualTo("Borderline");
+            assertThat(result.get(1).getPatientId()).isEqualTo(2L);
+            assertThat(result.get(1).getReport()).isNull();
+            assertThat(result.get(1).getError()).contains("Patient not found");
+            verify(patientProxyMock, never()).getPatientById(PATIENT_ID);
+            verify(noteProxyMock, never()).getNotesByPatientId(PATIENT_ID);
+        }
+
+        @Test
+        @DisplayName("Should report a per-patient error when the bulk fetch fails")
+        void shouldReportErrorWhenBulkFetchFails() {
+            List<Long> ids = List.of(PATIENT_ID);
+            when(patientProxyMock.getPatientsByIds(ids))
+                    .thenThrow(new IllegalStateException("patient service unavailable"));
+
+            List<BatchReportDTO> result = reportServiceUT.getReportsOfRisk(ids);
+
+            assertThat(result).singleElement().extracting(BatchReportDTO::getError).isNotNull();
+        }
+
+        @Test
+        @DisplayName("Should report a per-patient error when one patient cannot be assessed")
+        void shouldReportErrorForMalformedPatient() {
+            Patient john = createPatient("john", "doe", LocalDate.of(1980, 1, 25), Gender.MALE);
+            Patient unknownBirth =
+                    new Patient(2L, "jane", "doe", null, Gender.FEMALE, PATIENT_ADDRESS, null);
+            List<Long> ids = List.of(PATIENT_ID, 2L);
+            when(patientProxyMock.getPatientsByIds(ids)).thenReturn(List.of(john, unknownBirth));
+            when(noteProxyMock.getNotesByPatientIds(ids)).thenReturn(List.of());
+
+            List<BatchReportDTO> result = reportServiceUT.getReportsOfRisk(ids);
+
+            assertThat(result).hasSize(2);
+            assertThat(result.get(0).getReport()).isNotNull();
+            assertThat(result.get(1).getPatientId()).isEqualTo(2L);
+            assertThat(result.get(1).getReport()).isNull();
+            assertThat(result.get(1).getError()).isEqualTo("Failed to compute report");
+        }
+    }
+
+    @Nested
+    @DisplayName("exportReportsOfRisk")
+    class ExportReportsOfRiskTests {
+
+        @Test
+        @DisplayName("Should hand over one page of reports per page of patients")
+        void shouldExportReportsPageByPage() {
+            Patient john = createPatient("john", "doe", LocalDate.of(1980, 1, 25), Gender.MALE);
+            when(patientProxyMock.getPatientsPage(0L, 500)).thenReturn(List.of(john));
+            when(noteProxyMock.getNotesByPatientIds(List.of(PATIENT_ID)))
+                    .thenReturn(createNotesWithTriggers(2));
+            List<List<ReportDTO>> pages = new ArrayList<>();
+
+            reportServiceUT.exportReportsOfRisk(pages::add);
+
+            assertThat(pages).singleElement().satisfies(page -> assertThat(page).hasSize(1));
+            assertThat(pages.getFirst().getFirst().getLevel()).isEqualTo("Borderline");
+            verify(patientProxyMock, times(1)).getPatientsPage(0L, 500);
+        }
+
+        @Test
+        @DisplayName("Should export nothing when there is no patient")
+        void shouldExportNothingWithoutPatients() {
+            when(patientProxyMock.getPatientsPage(0L, 500)).thenReturn(List.of());
+            List<List<ReportDTO>> pages = new ArrayList<>();
+
+            reportServiceUT.exportReportsOfRisk(pages::add);
+
+            assertThat(pages).isEmpty();
+            verify(noteProxyMock, never()).getNotesByPatientIds(List.of());
+        }
+    }
+
+    @Nested
+    @DisplayName("Request coalescing")
+    class RequestCoalescingTests {
+
+        @Test
+        @DisplayName("Should fetch once for concurrent requests of the same patient")
+        void shouldFetchOnceForConcurrentRequests() throws InterruptedException {
+            Patient patient = createPatient("john", "doe", LocalDate.of(1980, 1, 25), Gender.MALE);
+            CountDownLatch release = new CountDownLatch(1);
+            when(patientProxyMock.getPatientById(PATIENT_ID))
+                    .thenAnswer(
+                            _ -> {
+                                release.await();
+                                return patient;
+                            });
+            when(noteProxyMock.getNotesByPatientId(PATIENT_ID))
+                    .thenReturn(createNotesWithTriggers(2));
+            AtomicReference<ReportDTO> firstReport = new AtomicReference<>();
+            AtomicReference<ReportDTO> secondReport = new AtomicReference<>();
+
+            Thread first =
+                    Thread.ofPlatform()
+                            .start(
+                                    () ->
+                                            firstReport.set(
+                                                    reportServiceUT.getReportOfRisk(PATIENT_ID)));
+            while (first.getState() != Thread.State.WAITING) {
+                Thread.onSpinWait();
+            }
+            Thread second =
+                    Thread.ofPlatform()
+                            .start(
+                                    () ->
+                                            secondReport.set(
+                                                    reportServiceUT.getReportOfRisk(PATIENT_ID)));
+            while (second.getState() != Thread.State.WAITING) {
+                Thread.onSpinWait();
+            }
+            release.countDown();
+            first.join();
+            second.join();
+
+            assertThat(firstReport.get().getLevel()).isEqualTo("Borderline");
+            assertThat(secondReport.get()).isSameAs(firstReport.get());
+            verify(patientProxyMock, times(1)).getPatientById(PATIENT_ID);
+            verify(noteProxyMock, times(1)).getNotesByPatientId(PATIENT_ID);
+        }
+    }
+
+    @Nested
+    @DisplayName("Phase metrics")
+    class PhaseMetricsTests {
+
+        @Test
+        @DisplayName("Should time every phase and measure the notes of a computed report")
+        void shouldTimeEveryPhase() {
+            Patient patient = createPatient("john", "doe", LocalDate.of(1980, 1, 25), Gender.MALE);
+            when(patientProxyMock.getPatientById(PATIENT_ID)).thenReturn(patient);
+            when(noteProxyMock.getNotesByPatientId(PATIENT_ID))
+                    .thenReturn(List.of(createNote("Patient fumeur, poids élevé")));
+
+            reportServiceUT.getReportOfRisk(PATIENT_ID);
+
+            for (String phase :
+                    List.of(
+                            "patient-fetch",
+                            "note-fetch",
+                            "trigger-scan",
+                            "level-classification")) {
+                assertThat(
+                                meterRegistry
+                                        .get("report.phase")
+                                        .tags("phase", phase, "outcome", "success")
+                                        .timer()
+                                        .count())
+                        .as(phase)
+                        .isEqualTo(1);
+            }
+            assertThat(meterRegistry.get("report.notes").summary().totalAmount()).isEqualTo(1);
+            // Accented letters take two bytes in UTF-8
+            assertThat(meterRegistry.get("report.notes.size").summary().totalAmount())
+                    .isEqualTo(29);
+        }
+
+        @Test
+        @DisplayName("Should tag a failed phase with the error outcome")
+        void shouldTagFailedPhase() {
+            when(patientProxyMock.getPatientById(PATIENT_ID))
+                    .thenThrow(new IllegalStateException("patient service unavailable"));
+
+            assertThatThrownBy(() -> reportServiceUT.getReportOfRisk(PATIENT_ID))
+                    .isInstanceOf(IllegalStateException.class);
+
+            assertThat(
+                            meterRegistry
+                                    .get("report.phase")
+                                    .tags("phase", "patient-fetch", "outcome", "error")
+                                    .timer()
+                                    .count())
+                    .isEqualTo(1);
+        }
+    }
+
+    @Nested
+    @DisplayName("Report cache")
+    class ReportCacheTests {
+
+        @Test
+        @DisplayName("Should reuse the cached report while patient data is unchanged")
+        void shouldReuseCachedReport() {
+            Patient patient = createPatient("john", "doe", LocalDate.of(1980, 1, 25), Gender.MALE);
+            when(patientProxyMock.getPatientById(PATIENT_ID)).thenReturn(patient);
+            when(noteProxyMock.getNotesByPatientId(PATIENT_ID))
+                    .thenReturn(List.of(createNote("n1", "Patient fumeur")));
+
+            ReportDTO first = reportServiceUT.getReportOfRisk(PATIENT_ID);
+            ReportDTO second = reportServiceUT.getReportOfRisk(PATIENT_ID);
+
+            assertThat(second).isSameAs(first);
+        }
+
+        @Test
+        @DisplayName("Should recompute the report when a note changes")
+        void shouldRecomputeWhenNoteChanges() {
+            Patient patient = createPatient("john", "doe", LocalDate.of(1980, 1, 25), Gender.MALE);
+            when(patientProxyMock.getPatientById(PATIENT_ID)).thenReturn(patient);
+            when(noteProxyMock.getNotesByPatientId(PATIENT_ID))
+                    .thenReturn(List.of(createNote("n1", "Patient fumeur")))
+                    .thenReturn(List.of(createNote("n1", "Patient fumeur, poids en hausse")));
+
+            assertThat(reportServiceUT.getReportOfRisk(PATIENT_ID).getLevel()).isEqualTo("None");
+            assertThat(reportServiceUT.getReportOfRisk(PATIENT_ID).getLevel())
+                    .isEqualTo("Borderline");
+        }
+
+        @Test
+        @DisplayName("Should key versioned notes on their version")
+        void shouldKeyVersionedNotesOnVersion() {
+            Patient patient = createPatient("john", "doe", LocalDate.of(1980, 1, 25), Gender.MALE);
+            List<Note> notes = List.of(createNote("n1", "Patient fumeur", 1L));
+
+            assertThat(ReportCache.digest(patient, notes))
+                    .isEqualTo(ReportCache.digest(patient, List.of(createNote("n1", "", 1L))))
+                    .isNotEqualTo(
+                            ReportCache.digest(patient, List.of(createNote("n1", "", 2L))));
+        }
+    }
+
+    @Nested
+    @DisplayName("Trigger index")
+    class TriggerIndexTests {
+
+        @Test
+        @DisplayName("Should serve reports from the index once the patient is loaded")
+        void shouldServeReportsFromIndex() {
+            ReportService indexedService =
+                    new ReportService(
+                            patientProxyMock,
+                            noteProxyMock,
+                            new TriggerIndex(true, 100, Duration.ofHours(1)),
+                            new ReportCache(100, Duration.ofMinutes(10)),
+                            riskRuleEngine,
+                            triggerVocabulary,
+                            reportMetrics);
+            Patient patient = createPatient("john", "doe", LocalDate.of(1980, 1, 25), Gender.MALE);
+            when(patientProxyMock.getPatientById(PATIENT_ID)).thenReturn(patient);
+            when(noteProxyMock.getNotesByPatientId(PATIENT_ID))
+                    .thenReturn(List.of(createNote("n1", "Patient fumeur")));
+
+            assertThat(indexedService.getReportOfRisk(PATIENT_ID).getLevel()).isEqualTo("None");
+
+            indexedService.onNoteSaved(createNote("n2", "Poids en hausse"));
+            assertThat(indexedService.getReportOfRisk(PATIENT_ID).getLevel())
+                    .isEqualTo("Borderline");
+
+            indexedService.onNoteDeleted(PATIENT_ID, "n1");
+            assertThat(indexedService.getReportOfRisk(PATIENT_ID).getLevel()).isEqualTo("None");
+
+            verify(noteProxyMock, times(1)).getNotesByPatientId(PATIENT_ID);
+            indexedService.shutdown();
+        }
+
+        @Test
+        @DisplayName("Should flag reports of stale notes and neither index nor cache them")
+        void shouldNotIndexStaleNotes() {
+            TriggerIndex index = new TriggerIndex(true, 100, Duration.ofHours(1));
+            ReportService indexedService =
+                    new ReportService(
+                            patientProxyMock,
+                            noteProxyMock,
+                            index,
+                            new ReportCache(100, Duration.ofMinutes(10)),
+                            riskRuleEngine,
+                            triggerVocabulary,
+                            reportMetrics);
+            Patient patient = createPatient("john", "doe", LocalDate.of(1980, 1, 25), Gender.MALE);
+            when(patientProxyMock.getPatientById(PATIENT_ID)).thenReturn(patient);
+            doReturn(Fetched.stale(List.of(createNote("n1", "Patient fumeur"))))
+                    .doReturn(Fetched.fresh(List.of(createNote("n1", "Patient fumeur"))))
+                    .when(noteProxyMock)
+                    .fetchNotesByPatientId(PATIENT_ID);
+
+            ReportDTO stale = indexedService.getReportOfRisk(PATIENT_ID);
+            assertThat(stale.isStale()).isTrue();
+            assertThat(index.isIndexed(PATIENT_ID)).isFalse();
+
+            ReportDTO fresh = indexedService.getReportOfRisk(PATIENT_ID);
+            assertThat(fresh.isStale()).isFalse();
+            assertThat(fresh.getLevel()).isEqualTo(stale.getLevel());
+            assertThat(index.isIndexed(PATIENT_ID)).isTrue();
+            indexedService.shutdown();
+        }
+    }
+
+    @Nested
+    @DisplayName("Note events")
+    class NoteEventTests {
+
+        @Test
+        @DisplayName("Should apply the note changes of indexed patients only")
+        void shouldApplyNoteChangesOfIndexedPatients() {
+            TriggerIndex index = new TriggerIndex(true, 100, Duration.ofHours(1));
+            ReportService indexedService =
+                    new ReportService(
+                            patientProxyMock,
+                            noteProxyMock,
+                            index,
+                            new ReportCache(100, Duration.ofMinutes(10)),
+                            riskRuleEngine,
+                            triggerVocabulary,
+                            reportMetrics);
+            String version = triggerVocabulary.current().version();
+            index.load(PATIENT_ID, version, Map.of("n1", 0L));
+            when(noteProxyMock.getNoteById("n2")).thenReturn(createNote("n2", "Patient fumeur"));
+
+            indexedService.onNoteEvent(createEvent(NoteEvent.Type.CREATED, "n2", PATIENT_ID));
+            indexedService.onNoteEvent(createEvent(NoteEvent.Type.UPDATED, "n3", 2L));
+
+            assertThat(index.triggersOf(PATIENT_ID, version))
+                    .hasValue(triggerVocabulary.current().matcher().scan("Patient fumeur"));
+            verify(noteProxyMock, never()).getNoteById("n3");
+
+            indexedService.onNoteEvent(createEvent(NoteEvent.Type.DELETED, "n2", PATIENT_ID));
+
+            assertThat(index.triggersOf(PATIENT_ID, version)).hasValue(0L);
+            indexedService.shutdown();
+        }
+
+        @Test
+        @DisplayName("Should evict the patient when a changed note cannot be fetched")
+        void shouldEvictPatientWhenNoteCannotBeFetched() {
+            TriggerIndex index = new TriggerIndex(true, 100, Duration.ofHours(1));
+            ReportService indexedService =
+                    new ReportService(
+                            patientProxyMock,
+                            noteProxyMock,
+                            index,
+                            new ReportCache(100, Duration.ofMinutes(10)),
+                            riskRuleEngine,
+                            triggerVocabulary,
+                            reportMetrics);
+            index.load(PATIENT_ID, triggerVocabulary.current().version(), Map.of("n1", 0L));
+            when(noteProxyMock.getNoteById("n1")).thenThrow(new IllegalStateException("down"));
+
+            assertThatThrownBy(
+                            () ->
+                                    indexedService.onNoteEvent(
+                                            createEvent(NoteEvent.Type.UPDATED, "n1", PATIENT_ID)))
+                    .isInstanceOf(IllegalStateException.class);
+            assertThat(index.isIndexed(PATIENT_ID)).isFalse();
+            indexedService.shutdown();
+        }
+
+        private static NoteEvent createEvent(NoteEvent.Type type, String noteId, Long patientId) {
+            return new NoteEvent("e-" + noteId, type, noteId, patientId, 1L, LocalDateTime.now());
+        }
+    }
+
     @Nested
     @DisplayName("Risk Level Assessment for Male Patients")
     class MalePatientRiskLevelTests {
@@ -206,7 +634,7 @@ class ReportServiceTest {
         @DisplayName("Should handle null reports without throwing exception")
         void shouldHandleNullReport() {
             List<Note> notes = new ArrayList<>();
-            notes.add(new Note(null, "Dr", PATIENT_ID, null, LocalDateTime.now()));
+            notes.add(new Note(null, "Dr", PATIENT_ID, null, LocalDateTime.now(), null));
             Patient patient = createPatient("john", "doe", LocalDate.of(1980, 1, 25), Gender.MALE);
             when(patientProxyMock.getPatientById(PATIENT_ID)).thenReturn(patient);
             when(noteProxyMock.getNotesByPatientId(PATIENT_ID)).thenReturn(notes);
@@ -246,7 +674,15 @@ class ReportServiceTest {
     }
 
     private static Note createNote(String report) {
-        return new Note(null, PRACTITIONER_NAME, PATIENT_ID, report, LocalDateTime.now());
+        return new Note(null, PRACTITIONER_NAME, PATIENT_ID, report, LocalDateTime.now(), null);
+    }
+
+    private static Note createNote(String id, String report) {
+        return new Note(id, PRACTITIONER_NAME, PATIENT_ID, report, LocalDateTime.now(), null);
+    }
+
+    private static Note createNote(String id, String report, Long version) {
+        return new Note(id, PRACTITIONER_NAME, PATIENT_ID, report, LocalDateTime.now(), version);
     }
 
     private static List<Note> createNotesWithTriggers(int triggerCount) {
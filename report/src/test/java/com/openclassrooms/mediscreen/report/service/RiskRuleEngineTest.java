@@ -0,0 +1,66 @@
+package com.openclassrooms.mediscreen.report.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.util.List;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.CsvSource;
+import org.springframework.core.io.ClassPathResource;
+
+import com.openclassrooms.mediscreen.report.enumeration.Gender;
+import com.openclassrooms.mediscreen.report.enumeration.Level;
+
+class RiskRuleEngineTest {
+
+    private final RiskRuleEngine engine =
+            RiskRuleEngine.load(new ClassPathResource("risk-rules.csv"));
+
+    @ParameterizedTest
+    @CsvSource({
+        "MALE, 25, 2, BORDERLINE",
+        "MALE, 25, 3, IN_DANGER",
+        "MALE, 25, 4, EARLY_ONSET",
+        "FEMALE, 25, 3, NONE",
+        "FEMALE, 25, 4, IN_DANGER",
+        "FEMALE, 25, 5, EARLY_ONSET",
+        "MALE, 45, 3, IN_DANGER",
+        "FEMALE, 45, 3, NONE",
+        "FEMALE, 45, 6, IN_DANGER",
+        "FEMALE, 45, 7, EARLY_ONSET",
+        "MALE, 200, 99, EARLY_ONSET"
+    })
+    @DisplayName("Should classify patients with the shipped decision table")
+    void shouldClassifyWithShippedTable(Gender gender, int age, int triggers, Level expected) {
+        assertThat(engine.classify(gender, age, triggers)).isEqualTo(expected);
+    }
+
+    @Test
+    @DisplayName("Should apply only gender-neutral rules to patients without a gender")
+    void shouldApplyNeutralRulesWithoutGender() {
+        assertThat(engine.classify(null, 25, 3)).isEqualTo(Level.NONE);
+        assertThat(engine.classify(null, 45, 5)).isEqualTo(Level.IN_DANGER);
+    }
+
+    @Test
+    @DisplayName("Should reject overlapping rules")
+    void shouldRejectOverlappingRules() {
+        List<RiskRule> rules =
+                List.of(RiskRule.parse("*,0,,2,3,BORDERLINE"), RiskRule.parse("M,20,40,3,3,NONE"));
+
+        assertThatThrownBy(() -> RiskRuleEngine.compile(rules))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessageContaining("overlaps");
+    }
+
+    @Test
+    @DisplayName("Should reject a malformed rule")
+    void shouldRejectMalformedRule() {
+        assertThatThrownBy(() -> RiskRule.parse("M,40,20,2,2,BORDERLINE"))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessageContaining("age band");
+    }
+}
@@ -0,0 +1,99 @@
+package com.openclassrooms.mediscreen.report.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+class SingleFlightTest {
+
+    private final SingleFlight<Long, String> singleFlight = new SingleFlight<>();
+
+    @Test
+    @DisplayName("Should share one computation between concurrent callers of the same key")
+    void shouldShareComputationBetweenConcurrentCallers() throws Exception {
+        AtomicInteger computations = new AtomicInteger();
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        AtomicReference<String> firstResult = new AtomicReference<>();
+        AtomicReference<String> secondResult = new AtomicReference<>();
+
+        Thread first =
+                Thread.ofPlatform()
+                        .start(
+                                () ->
+                                        firstResult.set(
+                                                singleFlight.execute(
+                                                        1L,
+                                                        () -> {
+                                                            computations.incrementAndGet();
+                                                            started.countDown();
+                                                            await(release);
+                                                            return "report";
+                                                        })));
+        started.await();
+        Thread second =
+                Thread.ofPlatform()
+                        .start(
+                                () ->
+                                        secondResult.set(
+                                                singleFlight.execute(
+                                                        1L,
+                                                        () -> {
+                                                            computations.incrementAndGet();
+                                                            return "other";
+                                                        })));
+        // The second caller parks on the in-flight computation
+        while (second.getState() != Thread.State.WAITING) {
+            Thread.onSpinWait();
+        }
+        release.countDown();
+        first.join();
+        second.join();
+
+        assertThat(firstResult).hasValue("report");
+        assertThat(secondResult).hasValue("report");
+        assertThat(computations).hasValue(1);
+        assertThat(singleFlight.inFlightCount()).isZero();
+    }
+
+    @Test
+    @DisplayName("Should start a fresh computation once the previous one completed")
+    void shouldRecomputeAfterCompletion() {
+        AtomicInteger computations = new AtomicInteger();
+
+        singleFlight.execute(1L, () -> "report" + computations.incrementAndGet());
+        String result = singleFlight.execute(1L, () -> "report" + computations.incrementAndGet());
+
+        assertThat(result).isEqualTo("report2");
+    }
+
+    @Test
+    @DisplayName("Should propagate the exception of the computation and forget the key")
+    void shouldPropagateException() {
+        assertThatThrownBy(
+                        () ->
+                                singleFlight.execute(
+                                        1L,
+                                        () -> {
+                                            throw new IllegalArgumentException("not found");
+                                        }))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessage("not found");
+        assertThat(singleFlight.inFlightCount()).isZero();
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException(e);
+        }
+    }
+}
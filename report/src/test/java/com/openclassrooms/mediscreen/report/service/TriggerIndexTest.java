@@ -0,0 +1,114 @@
+package com.openclassrooms.mediscreen.report.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.LongStream;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+class TriggerIndexTest {
+
+    private static final Long PATIENT_ID = 1L;
+    private static final String VERSION = "v1";
+    private static final Duration MAX_AGE = Duration.ofHours(1);
+
+    @Test
+    @DisplayName("Should keep a trigger while at least one note still contributes it")
+    void shouldKeepTriggerWhileContributed() {
+        TriggerIndex index = new TriggerIndex(true, 100, MAX_AGE);
+        index.load(PATIENT_ID, VERSION, Map.of("n1", 0b011L, "n2", 0b001L));
+
+        index.remove(PATIENT_ID, "n1");
+
+        assertThat(index.triggersOf(PATIENT_ID, VERSION)).hasValue(0b001L);
+    }
+
+    @Test
+    @DisplayName("Should replace the contribution of an updated note")
+    void shouldReplaceUpdatedNote() {
+        TriggerIndex index = new TriggerIndex(true, 100, MAX_AGE);
+        index.load(PATIENT_ID, VERSION, Map.of("n1", 0b011L));
+
+        index.put(PATIENT_ID, "n1", 0b100L, VERSION);
+        index.put(PATIENT_ID, "n2", 0b001L, VERSION);
+
+        assertThat(index.triggersOf(PATIENT_ID, VERSION)).hasValue(0b101L);
+    }
+
+    @Test
+    @DisplayName("Should ignore deltas of patients that are not indexed")
+    void shouldIgnoreDeltasOfUnknownPatients() {
+        TriggerIndex index = new TriggerIndex(true, 100, MAX_AGE);
+
+        index.put(PATIENT_ID, "n1", 0b1L, VERSION);
+
+        assertThat(index.triggersOf(PATIENT_ID, VERSION)).isEmpty();
+    }
+
+    @Test
+    @DisplayName("Should replay the deltas received while the patient was being loaded")
+    void shouldReplayDeltasReceivedDuringLoad() {
+        TriggerIndex index = new TriggerIndex(true, 100, MAX_AGE);
+        index.beginLoad(PATIENT_ID);
+
+        index.put(PATIENT_ID, "n1", 0b100L, VERSION);
+        index.put(PATIENT_ID, "n3", 0b1000L, VERSION);
+        index.remove(PATIENT_ID, "n2");
+        index.load(PATIENT_ID, VERSION, Map.of("n1", 0b001L, "n2", 0b010L));
+        index.endLoad(PATIENT_ID);
+
+        assertThat(index.triggersOf(PATIENT_ID, VERSION)).hasValue(0b1100L);
+    }
+
+    @Test
+    @DisplayName("Should drop the least recently used patients beyond the maximum size")
+    void shouldBoundIndexedPatients() {
+        TriggerIndex index = new TriggerIndex(true, 1, MAX_AGE);
+
+        LongStream.rangeClosed(1, 3)
+                .forEach(id -> index.load(id, VERSION, Map.of("n" + id, 0b1L)));
+
+        assertThat(LongStream.rangeClosed(1, 3).filter(index::isIndexed)).hasSizeLessThan(2);
+    }
+
+    @Test
+    @DisplayName("Should drop a patient the maximum age after its load, despite later deltas")
+    void shouldDropPatientAfterMaximumAge() {
+        AtomicLong now = new AtomicLong();
+        TriggerIndex index = new TriggerIndex(true, 100, MAX_AGE, now::get);
+        index.load(PATIENT_ID, VERSION, Map.of("n1", 0b1L));
+
+        now.addAndGet(MAX_AGE.toNanos() - 1);
+        index.put(PATIENT_ID, "n2", 0b10L, VERSION);
+        assertThat(index.triggersOf(PATIENT_ID, VERSION)).hasValue(0b11L);
+
+        now.incrementAndGet();
+        assertThat(index.triggersOf(PATIENT_ID, VERSION)).isEmpty();
+        assertThat(index.isIndexed(PATIENT_ID)).isFalse();
+    }
+
+    @Test
+    @DisplayName("Should ignore entries indexed with another vocabulary version")
+    void shouldIgnoreOtherVocabularyVersion() {
+        TriggerIndex index = new TriggerIndex(true, 100, MAX_AGE);
+        index.load(PATIENT_ID, VERSION, Map.of("n1", 0b1L));
+
+        assertThat(index.triggersOf(PATIENT_ID, "v2")).isEmpty();
+
+        index.load(PATIENT_ID, "v2", Map.of("n1", 0b10L));
+        assertThat(index.triggersOf(PATIENT_ID, "v2")).hasValue(0b10L);
+    }
+
+    @Test
+    @DisplayName("Should never answer when disabled")
+    void shouldNeverAnswerWhenDisabled() {
+        TriggerIndex index = new TriggerIndex(false, 100, MAX_AGE);
+        index.load(PATIENT_ID, VERSION, Map.of("n1", 0b1L));
+
+        assertThat(index.triggersOf(PATIENT_ID, VERSION)).isEmpty();
+    }
+}
@@ -0,0 +1,80 @@
+package com.openclassrooms.mediscreen.report.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.core.io.FileSystemResource;
+
+class TriggerVocabularyTest {
+
+    @TempDir private Path directory;
+    private Path termsFile;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        termsFile = directory.resolve("trigger-terms.txt");
+        Files.writeString(termsFile, "# comment\nfumeur\n\npoids\n");
+    }
+
+    @Test
+    @DisplayName("Should load terms, skipping comments and blank lines")
+    void shouldLoadTerms() {
+        TriggerVocabulary vocabulary = new TriggerVocabulary(new FileSystemResource(termsFile));
+
+        assertThat(vocabulary.current().matcher().terms()).containsExactly("fumeur", "poids");
+    }
+
+    @Test
+    @DisplayName("Should keep the same snapshot when the terms did not change")
+    void shouldKeepSnapshotWhenUnchanged() {
+        TriggerVocabulary vocabulary = new TriggerVocabulary(new FileSystemResource(termsFile));
+        TriggerVocabulary.Snapshot before = vocabulary.current();
+
+        assertThat(vocabulary.reload()).isSameAs(before);
+    }
+
+    @Test
+    @DisplayName("Should swap in a new version when the terms changed")
+    void shouldSwapSnapshotWhenChanged() throws IOException {
+        TriggerVocabulary vocabulary = new TriggerVocabulary(new FileSystemResource(termsFile));
+        String before = vocabulary.current().version();
+
+        Files.writeString(termsFile, "fumeur\npoids\nvertige\n");
+        vocabulary.reload();
+
+        assertThat(vocabulary.current().version()).isNotEqualTo(before);
+        assertThat(vocabulary.current().matcher().scan("Vertige")).isNotZero();
+    }
+
+    @Test
+    @DisplayName("Should keep the current snapshot when the new terms are invalid")
+    void shouldKeepSnapshotWhenInvalid() throws IOException {
+        TriggerVocabulary vocabulary = new TriggerVocabulary(new FileSystemResource(termsFile));
+        TriggerVocabulary.Snapshot before = vocabulary.current();
+
+        Files.writeString(termsFile, "x\n".repeat(Long.SIZE + 1));
+
+        assertThatThrownBy(vocabulary::reload).isInstanceOf(IllegalArgumentException.class);
+        assertThat(vocabulary.current()).isSameAs(before);
+    }
+
+    @Test
+    @DisplayName("Should keep the current snapshot when a term is listed twice")
+    void shouldKeepSnapshotWhenTermDuplicated() throws IOException {
+        TriggerVocabulary vocabulary = new TriggerVocabulary(new FileSystemResource(termsFile));
+        TriggerVocabulary.Snapshot before = vocabulary.current();
+
+        Files.writeString(termsFile, "fumeur\npoids\nFumeur\n");
+
+        assertThatThrownBy(vocabulary::reload).isInstanceOf(IllegalArgumentException.class);
+        assertThat(vocabulary.current()).isSameAs(before);
+    }
+}
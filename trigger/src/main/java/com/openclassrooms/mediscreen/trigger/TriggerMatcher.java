@@ -0,0 +1,206 @@
+package com.openclassrooms.mediscreen.trigger;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Objects;
+import java.util.Set;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+/**
+ * Aho-Corasick automaton matching a fixed vocabulary of trigger terms in a single pass.
+ *
+ * <p>Terms are folded to lower case when the automaton is compiled and each scanned character is
+ * folded on the fly, so matching is case-insensitive without copying the scanned text. Matches are
+ * reported as a bitmask indexed by the ordinal of the term in the vocabulary.
+ */
+public final class TriggerMatcher {
+
+    private static final int ROOT = 0;
+    private static final int NO_STATE = -1;
+
+    private final List<String> terms;
+    private final int[] symbols;
+    private final int symbolCount;
+    private final int[] transitions;
+    private final long[] outputs;
+    private final long allTerms;
+
+    private TriggerMatcher(
+            List<String> terms, int[] symbols, int symbolCount, int[] transitions, long[] outputs) {
+        this.terms = terms;
+        this.symbols = symbols;
+        this.symbolCount = symbolCount;
+        this.transitions = transitions;
+        this.outputs = outputs;
+        this.allTerms = terms.size() == Long.SIZE ? -1L : (1L << terms.size()) - 1;
+    }
+
+    /**
+     * Compiles a vocabulary into a matcher.
+     *
+     * @param terms the trigger terms, at most {@value Long#SIZE}
+     * @return the compiled matcher
+     * @throws IllegalArgumentException if the vocabulary is too large, contains a null or blank
+     *     term or holds the same term twice, case aside
+     */
+    public static TriggerMatcher compile(List<String> terms) {
+        if (terms.size() > Long.SIZE) {
+            throw new IllegalArgumentException(
+                    "At most " + Long.SIZE + " trigger terms are supported, got: " + terms.size());
+        }
+        if (terms.stream().anyMatch(Objects::isNull)) {
+            throw new IllegalArgumentException("Trigger terms must not be null");
+        }
+        List<String> foldedTerms = terms.stream().map(TriggerMatcher::fold).toList();
+
+        // A term listed twice would get two ordinals and be counted twice
+        Set<String> distinctTerms = new HashSet<>();
+        int maxChar = 0;
+        for (String term : foldedTerms) {
+            if (term.isBlank()) {
+                throw new IllegalArgumentException("Trigger terms must not be blank");
+            }
+            if (!distinctTerms.add(term)) {
+                throw new IllegalArgumentException("Duplicate trigger term: " + term);
+            }
+            for (int i = 0; i < term.length(); i++) {
+                maxChar = Math.max(maxChar, term.charAt(i));
+            }
+        }
+
+        // Symbol 0 stands for every character that appears in no term.
+        int[] symbols = new int[maxChar + 1];
+        int symbolCount = 1;
+        for (String term : foldedTerms) {
+            for (int i = 0; i < term.length(); i++) {
+                char c = term.charAt(i);
+                if (symbols[c] == 0) {
+                    symbols[c] = symbolCount++;
+                }
+            }
+        }
+
+        List<int[]> trie = new ArrayList<>();
+        List<Long> termEnds = new ArrayList<>();
+        trie.add(newRow(symbolCount));
+        termEnds.add(0L);
+        for (int ordinal = 0; ordinal < foldedTerms.size(); ordinal++) {
+            String term = foldedTerms.get(ordinal);
+            int state = ROOT;
+            for (int i = 0; i < term.length(); i++) {
+                int symbol = symbols[term.charAt(i)];
+                int next = trie.get(state)[symbol];
+                if (next == NO_STATE) {
+                    next = trie.size();
+                    trie.get(state)[symbol] = next;
+                    trie.add(newRow(symbolCount));
+                    termEnds.add(0L);
+                }
+                state = next;
+            }
+            termEnds.set(state, termEnds.get(state) | (1L << ordinal));
+        }
+
+        // Breadth-first walk turning the trie into a complete transition table: missing edges
+        // follow the failure link, whose row is already complete since it is shallower.
+        int stateCount = trie.size();
+        int[] transitions = new int[stateCount * symbolCount];
+        long[] outputs = new long[stateCount];
+        int[] failures = new int[stateCount];
+        int[] queue = new int[stateCount];
+        int head = 0;
+        int tail = 0;
+        queue[tail++] = ROOT;
+        outputs[ROOT] = termEnds.get(ROOT);
+        while (head < tail) {
+            int state = queue[head++];
+            int[] row = trie.get(state);
+            for (int symbol = 0; symbol < symbolCount; symbol++) {
+                int fallback =
+                        state == ROOT ? ROOT : transitions[failures[state] * symbolCount + symbol];
+                int child = row[symbol];
+                if (child == NO_STATE) {
+                    transitions[state * symbolCount + symbol] = fallback;
+                } else {
+                    transitions[state * symbolCount + symbol] = child;
+                    failures[child] = fallback;
+                    outputs[child] = termEnds.get(child) | outputs[fallback];
+                    queue[tail++] = child;
+                }
+            }
+        }
+
+        return new TriggerMatcher(List.copyOf(terms), symbols, symbolCount, transitions, outputs);
+    }
+
+    /**
+     * Scans a text once and reports every term it contains.
+     *
+     * @param text the text to scan
+     * @return bitmask of the ordinals of the matched terms
+     */
+    public long scan(CharSequence text) {
+        return scan(text, 0L);
+    }
+
+    /**
+     * Scans a text on top of the terms already found elsewhere, stopping as soon as every term of
+     * the vocabulary has been seen.
+     *
+     * @param text the text to scan
+     * @param seen bitmask of the terms already found
+     * @return {@code seen} combined with the ordinals of the terms matched in {@code text}
+     */
+    public long scan(CharSequence text, long seen) {
+        long matches = seen;
+        int state = ROOT;
+        for (int i = 0, length = text.length(); i < length && matches != allTerms; i++) {
+            state = transitions[state * symbolCount + symbolOf(text.charAt(i))];
+            matches |= outputs[state];
+        }
+        return matches;
+    }
+
+    /**
+     * Resolves a bitmask returned by {@link #scan(CharSequence)} into the matched terms.
+     *
+     * @param matches bitmask of term ordinals
+     * @return the matched terms, in vocabulary order
+     */
+    public Stream<String> termsOf(long matches) {
+        return IntStream.range(0, terms.size())
+                .filter(ordinal -> (matches & (1L << ordinal)) != 0)
+                .mapToObj(terms::get);
+    }
+
+    /** Returns the bitmask with the ordinal of every term of the vocabulary set. */
+    public long allTerms() {
+        return allTerms;
+    }
+
+    public List<String> terms() {
+        return terms;
+    }
+
+    private int symbolOf(char c) {
+        char folded = Character.toLowerCase(c);
+        return folded < symbols.length ? symbols[folded] : 0;
+    }
+
+    private static String fold(String term) {
+        StringBuilder folded = new StringBuilder(term.length());
+        for (int i = 0; i < term.length(); i++) {
+            folded.append(Character.toLowerCase(term.charAt(i)));
+        }
+        return folded.toString();
+    }
+
+    private static int[] newRow(int symbolCount) {
+        int[] row = new int[symbolCount];
+        Arrays.fill(row, NO_STATE);
+        return row;
+    }
+}
@@ -0,0 +1,64 @@
+package com.openclassrooms.mediscreen.trigger;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.HexFormat;
+import java.util.List;
+
+/**
+ * Reading and versioning of trigger vocabulary files.
+ *
+ * <p>Every service reads its vocabulary through this class, so the same file always yields the
+ * same version, and masks computed by one service can be used by another whenever versions match.
+ */
+public final class TriggerTerms {
+
+    private TriggerTerms() {}
+
+    /**
+     * Reads a vocabulary file: one term per line, skipping blank lines and {@code #} comments.
+     *
+     * @param input the UTF-8 content of the file, closed once read
+     * @return the terms, in file order
+     * @throws IOException if the file cannot be read
+     */
+    public static List<String> read(InputStream input) throws IOException {
+        List<String> terms = new ArrayList<>();
+        try (BufferedReader reader =
+                new BufferedReader(new InputStreamReader(input, StandardCharsets.UTF_8))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                String term = line.strip();
+                if (!term.isEmpty() && !term.startsWith("#")) {
+                    terms.add(term);
+                }
+            }
+        }
+        return terms;
+    }
+
+    /**
+     * Computes the version of a vocabulary, a digest of its term list.
+     *
+     * @param terms the terms, in vocabulary order
+     * @return the version
+     */
+    public static String version(List<String> terms) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            for (String term : terms) {
+                digest.update(term.getBytes(StandardCharsets.UTF_8));
+                digest.update((byte) '\n');
+            }
+            return HexFormat.of().formatHex(digest.digest(), 0, 6);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+    }
+}
@@ -0,0 +1,102 @@
+package com.openclassrooms.mediscreen.trigger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.IntStream;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+
+class TriggerMatcherTest {
+
+    @Nested
+    @DisplayName("scan")
+    class ScanTests {
+
+        @Test
+        @DisplayName("Should find overlapping terms sharing suffixes in a single pass")
+        void shouldFindOverlappingTerms() {
+            TriggerMatcher matcher = TriggerMatcher.compile(List.of("he", "she", "his", "hers"));
+
+            long matches = matcher.scan("ushers and this");
+
+            assertThat(matcher.termsOf(matches)).containsExactly("he", "she", "his", "hers");
+        }
+
+        @Test
+        @DisplayName("Should match accented terms case-insensitively")
+        void shouldMatchCaseInsensitively() {
+            TriggerMatcher matcher =
+                    TriggerMatcher.compile(List.of("hémoglobine a1c", "cholestérol", "vertige"));
+
+            long matches = matcher.scan("Tests show HÉMOGLOBINE A1C and Cholestérol");
+
+            assertThat(matcher.termsOf(matches)).containsExactly("hémoglobine a1c", "cholestérol");
+        }
+
+        @Test
+        @DisplayName("Should accumulate on top of the terms already seen")
+        void shouldAccumulateOnTopOfSeenTerms() {
+            TriggerMatcher matcher = TriggerMatcher.compile(List.of("fumeur", "poids", "taille"));
+
+            long seen = matcher.scan("Patient fumeur");
+            long matches = matcher.scan("Poids et taille normaux", seen);
+
+            assertThat(matches).isEqualTo(matcher.allTerms());
+            assertThat(Long.bitCount(matches)).isEqualTo(3);
+        }
+
+        @Test
+        @DisplayName("Should return an empty mask when nothing matches")
+        void shouldReturnEmptyMaskWhenNothingMatches() {
+            TriggerMatcher matcher = TriggerMatcher.compile(List.of("fumeur", "poids"));
+
+            assertThat(matcher.scan("")).isZero();
+            assertThat(matcher.scan("Le patient déclare aller bien")).isZero();
+        }
+    }
+
+    @Nested
+    @DisplayName("compile")
+    class CompileTests {
+
+        @Test
+        @DisplayName("Should reject a blank term")
+        void shouldRejectBlankTerm() {
+            assertThatThrownBy(() -> TriggerMatcher.compile(List.of("poids", " ")))
+                    .isInstanceOf(IllegalArgumentException.class)
+                    .hasMessageContaining("blank");
+        }
+
+        @Test
+        @DisplayName("Should reject a null term")
+        void shouldRejectNullTerm() {
+            assertThatThrownBy(() -> TriggerMatcher.compile(Arrays.asList("poids", null)))
+                    .isInstanceOf(IllegalArgumentException.class)
+                    .hasMessageContaining("null");
+        }
+
+        @Test
+        @DisplayName("Should reject a term listed twice with different cases")
+        void shouldRejectDuplicateTerm() {
+            assertThatThrownBy(() -> TriggerMatcher.compile(List.of("Fumeur", "poids", "FUMEUR")))
+                    .isInstanceOf(IllegalArgumentException.class)
+                    .hasMessageContaining("Duplicate");
+        }
+
+        @Test
+        @DisplayName("Should reject a vocabulary that does not fit in a bitmask")
+        void shouldRejectOversizedVocabulary() {
+            List<String> terms =
+                    IntStream.rangeClosed(0, Long.SIZE).mapToObj(i -> "t" + i).toList();
+
+            assertThatThrownBy(() -> TriggerMatcher.compile(terms))
+                    .isInstanceOf(IllegalArgumentException.class)
+                    .hasMessageContaining("At most");
+        }
+    }
+}
@@ -0,0 +1,43 @@
+package com.openclassrooms.mediscreen.trigger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+class TriggerTermsTest {
+
+    @Test
+    @DisplayName("Should read terms, skipping comments and blank lines")
+    void shouldReadTerms() throws IOException {
+        InputStream input =
+                new ByteArrayInputStream(
+                        "# comment\n fumeur \n\npoids\n".getBytes(StandardCharsets.UTF_8));
+
+        assertThat(TriggerTerms.read(input)).containsExactly("fumeur", "poids");
+    }
+
+    @Test
+    @DisplayName("Should version a term list by its content and order")
+    void shouldVersionTermList() {
+        String version = TriggerTerms.version(List.of("fumeur", "poids"));
+
+        assertThat(version).hasSize(12).isEqualTo(TriggerTerms.version(List.of("fumeur", "poids")));
+        assertThat(TriggerTerms.version(List.of("poids", "fumeur"))).isNotEqualTo(version);
+    }
+
+    @Test
+    @DisplayName("Should ship a vocabulary that compiles")
+    void shouldShipCompilableVocabulary() throws IOException {
+        try (InputStream input = getClass().getResourceAsStream("/trigger-terms.txt")) {
+            assertThat(input).isNotNull();
+            assertThat(TriggerMatcher.compile(TriggerTerms.read(input)).terms()).isNotEmpty();
+        }
+    }
+}